@@ -7,7 +7,7 @@ import org.springframework.boot.autoconfigure.security.servlet.SecurityAutoConfi
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
 import org.springframework.scheduling.annotation.EnableScheduling;
 
-@SpringBootApplication(exclude = {SecurityAutoConfiguration.class})
+@SpringBootApplication(exclude = {SecurityAutoConfiguration.class}, scanBasePackages = {"com.appointment", "com.example.demo.cache"})
 @EnableScheduling
 @EntityScan(basePackages = {"com.appointment.entity", "com.example.demo.entity"})
 @EnableJpaRepositories(basePackages = {"com.appointment.repository", "com.example.demo.repository"})
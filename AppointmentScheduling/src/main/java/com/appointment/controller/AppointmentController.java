@@ -1,19 +1,28 @@
 package com.appointment.controller;
 
+import java.time.LocalDate;
 import java.util.List;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.appointment.dto.AppointmentPageDTO;
 import com.appointment.dto.AppointmentRequestDTO;
 import com.appointment.dto.AppointmentResponseDTO;
 import com.appointment.dto.AppointmentUpdateDTO;
+import com.appointment.dto.AvailabilityMatrixDTO;
 import com.appointment.dto.AvailabilityRequestDTO;
 import com.appointment.dto.AvailabilityResponseDTO;
 import com.appointment.dto.BookingResult;
 import com.appointment.entity.Appointment;
+import com.appointment.service.AppointmentHistoryStreamer;
 import com.appointment.service.AppointmentService;
+import com.appointment.service.SlotConflicts;
 
 
 @RestController
@@ -22,14 +31,35 @@ public class AppointmentController {
     
     @Autowired
     private AppointmentService appointmentService;
+
+    @Autowired
+    private AppointmentHistoryStreamer appointmentHistoryStreamer;
     
     // Book an appointment (or add to waiting list if slot is full).
     @PostMapping("/book")
     public ResponseEntity<BookingResult> bookAppointment(@Valid @RequestBody AppointmentRequestDTO request) {
-        BookingResult result = appointmentService.bookOrWaitAppointment(request);
+        BookingResult result;
+        try {
+            result = appointmentService.bookOrWaitAppointment(request);
+        } catch (DataIntegrityViolationException e) {
+            if (!SlotConflicts.isActiveSlotConflict(e)) {
+                throw e;
+            }
+            // The booking transaction has rolled back; retry as a waiting-list entry.
+            result = appointmentService.waitOnConflict(request);
+        }
         return ResponseEntity.ok(result);
     }
     
+    // Book many appointments at once (call-center imports, recurring treatment plans).
+    // Results are returned in request order.
+    @PostMapping("/book/batch")
+    public ResponseEntity<List<BookingResult>> bookAppointments(@RequestBody List<AppointmentRequestDTO> requests) {
+        // Slot races are retried per doctor-day inside the service.
+        List<BookingResult> results = appointmentService.bookOrWaitAppointments(requests);
+        return ResponseEntity.ok(results);
+    }
+    
     // Partially update an appointment.
     @PutMapping("/update/{appointmentId}")
     public ResponseEntity<Appointment> updateAppointment(@PathVariable Long appointmentId, @RequestBody AppointmentUpdateDTO updateDTO) {
@@ -50,6 +80,22 @@ public class AppointmentController {
         return ResponseEntity.ok(responseDTOs);
     }
     
+    // One page of a patient's history; pass nextCursor of the previous page to continue.
+    @GetMapping("/patient/{patientId}/page")
+    public ResponseEntity<AppointmentPageDTO> getAppointmentPageByPatient(@PathVariable Long patientId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int size) {
+        AppointmentPageDTO page = appointmentService.getAppointmentPageByPatient(patientId, cursor, size);
+        return ResponseEntity.ok(page);
+    }
+    
+    // Full history of a patient as NDJSON, written row by row as it is read from the database.
+    @GetMapping(value = "/patient/{patientId}/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAppointmentsByPatient(@PathVariable Long patientId) {
+        StreamingResponseBody body = out -> appointmentHistoryStreamer.stream(patientId, out);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+    
      //Retrieve available time slots for a doctor on a specific date.
     @GetMapping("/availability")
     public ResponseEntity<AvailabilityResponseDTO> getAvailability(@RequestBody AvailabilityRequestDTO request) {
@@ -58,4 +104,15 @@ public class AppointmentController {
                 request.getDate());
         return ResponseEntity.ok(response);
     }
-}
\ No newline at end of file
+    
+    // Free slots of several doctors over a date range, e.g.
+    // /availability/matrix?doctorIds=3,7,9&from=2025-06-02&to=2025-06-08
+    @GetMapping("/availability/matrix")
+    public ResponseEntity<AvailabilityMatrixDTO> getAvailabilityMatrix(
+            @RequestParam List<Long> doctorIds,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        AvailabilityMatrixDTO matrix = appointmentService.getAvailabilityMatrix(doctorIds, from, to);
+        return ResponseEntity.ok(matrix);
+    }
+}
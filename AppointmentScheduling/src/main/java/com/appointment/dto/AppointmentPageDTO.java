@@ -0,0 +1,15 @@
+package com.appointment.dto;
+
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AppointmentPageDTO {
+    private List<AppointmentResponseDTO> appointments;
+    // Opaque cursor for the next page, or null on the last page.
+    private String nextCursor;
+}
@@ -0,0 +1,18 @@
+package com.appointment.dto;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Map;
+import lombok.Data;
+
+@Data
+public class AvailabilityMatrixDTO {
+    private LocalDate from;
+    private LocalDate to;
+    // Slot start times of the default template's daily grid.
+    private List<LocalTime> slotTimes;
+    // Slot grid of every template used in the matrix, by template name.
+    private Map<String, List<LocalTime>> templates;
+    private List<DoctorAvailabilityRowDTO> doctors;
+}
@@ -0,0 +1,16 @@
+package com.appointment.dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import lombok.Data;
+
+@Data
+public class DoctorAvailabilityRowDTO {
+    private Long doctorId;
+    // One bitmask of free slots per day from..to (bit i set = slot i of that day's template is free).
+    private List<Long> freeSlotMasks;
+    // Template name per day from..to; see AvailabilityMatrixDTO.templates.
+    private List<String> slotTemplates;
+    // First free slot in the range, or null if the doctor is fully booked.
+    private LocalDateTime earliestAvailable;
+}
@@ -0,0 +1,11 @@
+package com.appointment.dto;
+
+import lombok.Data;
+
+@Data
+public class OverdueCancellationSummary {
+    private int chunks;
+    private int appointmentsCancelled;
+    private int waitingRecordsRemoved;
+    private long elapsedMillis;
+}
@@ -10,7 +10,15 @@ import com.example.demo.entity.Doctor;
 
 @Data
 @Entity
-@Table(name = "appointments")
+@Table(name = "appointments", uniqueConstraints = {
+        // active_slot is TRUE only while BOOKED and NULL otherwise; MySQL allows
+        // repeated NULLs, so a slot can be rebooked after a cancellation.
+        @UniqueConstraint(name = "uk_appointments_active_slot",
+                columnNames = {"doctor_id", "appointment_date", "appointment_time", "active_slot"})},
+        indexes = {
+        // Serves keyset pagination of a patient's history in (date, time, id) order.
+        @Index(name = "idx_appointments_patient_history",
+                columnList = "patient_id, appointment_date, appointment_time, appointment_id")})
 public class Appointment {
 
     @Id
@@ -37,4 +45,14 @@ public class Appointment {
     @JsonIgnore
     private boolean followUp;
 
+    @JsonIgnore
+    @Column(name = "active_slot")
+    private Boolean activeSlot;
+
+    @PrePersist
+    @PreUpdate
+    void syncActiveSlot() {
+        activeSlot = status == AppointmentStatus.BOOKED ? Boolean.TRUE : null;
+    }
+
 }
@@ -0,0 +1,29 @@
+package com.appointment.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import java.time.Instant;
+import java.time.LocalDate;
+
+// A doctor-day whose appointments changed outside the per-appointment updates
+// (bulk cancellations), written in the same transaction as the change. Every
+// SlotOccupancyIndex polls this table to drop its copy of the doctor-day.
+@Data
+@Entity
+@Table(name = "doctor_day_changes",
+        indexes = @Index(name = "idx_doctor_day_changes_changed_at", columnList = "changed_at"))
+public class DoctorDayChange {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "doctor_id", nullable = false)
+    private Long doctorId;
+
+    @Column(name = "slot_date", nullable = false)
+    private LocalDate slotDate;
+
+    @Column(name = "changed_at", nullable = false)
+    private Instant changedAt;
+}
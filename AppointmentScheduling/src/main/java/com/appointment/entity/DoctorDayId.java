@@ -0,0 +1,23 @@
+package com.appointment.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.io.Serializable;
+import java.time.LocalDate;
+
+// Key of a doctor-day: one doctor on one date.
+@Data
+@Embeddable
+@NoArgsConstructor
+@AllArgsConstructor
+public class DoctorDayId implements Serializable {
+
+    @Column(name = "doctor_id", nullable = false)
+    private Long doctorId;
+
+    @Column(name = "slot_date", nullable = false)
+    private LocalDate slotDate;
+}
@@ -0,0 +1,28 @@
+package com.appointment.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import java.time.LocalDateTime;
+
+// Materialized slot state of a doctor-day, maintained by DoctorDaySlotStore.
+// Bit i of a mask refers to slot i of the doctor-day's SlotTemplate; a null
+// mask has not been materialized yet.
+@Data
+@Entity
+@Table(name = "doctor_day_slots")
+public class DoctorDaySlots {
+
+    @EmbeddedId
+    private DoctorDayId id;
+
+    // Slots covered by BOOKED appointments.
+    @Column(name = "booked_mask")
+    private Long bookedMask;
+
+    // Slots the doctor has blocked.
+    @Column(name = "blocked_mask")
+    private Long blockedMask;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
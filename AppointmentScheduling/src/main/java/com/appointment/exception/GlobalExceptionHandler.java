@@ -12,6 +12,12 @@ public class GlobalExceptionHandler {
 
     private static final Logger logger = LoggerFactory.getLogger(GlobalExceptionHandler.class);
 
+    @ExceptionHandler(SlotConflictException.class)
+    public ResponseEntity<String> handleSlotConflict(SlotConflictException ex) {
+         logger.info("Slot conflict: {}", ex.getMessage());
+         return ResponseEntity.status(HttpStatus.CONFLICT).body(ex.getMessage());
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<String> handleAllExceptions(Exception ex) {
          logger.error("An error occurred: {}", ex.getMessage(), ex);
@@ -0,0 +1,17 @@
+package com.appointment.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+// The requested slot was taken by a concurrent booking; the client may pick another slot or retry.
+@ResponseStatus(HttpStatus.CONFLICT)
+public class SlotConflictException extends RuntimeException {
+    /**
+	 * 
+	 */
+	private static final long serialVersionUID = 1L;
+
+	public SlotConflictException(String message) {
+        super(message);
+    }
+}
@@ -2,8 +2,13 @@ package com.appointment.repository;
 
 import java.time.LocalDate;
 import java.time.LocalTime;
+import java.util.Collection;
 import java.util.List;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import com.appointment.entity.Appointment;
 import com.appointment.entity.AppointmentStatus;
@@ -15,6 +20,32 @@ public interface AppointmentRepository extends JpaRepository<Appointment, Long>
 
     // Find appointments by the patient’s ID
     List<Appointment> findByPatient_PatientId(Long patientId);
+
+    // Patient history as a joined projection, in (date, time, id) order; shared by the queries below.
+    String HISTORY_SELECT = "SELECT a.appointmentId AS appointmentId, a.appointmentDate AS appointmentDate, "
+            + "a.appointmentTime AS appointmentTime, a.status AS status, d.doctorId AS doctorId, "
+            + "u.name AS doctorName, u.gender AS doctorGender, d.roomNumber AS roomNumber, "
+            + "d.specialization AS specialization, d.qualification AS qualification "
+            + "FROM Appointment a JOIN a.doctor d LEFT JOIN d.user u "
+            + "WHERE a.patient.patientId = :patientId ";
+    String HISTORY_ORDER = "ORDER BY a.appointmentDate, a.appointmentTime, a.appointmentId";
+
+    // Appointment history of a patient with the doctor details, as one joined projection query.
+    @Query(HISTORY_SELECT + HISTORY_ORDER)
+    List<PatientAppointmentRow> findHistoryByPatientId(@Param("patientId") Long patientId);
+
+    // First page of a patient's history (keyset pagination).
+    @Query(HISTORY_SELECT + HISTORY_ORDER)
+    List<PatientAppointmentRow> findHistoryByPatientId(@Param("patientId") Long patientId, Pageable pageable);
+
+    // Next page of a patient's history: rows strictly after the (date, time, id) cursor.
+    @Query(HISTORY_SELECT
+            + "AND (a.appointmentDate > :date OR (a.appointmentDate = :date AND (a.appointmentTime > :time "
+            + "OR (a.appointmentTime = :time AND a.appointmentId > :appointmentId)))) "
+            + HISTORY_ORDER)
+    List<PatientAppointmentRow> findHistoryByPatientIdAfter(@Param("patientId") Long patientId,
+            @Param("date") LocalDate date, @Param("time") LocalTime time,
+            @Param("appointmentId") Long appointmentId, Pageable pageable);
     
     // Find appointments by the doctor’s ID
    //  List<Appointment> findByDoctor_DoctorId(Long doctorId);
@@ -22,10 +53,96 @@ public interface AppointmentRepository extends JpaRepository<Appointment, Long>
     // Find appointments for a given doctor on a specific date.
     List<Appointment> findByDoctorAndAppointmentDate(Doctor doctor, LocalDate appointmentDate);
 
+    // Find appointments in a given status for a doctor on a specific date (used to load the slot index).
+    List<Appointment> findByDoctor_DoctorIdAndAppointmentDateAndStatus(Long doctorId, LocalDate appointmentDate,
+            AppointmentStatus status);
+
+    // Booked start times for several doctors over a date range in one query (availability matrix).
+    @Query("SELECT a.doctor.doctorId AS doctorId, a.appointmentDate AS appointmentDate, a.appointmentTime AS appointmentTime "
+            + "FROM Appointment a WHERE a.doctor.doctorId IN :doctorIds AND a.appointmentDate BETWEEN :from AND :to "
+            + "AND a.status = :status "
+            + "GROUP BY a.doctor.doctorId, a.appointmentDate, a.appointmentTime")
+    List<BookedSlot> findBookedSlots(@Param("doctorIds") Collection<Long> doctorIds, @Param("from") LocalDate from,
+            @Param("to") LocalDate to, @Param("status") AppointmentStatus status);
+
     // Find first appointment that matches doctor, patient, date, and start time (for duplicate checking).
     Appointment findFirstByDoctorAndPatientAndAppointmentDateAndAppointmentTime(
             Doctor doctor, Patient patient, LocalDate date, LocalTime startTime);
     
     // Retrieve appointments with a specified date and status.
     List<Appointment> findByAppointmentDateAndStatus(LocalDate appointmentDate, AppointmentStatus status);
+
+    // Appointments in a status on a date that start before a given time, lowest id first (overdue job chunks).
+    @Query("SELECT a.appointmentId AS appointmentId, a.doctor.doctorId AS doctorId, "
+            + "a.appointmentDate AS appointmentDate, a.appointmentTime AS appointmentTime "
+            + "FROM Appointment a WHERE a.appointmentDate = :date AND a.status = :status AND a.appointmentTime < :before "
+            + "ORDER BY a.appointmentId")
+    List<AppointmentSlot> findSlotsByDateAndStatusBefore(@Param("date") LocalDate date,
+            @Param("status") AppointmentStatus status, @Param("before") LocalTime before, Pageable pageable);
+
+    // Slots of a doctor's appointments in a status on one date, without loading the entities.
+    @Query("SELECT a.appointmentId AS appointmentId, a.doctor.doctorId AS doctorId, "
+            + "a.appointmentDate AS appointmentDate, a.appointmentTime AS appointmentTime "
+            + "FROM Appointment a WHERE a.doctor.doctorId = :doctorId AND a.appointmentDate = :date "
+            + "AND a.status = :status ORDER BY a.appointmentTime, a.appointmentId")
+    List<AppointmentSlot> findSlotsByDoctorAndDateAndStatus(@Param("doctorId") Long doctorId,
+            @Param("date") LocalDate date, @Param("status") AppointmentStatus status);
+
+    // Slots of several doctors' appointments in a status over a date range (roster reconciliation).
+    @Query("SELECT a.appointmentId AS appointmentId, a.doctor.doctorId AS doctorId, "
+            + "a.appointmentDate AS appointmentDate, a.appointmentTime AS appointmentTime "
+            + "FROM Appointment a WHERE a.doctor.doctorId IN :doctorIds AND a.appointmentDate BETWEEN :from AND :to "
+            + "AND a.status = :status")
+    List<AppointmentSlot> findSlotsByDoctorsAndDateRangeAndStatus(@Param("doctorIds") Collection<Long> doctorIds,
+            @Param("from") LocalDate from, @Param("to") LocalDate to, @Param("status") AppointmentStatus status);
+
+    // Cancels the given appointments that are still booked in one statement. Bulk updates skip
+    // the entity callbacks, so active_slot is cleared here as well.
+    @Modifying
+    @Query("UPDATE Appointment a SET a.status = com.appointment.entity.AppointmentStatus.CANCELLED, a.activeSlot = NULL "
+            + "WHERE a.appointmentId IN :ids AND a.status = com.appointment.entity.AppointmentStatus.BOOKED")
+    int cancelBookedByIds(@Param("ids") Collection<Long> ids);
+
+    // Flat projection of an appointment and its doctor, mapped to AppointmentResponseDTO by the service.
+    interface PatientAppointmentRow {
+        Long getAppointmentId();
+
+        LocalDate getAppointmentDate();
+
+        LocalTime getAppointmentTime();
+
+        AppointmentStatus getStatus();
+
+        Long getDoctorId();
+
+        String getDoctorName();
+
+        String getDoctorGender();
+
+        String getRoomNumber();
+
+        String getSpecialization();
+
+        String getQualification();
+    }
+
+    // Projection of an appointment's id and slot.
+    interface AppointmentSlot {
+        Long getAppointmentId();
+
+        Long getDoctorId();
+
+        LocalDate getAppointmentDate();
+
+        LocalTime getAppointmentTime();
+    }
+
+    // Projection of a booked slot, without loading the appointment's doctor and patient.
+    interface BookedSlot {
+        Long getDoctorId();
+
+        LocalDate getAppointmentDate();
+
+        LocalTime getAppointmentTime();
+    }
 }
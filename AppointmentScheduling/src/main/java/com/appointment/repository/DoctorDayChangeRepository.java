@@ -0,0 +1,23 @@
+package com.appointment.repository;
+
+import java.time.Instant;
+import java.util.List;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import com.appointment.entity.DoctorDayChange;
+
+@Repository
+public interface DoctorDayChangeRepository extends JpaRepository<DoctorDayChange, Long> {
+
+    // Changes recorded since the given instant (SlotOccupancyIndex polling).
+    List<DoctorDayChange> findByChangedAtAfter(Instant since);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM DoctorDayChange c WHERE c.changedAt < :before")
+    int deleteChangedBefore(@Param("before") Instant before);
+}
@@ -0,0 +1,62 @@
+package com.appointment.repository;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import com.appointment.entity.DoctorDayId;
+import com.appointment.entity.DoctorDaySlots;
+import jakarta.persistence.LockModeType;
+
+@Repository
+public interface DoctorDaySlotsRepository extends JpaRepository<DoctorDaySlots, DoctorDayId> {
+
+    // Materialized doctor-days in a date range (consistency check).
+    List<DoctorDaySlots> findById_SlotDateBetween(LocalDate from, LocalDate to);
+
+    // Locks the row of a doctor-day, if present, before it is rebuilt from its sources.
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT d FROM DoctorDaySlots d WHERE d.id = :id")
+    Optional<DoctorDaySlots> findForUpdate(@Param("id") DoctorDayId id);
+
+    // Creates the row of a doctor-day if needed and locks it until the transaction
+    // ends, so that rebuilds of the day run one at a time.
+    @Modifying
+    @Query(value = "INSERT INTO doctor_day_slots (doctor_id, slot_date, updated_at) "
+            + "VALUES (:doctorId, :date, NOW(6)) ON DUPLICATE KEY UPDATE updated_at = VALUES(updated_at)",
+            nativeQuery = true)
+    int lockForRebuild(@Param("doctorId") Long doctorId, @Param("date") LocalDate date);
+
+    // Materializes the booked mask unless another transaction has already written it.
+    @Modifying
+    @Query(value = "INSERT INTO doctor_day_slots (doctor_id, slot_date, booked_mask, updated_at) "
+            + "VALUES (:doctorId, :date, :mask, NOW(6)) ON DUPLICATE KEY UPDATE "
+            + "booked_mask = COALESCE(booked_mask, VALUES(booked_mask))", nativeQuery = true)
+    int fillBooked(@Param("doctorId") Long doctorId, @Param("date") LocalDate date, @Param("mask") long mask);
+
+    // Overwrites the booked mask.
+    @Modifying
+    @Query(value = "INSERT INTO doctor_day_slots (doctor_id, slot_date, booked_mask, updated_at) "
+            + "VALUES (:doctorId, :date, :mask, NOW(6)) ON DUPLICATE KEY UPDATE "
+            + "booked_mask = VALUES(booked_mask), updated_at = VALUES(updated_at)", nativeQuery = true)
+    int setBooked(@Param("doctorId") Long doctorId, @Param("date") LocalDate date, @Param("mask") long mask);
+
+    // Overwrites the blocked mask.
+    @Modifying
+    @Query(value = "INSERT INTO doctor_day_slots (doctor_id, slot_date, blocked_mask, updated_at) "
+            + "VALUES (:doctorId, :date, :mask, NOW(6)) ON DUPLICATE KEY UPDATE "
+            + "blocked_mask = VALUES(blocked_mask), updated_at = VALUES(updated_at)", nativeQuery = true)
+    int setBlocked(@Param("doctorId") Long doctorId, @Param("date") LocalDate date, @Param("mask") long mask);
+
+    // Materializes the blocked mask unless another transaction has already written it.
+    @Modifying
+    @Query(value = "INSERT INTO doctor_day_slots (doctor_id, slot_date, blocked_mask, updated_at) "
+            + "VALUES (:doctorId, :date, :mask, NOW(6)) ON DUPLICATE KEY UPDATE "
+            + "blocked_mask = COALESCE(blocked_mask, VALUES(blocked_mask))", nativeQuery = true)
+    int fillBlocked(@Param("doctorId") Long doctorId, @Param("date") LocalDate date, @Param("mask") long mask);
+}
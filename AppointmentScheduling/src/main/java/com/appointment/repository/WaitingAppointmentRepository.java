@@ -1,8 +1,12 @@
 package com.appointment.repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.appointment.entity.WaitingAppointment;
@@ -13,7 +17,24 @@ import com.example.demo.entity.Patient;
 @Repository
 public interface WaitingAppointmentRepository extends JpaRepository<WaitingAppointment, Long> {
     List<WaitingAppointment> findByDoctorAndPreferredTimeBetween(Doctor doctor, LocalDateTime start, LocalDateTime end);
+
+    // Waiting records of a doctor-day, loaded by the in-memory waitlist.
+    List<WaitingAppointment> findByDoctor_DoctorIdAndPreferredTimeBetween(Long doctorId, LocalDateTime start, LocalDateTime end);
     
     // Add this method to find waiting list records for a specific doctor and patient.
     List<WaitingAppointment> findByDoctorAndPatient(Doctor doctor, Patient patient);
+
+    // Remove every waiting record of the given patients for a doctor in one statement (batch booking).
+    @Modifying
+    @Query("DELETE FROM WaitingAppointment w WHERE w.doctor = :doctor AND w.patient IN :patients")
+    int deleteByDoctorAndPatientIn(@Param("doctor") Doctor doctor, @Param("patients") Collection<Patient> patients);
+
+    // Remove waiting records whose preferred time lies within 15 minutes of any of the given
+    // appointments of the same doctor, in one statement (overdue cancellation job).
+    @Modifying
+    @Query(value = "DELETE w FROM waiting_appointments w JOIN appointments a ON a.doctor_id = w.doctor_id "
+            + "WHERE a.appointment_id IN (:appointmentIds) "
+            + "AND w.preferred_time BETWEEN TIMESTAMP(a.appointment_date, a.appointment_time) - INTERVAL 15 MINUTE "
+            + "AND TIMESTAMP(a.appointment_date, a.appointment_time) + INTERVAL 15 MINUTE", nativeQuery = true)
+    int deleteNearAppointments(@Param("appointmentIds") Collection<Long> appointmentIds);
 }
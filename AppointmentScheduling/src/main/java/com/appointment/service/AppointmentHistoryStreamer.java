@@ -0,0 +1,133 @@
+package com.appointment.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import javax.sql.DataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+
+import com.appointment.dto.AppointmentResponseDTO;
+import com.appointment.dto.DoctorResponseDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * Writes a patient's full appointment history as NDJSON (one JSON object per
+ * line) while the rows are read from a JDBC cursor, so the history is never
+ * held on the heap as a whole.
+ *
+ * On MySQL the streamer reads through its own small connection pool whose URL
+ * adds useCursorFetch=true, so the driver fetches fetch-size rows at a time
+ * instead of buffering the whole result set. The setting changes how every
+ * statement with a fetch size is executed, so it is kept off the shared
+ * application pool. Other databases use the application DataSource.
+ */
+@Component
+public class AppointmentHistoryStreamer implements DisposableBean {
+
+	private static final Logger logger = LoggerFactory.getLogger(AppointmentHistoryStreamer.class);
+
+	private static final String HISTORY_SQL = "SELECT a.appointment_id, a.appointment_date, a.appointment_time, a.status, "
+			+ "d.doctor_id, u.name, u.gender, d.room_number, d.specialization, d.qualification "
+			+ "FROM appointments a JOIN doctors d ON d.doctor_id = a.doctor_id "
+			+ "LEFT JOIN users u ON u.user_id = d.user_id "
+			+ "WHERE a.patient_id = ? "
+			+ "ORDER BY a.appointment_date, a.appointment_time, a.appointment_id";
+
+	private final JdbcTemplate jdbcTemplate;
+
+	// Set only when the streamer owns its pool.
+	private final HikariDataSource cursorDataSource;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	public AppointmentHistoryStreamer(DataSource dataSource, DataSourceProperties dataSourceProperties,
+			@Value("${appointment.history.stream-fetch-size:500}") int fetchSize,
+			@Value("${appointment.history.stream-pool-size:4}") int poolSize) {
+		String url = dataSourceProperties.determineUrl();
+		if (url != null && url.startsWith("jdbc:mysql:")) {
+			cursorDataSource = dataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class)
+					.url(url + (url.contains("?") ? "&" : "?") + "useCursorFetch=true").build();
+			cursorDataSource.setPoolName("history-stream");
+			cursorDataSource.setMaximumPoolSize(poolSize);
+			cursorDataSource.setMinimumIdle(0);
+			cursorDataSource.setReadOnly(true);
+			jdbcTemplate = new JdbcTemplate(cursorDataSource);
+		} else {
+			cursorDataSource = null;
+			jdbcTemplate = new JdbcTemplate(dataSource);
+		}
+		jdbcTemplate.setFetchSize(fetchSize);
+	}
+
+	@Override
+	public void destroy() {
+		if (cursorDataSource != null) {
+			cursorDataSource.close();
+		}
+	}
+
+	/**
+	 * Streams every appointment of the patient to out, in (date, time, id)
+	 * order. Returns the number of rows written.
+	 */
+	public long stream(Long patientId, OutputStream out) {
+		long[] count = new long[1];
+		jdbcTemplate.query(HISTORY_SQL, (RowCallbackHandler) rs -> {
+			write(out, toResponseDTO(rs));
+			count[0]++;
+		}, patientId);
+		flush(out);
+		logger.info("Streamed {} appointments for patient ID: {}", count[0], patientId);
+		return count[0];
+	}
+
+	private AppointmentResponseDTO toResponseDTO(ResultSet rs) throws SQLException {
+		return AppointmentResponseDTO.builder()
+				.appointmentId(rs.getLong("appointment_id"))
+				.appointmentDate(rs.getObject("appointment_date", LocalDate.class))
+				.appointmentTime(rs.getObject("appointment_time", LocalTime.class))
+				.status(rs.getString("status"))
+				.doctor(DoctorResponseDTO.builder()
+						.doctorId(rs.getLong("doctor_id"))
+						.name(rs.getString("name"))
+						.gender(rs.getString("gender"))
+						.roomNumber(rs.getString("room_number"))
+						.specialization(rs.getString("specialization"))
+						.qualification(rs.getString("qualification"))
+						.build())
+				.build();
+	}
+
+	private void write(OutputStream out, AppointmentResponseDTO dto) {
+		try {
+			out.write(objectMapper.writeValueAsBytes(dto));
+			out.write('\n');
+		} catch (IOException e) {
+			// Typically the client went away; abort the query.
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static void flush(OutputStream out) {
+		try {
+			out.flush();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+}
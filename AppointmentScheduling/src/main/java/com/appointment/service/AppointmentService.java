@@ -1,29 +1,54 @@
 package com.appointment.service;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import com.appointment.dto.AppointmentPageDTO;
 import com.appointment.dto.AppointmentRequestDTO;
 import com.appointment.dto.AppointmentResponseDTO;
 import com.appointment.dto.AppointmentUpdateDTO;
+import com.appointment.dto.AvailabilityMatrixDTO;
 import com.appointment.dto.AvailabilityResponseDTO;
 import com.appointment.dto.BookingResult;
+import com.appointment.dto.DoctorAvailabilityRowDTO;
 import com.appointment.dto.DoctorResponseDTO;
+import com.appointment.dto.OverdueCancellationSummary;
 import com.appointment.entity.Appointment;
 import com.appointment.entity.AppointmentStatus;
 import com.appointment.entity.WaitingAppointment;
+import com.appointment.exception.SlotConflictException;
 import com.appointment.repository.AppointmentRepository;
+import com.appointment.repository.AppointmentRepository.AppointmentSlot;
+import com.appointment.repository.AppointmentRepository.PatientAppointmentRow;
 import com.appointment.repository.WaitingAppointmentRepository;
+import com.appointment.template.SlotTemplate;
+import com.appointment.template.SlotTemplateRegistry;
+import com.example.demo.cache.ReferenceDataCache;
 import com.example.demo.entity.Role;
 import com.example.demo.entity.Doctor;
 import com.example.demo.entity.Patient;
@@ -47,36 +72,73 @@ public class AppointmentService {
 	@Autowired
 	private DoctorRepository doctorRepository;
 
-	// Hospital working hours and breaks.
-	private final LocalTime WORK_START = LocalTime.of(9, 30);
-	private final LocalTime WORK_END = LocalTime.of(18, 0);
-	private final LocalTime LUNCH_START = LocalTime.of(13, 0);
-	private final LocalTime LUNCH_END = LocalTime.of(14, 30);
-	private final LocalTime FOLLOWUP_ALLOWED_START = LocalTime.of(16, 0);
-	private final int SLOT_DURATION_MINUTES = 30;
+	@Autowired
+	private ReferenceDataCache referenceDataCache;
+
+	@Autowired
+	private SlotOccupancyIndex slotOccupancyIndex;
+
+	// Materialized doctor-day slots read by DoctorAvailability; kept in step with every booking change.
+	@Autowired
+	private DoctorDaySlotStore doctorDaySlotStore;
+
+	@Autowired
+	private SlotLockRegistry slotLockRegistry;
+
+	@Autowired
+	private WaitlistEngine waitlistEngine;
+
+	@Autowired
+	private OverdueCancellationJob overdueCancellationJob;
+
+	// Working hours, breaks and slot length per doctor-day.
+	@Autowired
+	private SlotTemplateRegistry slotTemplateRegistry;
+
+	// One transaction per doctor-day of a booking batch.
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	private final int BATCH_MAX_SIZE = 5000;
+	// A doctor-day of a batch is retried once after losing a slot race, then reported as busy.
+	private final int BATCH_DAY_ATTEMPTS = 2;
+	private final int MATRIX_MAX_DOCTORS = 200;
+	private final int MATRIX_MAX_DAYS = 31;
+	private final int HISTORY_PAGE_MAX_SIZE = 500;
 
 	// Utility Validation Methods
-	// Validate that a 30-minute slot fits completely within hospital hours.
-	private void validateHospitalHours(LocalTime startTime) {
-		if (startTime.isBefore(WORK_START) || startTime.plusMinutes(SLOT_DURATION_MINUTES).isAfter(WORK_END)) {
-			throw new RuntimeException(
-					"Appointment must be scheduled between 9:30 and 17:30 so that it finishes by 18:00.");
+	// Validate that a slot fits completely within the doctor-day's working hours.
+	private void validateHospitalHours(SlotTemplate template, LocalTime startTime) {
+		if (!template.fitsWorkingHours(startTime)) {
+			throw new RuntimeException("Appointment must be scheduled " + template.describeWorkingHours() + ".");
 		}
 	}
 
 	// For regular(non-follow-up)appointments.
-	private void validateRegularAppointment(LocalTime startTime) {
+	private void validateRegularAppointment(SlotTemplate template, LocalTime startTime) {
 
-		if (startTime.isBefore(LUNCH_END) && startTime.plusMinutes(SLOT_DURATION_MINUTES).isAfter(LUNCH_START)) {
-			throw new RuntimeException("Regular appointments cannot overlap the lunch break (13:00 to 14:30).");
-		}
-		if (!startTime.isBefore(FOLLOWUP_ALLOWED_START)) {
-			logger.warn("Regular appointments not allowed between 16:00 and 18:00 at {}", startTime);
+		if (template.overlapsBreak(startTime)) {
 			throw new RuntimeException(
-					"Regular appointments are not allowed between 16:00 and 18:00. For that period, select follow-up.");
+					"Regular appointments cannot overlap the " + template.describeBreak(startTime) + ".");
+		}
+		if (template.isFollowUpOnly(startTime)) {
+			logger.warn("Regular appointments not allowed {} at {}", template.describeFollowUpOnly(), startTime);
+			throw new RuntimeException("Regular appointments are not allowed " + template.describeFollowUpOnly()
+					+ ". For that period, select follow-up.");
 		}
 	}
 
+	// Check for overlaps with existing appointments of the doctor-day.
+	private boolean overlapsExisting(SlotTemplate template, List<Appointment> existingAppointments,
+			LocalTime startTime) {
+		for (Appointment a : existingAppointments) {
+			if (template.overlaps(startTime, a.getAppointmentTime())) {
+				return true;
+			}
+		}
+		return false;
+	}
+
 	// Booking Methods
 	@Transactional
 	public BookingResult bookOrWaitAppointment(AppointmentRequestDTO request) {
@@ -93,12 +155,16 @@ public class AppointmentService {
 			logger.error("Booking failed: Cannot book an appointment in the past.");
 			throw new IllegalArgumentException("Cannot book an appointment in the past.");
 		}
+		// Serialize only requests for this doctor and slot; taken before any read so
+		// the overlap check below sees a competing booking once it has committed.
+		slotLockRegistry.lockForTransaction(doctorId, appointmentDate, appointmentTime);
 		BookingResult result = new BookingResult();
 
-		// Retrieve patient and doctor using their dedicated repositories.
-		Patient patient = patientRepository.findById(patientId)
+		// Retrieve patient and doctor through the reference data cache.
+		Patient patient = referenceDataCache.findPatient(patientId)
 				.orElseThrow(() -> new RuntimeException("Patient not found"));
-		Doctor doctor = doctorRepository.findById(doctorId).orElseThrow(() -> new RuntimeException("Doctor not found"));
+		Doctor doctor = referenceDataCache.findDoctor(doctorId)
+				.orElseThrow(() -> new RuntimeException("Doctor not found"));
 
 		LocalDate date = appointmentDateTime.toLocalDate();
 		LocalTime startTime = appointmentDateTime.toLocalTime();
@@ -116,33 +182,14 @@ public class AppointmentService {
 
 		// Check if the patient is already on the waiting list for the same doctor and
 		// slot.
-		List<WaitingAppointment> existingWaiting = waitingAppointmentRepository.findByDoctorAndPatient(doctor, patient);
-		if (existingWaiting != null && !existingWaiting.isEmpty()) {
-			boolean duplicateWaiting = existingWaiting.stream()
-					.anyMatch(wait -> wait.getPreferredTime().toLocalDate().equals(date)
-							&& wait.getPreferredTime().toLocalTime().equals(startTime));
-			if (duplicateWaiting) {
-				logger.warn("Duplicate waiting detected for patient {} with doctor {} at {}", patientId, doctorId,
-						startTime);
-				throw new RuntimeException("Duplicate waiting: You are already on the waiting list for this slot.");
-			}
-		}
+		rejectDuplicateWaiting(doctorId, patientId, appointmentDateTime);
 
-		validateHospitalHours(startTime);
-		validateRegularAppointment(startTime);
+		SlotTemplate template = slotTemplateRegistry.forDoctorDay(doctorId, date);
+		validateHospitalHours(template, startTime);
+		validateRegularAppointment(template, startTime);
 
-		LocalTime endTime = startTime.plusMinutes(SLOT_DURATION_MINUTES);
 		List<Appointment> existingAppointments = appointmentRepository.findByDoctorAndAppointmentDate(doctor, date);
-		boolean slotAvailable = true;
-		// Check for overlaps with existing appointments.
-		for (Appointment a : existingAppointments) {
-			LocalTime exStart = a.getAppointmentTime();
-			LocalTime exEnd = exStart.plusMinutes(SLOT_DURATION_MINUTES);
-			if (startTime.isBefore(exEnd) && exStart.isBefore(endTime)) {
-				slotAvailable = false;
-				break;
-			}
-		}
+		boolean slotAvailable = !overlapsExisting(template, existingAppointments, startTime);
 		if (slotAvailable) {
 			logger.info("Slot available. Booking appointment for patient {} with doctor {} at {}", patientId, doctorId,
 					startTime);
@@ -155,6 +202,8 @@ public class AppointmentService {
 			appointment.setStatus(AppointmentStatus.BOOKED);
 			// appointment.setFollowUp(followUp);
 			Appointment saved = appointmentRepository.saveAndFlush(appointment);
+			slotOccupancyIndex.markBooked(doctorId, date, startTime);
+			doctorDaySlotStore.booked(doctorId, date, startTime);
 			result.setBooked(true);
 			result.setAppointment(saved);
 			result.setMessage("Appointment booked successfully.");
@@ -164,6 +213,7 @@ public class AppointmentService {
 			if (waitingRecords != null && !waitingRecords.isEmpty()) {
 				waitingAppointmentRepository.deleteAll(waitingRecords);
 				waitingAppointmentRepository.flush();
+				waitlistEngine.removed(waitingRecords);
 				logger.info("Removed waiting records for patient {} with doctor {}", patientId, doctorId);
 			}
 		} else {
@@ -179,6 +229,243 @@ public class AppointmentService {
 		return result;
 	}
 
+	// Called when the insert in bookOrWaitAppointment lost a race on the
+	// appointments unique key (e.g. against another instance); the slot is taken,
+	// so the patient goes to the waiting list as if the overlap check had failed.
+	@Transactional
+	public BookingResult waitOnConflict(AppointmentRequestDTO request) {
+		logger.warn("Slot conflict for doctor {} on {} at {}. Adding patient {} to the waiting list",
+				request.getDoctorId(), request.getAppointmentDate(), request.getAppointmentTime(),
+				request.getPatientId());
+		LocalDateTime slot = LocalDateTime.of(request.getAppointmentDate(), request.getAppointmentTime());
+		rejectDuplicateWaiting(request.getDoctorId(), request.getPatientId(), slot);
+		WaitingAppointment waiting = addToWaitingList(request.getPatientId(), request.getDoctorId(), slot);
+		BookingResult result = new BookingResult();
+		result.setBooked(false);
+		result.setWaitingAppointment(waiting);
+		result.setMessage("Requested slot is full. You have been added to the waiting list automatically.");
+		return result;
+	}
+
+	private void rejectDuplicateWaiting(Long doctorId, Long patientId, LocalDateTime slot) {
+		if (waitlistEngine.isWaiting(doctorId, patientId, slot)) {
+			logger.warn("Duplicate waiting detected for patient {} with doctor {} at {}", patientId, doctorId,
+					slot.toLocalTime());
+			throw new RuntimeException("Duplicate waiting: You are already on the waiting list for this slot.");
+		}
+	}
+
+	// Books a batch of requests. Requests are grouped by doctor and date so that
+	// each group costs one appointment query, one waiting-list query and one
+	// insert batch; patients and doctors are fetched once for the whole batch.
+	// Each doctor-day is booked in its own transaction, holding only that day's
+	// slot locks (at most one per 30-minute bucket of the day), so a large import
+	// never holds more than a few stripes and cannot stall every other booking.
+	// Each request gets its own BookingResult, in input order, and a request that
+	// fails validation does not fail the rest of the batch.
+	public List<BookingResult> bookOrWaitAppointments(List<AppointmentRequestDTO> requests) {
+		logger.info("Attempting to book a batch of {} appointments", requests.size());
+		if (requests.size() > BATCH_MAX_SIZE) {
+			throw new IllegalArgumentException("A booking batch cannot exceed " + BATCH_MAX_SIZE + " requests.");
+		}
+		BookingResult[] results = new BookingResult[requests.size()];
+		LocalDateTime now = LocalDateTime.now();
+
+		// Reject incomplete or past requests up front and group the rest by doctor-day.
+		Map<Long, Map<LocalDate, List<Integer>>> groups = new LinkedHashMap<>();
+		for (int i = 0; i < requests.size(); i++) {
+			AppointmentRequestDTO request = requests.get(i);
+			if (request == null || request.getPatientId() == null || request.getDoctorId() == null
+					|| request.getAppointmentDate() == null || request.getAppointmentTime() == null) {
+				results[i] = failedBooking("Patient ID, doctor ID, appointment date and time are required.");
+				continue;
+			}
+			if (LocalDateTime.of(request.getAppointmentDate(), request.getAppointmentTime()).isBefore(now)) {
+				results[i] = failedBooking("Cannot book an appointment in the past.");
+				continue;
+			}
+			groups.computeIfAbsent(request.getDoctorId(), d -> new LinkedHashMap<>())
+					.computeIfAbsent(request.getAppointmentDate(), d -> new ArrayList<>()).add(i);
+		}
+
+		Set<Long> patientIds = new HashSet<>();
+		groups.values().forEach(byDate -> byDate.values()
+				.forEach(indexes -> indexes.forEach(i -> patientIds.add(requests.get(i).getPatientId()))));
+		Map<Long, Patient> patients = patientRepository.findAllById(patientIds).stream()
+				.collect(Collectors.toMap(Patient::getPatientId, p -> p));
+		Map<Long, Doctor> doctors = doctorRepository.findAllById(groups.keySet()).stream()
+				.collect(Collectors.toMap(Doctor::getDoctorId, d -> d));
+
+		for (Map.Entry<Long, Map<LocalDate, List<Integer>>> doctorGroup : groups.entrySet()) {
+			Doctor doctor = doctors.get(doctorGroup.getKey());
+			for (Map.Entry<LocalDate, List<Integer>> dayGroup : doctorGroup.getValue().entrySet()) {
+				if (doctor == null) {
+					dayGroup.getValue().forEach(i -> results[i] = failedBooking("Doctor not found"));
+					continue;
+				}
+				bookDoctorDayInTransaction(doctor, dayGroup.getKey(), dayGroup.getValue(), requests, patients,
+						results);
+			}
+		}
+
+		logger.info("Batch booking completed: {} requests processed", results.length);
+		return Arrays.asList(results);
+	}
+
+	// Books one doctor-day of a batch in its own transaction. If another booking
+	// takes one of its slots first (active-slot key violation), the day is rolled
+	// back and retried; the retry reads the competing appointment and wait-lists
+	// the affected request. Any other failure (a lock timeout, too many slots to
+	// lock, an unexpected error) fails only this day's requests: earlier days are
+	// already committed and later days still run, so the caller gets a result
+	// for every request.
+	private void bookDoctorDayInTransaction(Doctor doctor, LocalDate date, List<Integer> indexes,
+			List<AppointmentRequestDTO> requests, Map<Long, Patient> patients, BookingResult[] results) {
+		List<SlotLockRegistry.Slot> slots = indexes.stream().map(i -> new SlotLockRegistry.Slot(doctor.getDoctorId(),
+				date, requests.get(i).getAppointmentTime())).toList();
+		for (int attempt = 1;; attempt++) {
+			try {
+				transactionTemplate.executeWithoutResult(status -> {
+					// The day's slots are locked before its first read.
+					slotLockRegistry.lockForTransaction(slots);
+					bookDoctorDay(doctor, date, indexes, requests, patients, results);
+					appointmentRepository.flush();
+					waitingAppointmentRepository.flush();
+				});
+				return;
+			} catch (RuntimeException e) {
+				if (!SlotConflicts.isActiveSlotConflict(e)) {
+					logger.error("Batch booking failed for doctor {} on {}", doctor.getDoctorId(), date, e);
+					indexes.forEach(i -> results[i] = failedBooking("Booking failed. Please try again later."));
+					return;
+				}
+				if (attempt >= BATCH_DAY_ATTEMPTS) {
+					logger.warn("Slot conflicts persist for doctor {} on {}; {} requests not booked",
+							doctor.getDoctorId(), date, indexes.size());
+					indexes.forEach(i -> results[i] = failedBooking("The requested slot is busy. Please try again."));
+					return;
+				}
+				logger.info("Slot conflict for doctor {} on {}; retrying {} requests", doctor.getDoctorId(), date,
+						indexes.size());
+			}
+		}
+	}
+
+	// Books one doctor-day of a batch against a single snapshot of its appointments.
+	private void bookDoctorDay(Doctor doctor, LocalDate date, List<Integer> indexes,
+			List<AppointmentRequestDTO> requests, Map<Long, Patient> patients, BookingResult[] results) {
+		List<Appointment> dayAppointments = new ArrayList<>(
+				appointmentRepository.findByDoctorAndAppointmentDate(doctor, date));
+		SlotTemplate template = slotTemplateRegistry.forDoctorDay(doctor.getDoctorId(), date);
+
+		// Entities are matched to their request by position; their @Data hashCode is not usable as a key.
+		List<Appointment> toBook = new ArrayList<>();
+		List<Integer> bookedIndexes = new ArrayList<>();
+		List<WaitingAppointment> toWait = new ArrayList<>();
+		List<Integer> waitingIndexes = new ArrayList<>();
+		Map<Long, Patient> bookedPatients = new HashMap<>();
+
+		for (int i : indexes) {
+			AppointmentRequestDTO request = requests.get(i);
+			LocalTime startTime = request.getAppointmentTime();
+			Patient patient = patients.get(request.getPatientId());
+			if (patient == null) {
+				results[i] = failedBooking("Patient not found");
+				continue;
+			}
+			boolean duplicateAppointment = dayAppointments.stream()
+					.anyMatch(a -> a.getPatient().getPatientId().equals(patient.getPatientId())
+							&& a.getAppointmentTime().equals(startTime));
+			if (duplicateAppointment) {
+				results[i] = failedBooking("Duplicate booking: an appointment for this slot already exists.");
+				continue;
+			}
+			LocalDateTime slot = LocalDateTime.of(date, startTime);
+			boolean duplicateWaiting = waitlistEngine.isWaiting(doctor.getDoctorId(), patient.getPatientId(), slot)
+					|| toWait.stream().anyMatch(w -> w.getPatient().getPatientId().equals(patient.getPatientId())
+							&& w.getPreferredTime().equals(slot));
+			if (duplicateWaiting) {
+				results[i] = failedBooking("Duplicate waiting: You are already on the waiting list for this slot.");
+				continue;
+			}
+			try {
+				validateHospitalHours(template, startTime);
+				validateRegularAppointment(template, startTime);
+			} catch (RuntimeException e) {
+				results[i] = failedBooking(e.getMessage());
+				continue;
+			}
+
+			boolean slotAvailable = !overlapsExisting(template, dayAppointments, startTime);
+			if (slotAvailable) {
+				Appointment appointment = new Appointment();
+				appointment.setPatient(patient);
+				appointment.setDoctor(doctor);
+				appointment.setAppointmentDate(date);
+				appointment.setAppointmentTime(startTime);
+				appointment.setStatus(AppointmentStatus.BOOKED);
+				// Later requests in the batch must see this slot as taken.
+				dayAppointments.add(appointment);
+				toBook.add(appointment);
+				bookedIndexes.add(i);
+				bookedPatients.put(patient.getPatientId(), patient);
+			} else {
+				if (!patient.getUser().getRole().equals(Role.PATIENT)) {
+					results[i] = failedBooking("The provided patientId does not belong to a patient.");
+					continue;
+				}
+				if (!doctor.getUser().getRole().equals(Role.DOCTOR)) {
+					results[i] = failedBooking("The provided doctorId does not belong to a doctor.");
+					continue;
+				}
+				WaitingAppointment waiting = new WaitingAppointment();
+				waiting.setPatient(patient);
+				waiting.setDoctor(doctor);
+				waiting.setPreferredTime(slot);
+				toWait.add(waiting);
+				waitingIndexes.add(i);
+			}
+		}
+
+		// Booked patients leave this doctor's waiting list, as in bookOrWaitAppointment.
+		if (!bookedPatients.isEmpty()) {
+			waitingAppointmentRepository.deleteByDoctorAndPatientIn(doctor, bookedPatients.values());
+			waitlistEngine.evictDoctor(doctor.getDoctorId());
+		}
+		List<Appointment> saved = appointmentRepository.saveAll(toBook);
+		for (int k = 0; k < saved.size(); k++) {
+			Appointment appointment = saved.get(k);
+			slotOccupancyIndex.markBooked(doctor.getDoctorId(), date, appointment.getAppointmentTime());
+			BookingResult result = new BookingResult();
+			result.setBooked(true);
+			result.setAppointment(appointment);
+			result.setMessage("Appointment booked successfully.");
+			results[bookedIndexes.get(k)] = result;
+		}
+		if (!saved.isEmpty()) {
+			doctorDaySlotStore.booked(doctor.getDoctorId(), date,
+					saved.stream().map(Appointment::getAppointmentTime).toList());
+		}
+		List<WaitingAppointment> savedWaiting = waitingAppointmentRepository.saveAll(toWait);
+		for (int k = 0; k < savedWaiting.size(); k++) {
+			waitlistEngine.added(savedWaiting.get(k));
+			BookingResult result = new BookingResult();
+			result.setBooked(false);
+			result.setWaitingAppointment(savedWaiting.get(k));
+			result.setMessage("Requested slot is full. You have been added to the waiting list automatically.");
+			results[waitingIndexes.get(k)] = result;
+		}
+		logger.info("Booked {} and wait-listed {} requests for doctor {} on {}", toBook.size(), toWait.size(),
+				doctor.getDoctorId(), date);
+	}
+
+	private BookingResult failedBooking(String message) {
+		BookingResult result = new BookingResult();
+		result.setBooked(false);
+		result.setMessage(message);
+		return result;
+	}
+
 	@Transactional
 	public Appointment partialUpdateAppointment(Long appointmentId, AppointmentUpdateDTO updateDTO) {
 		logger.info("Updating appointment {} with provided details", appointmentId);
@@ -190,6 +477,19 @@ public class AppointmentService {
 		LocalDate oldDate = appointment.getAppointmentDate();
 		LocalTime oldTime = appointment.getAppointmentTime();
 
+		// A booked appointment that changes slot holds the old and the new slot
+		// until commit, so that neither the move nor the waiting-list promotion
+		// into the vacated slot races a booking made through this instance.
+		if (appointment.getStatus() == AppointmentStatus.BOOKED) {
+			LocalDate targetDate = updateDTO.getAppointmentDate() != null ? updateDTO.getAppointmentDate() : oldDate;
+			LocalTime targetTime = updateDTO.getAppointmentTime() != null ? updateDTO.getAppointmentTime() : oldTime;
+			if (!targetDate.equals(oldDate) || !targetTime.equals(oldTime)) {
+				Long doctorId = appointment.getDoctor().getDoctorId();
+				slotLockRegistry.lockForTransaction(List.of(new SlotLockRegistry.Slot(doctorId, oldDate, oldTime),
+						new SlotLockRegistry.Slot(doctorId, targetDate, targetTime)));
+			}
+		}
+
 		// 2. Update only the provided fields using explicit checks.
 		if (updateDTO.getAppointmentDate() != null) {
 			logger.debug("Updating appointment {} date from {} to {}", appointmentId, oldDate,
@@ -212,22 +512,31 @@ public class AppointmentService {
 			throw new IllegalArgumentException("The appointment date/time cannot be in the past.");
 		}
 
-		validateHospitalHours(newTime);
-		validateRegularAppointment(newTime);
+		SlotTemplate template = slotTemplateRegistry.forDoctorDay(appointment.getDoctor().getDoctorId(), newDate);
+		validateHospitalHours(template, newTime);
+		validateRegularAppointment(template, newTime);
 
 		// 4. Save and flush the updated appointment.
-		Appointment updatedAppointment = appointmentRepository.saveAndFlush(appointment);
+		Appointment updatedAppointment = saveMoved(appointment,
+				"The requested slot has just been booked. Please choose another slot.");
 		logger.info("Appointment {} updated successfully", appointmentId);
 
-		// 5. If the slot has changed, then the old slot is now freed.
-		if (!oldDate.equals(newDate) || !oldTime.equals(newTime)) {
+		// 5. If a booked appointment changed slot, then the old slot is now freed.
+		// Cancelled and completed appointments do not hold a slot, so moving them
+		// leaves the index, the booked masks and the waiting list alone.
+		boolean moved = !oldDate.equals(newDate) || !oldTime.equals(newTime);
+		if (moved && appointment.getStatus() == AppointmentStatus.BOOKED) {
+			Long doctorId = appointment.getDoctor().getDoctorId();
+			slotOccupancyIndex.markFreed(doctorId, oldDate, oldTime);
+			slotOccupancyIndex.markBooked(doctorId, newDate, newTime);
+			doctorDaySlotStore.freed(doctorId, oldDate, oldTime);
+			doctorDaySlotStore.booked(doctorId, newDate, newTime);
 			// The old slot is represented by oldDate + oldTime.
 			LocalDateTime oldSlot = LocalDateTime.of(oldDate, oldTime);
-			// Look for any waiting candidate for the exact same old slot.
-			List<WaitingAppointment> waitingCandidates = waitingAppointmentRepository
-					.findByDoctorAndPreferredTimeBetween(appointment.getDoctor(), oldSlot, oldSlot);
-			if (waitingCandidates != null && !waitingCandidates.isEmpty()) {
-				WaitingAppointment candidate = waitingCandidates.get(0);
+			// Promote the longest-waiting candidate for the exact same old slot.
+			Optional<WaitingAppointment> nextWaiting = waitlistEngine.promoteNext(doctorId, oldSlot, oldSlot);
+			if (nextWaiting.isPresent()) {
+				WaitingAppointment candidate = nextWaiting.get();
 				// Create a new appointment for the waiting candidate using the old (vacated)
 				// slot.
 				Appointment reassignedAppointment = new Appointment();
@@ -236,9 +545,10 @@ public class AppointmentService {
 				reassignedAppointment.setAppointmentDate(oldDate);
 				reassignedAppointment.setAppointmentTime(oldTime);
 				reassignedAppointment.setStatus(AppointmentStatus.BOOKED);
-				appointmentRepository.saveAndFlush(reassignedAppointment);
-				// Remove the candidate from the waiting list.
-				waitingAppointmentRepository.delete(candidate);
+				saveMoved(reassignedAppointment,
+						"The previous slot was booked while it was being reassigned. Please try again.");
+				slotOccupancyIndex.markBooked(doctorId, oldDate, oldTime);
+				doctorDaySlotStore.booked(doctorId, oldDate, oldTime);
 				logger.info("Reassigned old slot {} {} to waiting patient {}", oldDate, oldTime,
 						candidate.getPatient().getUser().getName());
 			}
@@ -247,49 +557,109 @@ public class AppointmentService {
 		return updatedAppointment;
 	}
 
+	// Saves an appointment that takes a slot outside bookOrWaitAppointment. Another
+	// instance may have taken the slot, which the active-slot key reports as a
+	// conflict rather than a server error.
+	private Appointment saveMoved(Appointment appointment, String conflictMessage) {
+		try {
+			return appointmentRepository.saveAndFlush(appointment);
+		} catch (DataIntegrityViolationException e) {
+			if (!SlotConflicts.isActiveSlotConflict(e)) {
+				throw e;
+			}
+			throw new SlotConflictException(conflictMessage);
+		}
+	}
+
 	// Convert Appointment entities to AppointmentResponseDTOs.
 	public List<AppointmentResponseDTO> getAppointmentResponseDTOsByPatient(Long patientId) {
 	    logger.info("Fetching appointment details for patient ID: {}", patientId);
 
-	    List<Appointment> appointments = appointmentRepository.findByPatient_PatientId(patientId);
+	    // One joined projection query; no Appointment, Patient or User entities are loaded.
+	    List<PatientAppointmentRow> rows = appointmentRepository.findHistoryByPatientId(patientId);
 
-	    if (appointments.isEmpty()) {
+	    if (rows.isEmpty()) {
 	        logger.warn("No appointments found for patient ID: {}", patientId);
 	    }
 
-	    List<AppointmentResponseDTO> responseDTOs = appointments.stream()
-	        .map(a -> AppointmentResponseDTO.builder()
-	            .appointmentId(a.getAppointmentId())
-	            .appointmentDate(a.getAppointmentDate())
-	            .appointmentTime(a.getAppointmentTime())
-	            .status(a.getStatus().name())
-	            .doctor(
-	                DoctorResponseDTO.builder()
-	                    .doctorId(a.getDoctor().getDoctorId())
-	                    .name(a.getDoctor().getUser() != null 
-	                        ? a.getDoctor().getUser().getName() 
-	                        : null)
-	                    .gender(a.getDoctor().getUser() != null 
-	                        ? a.getDoctor().getUser().getGender() 
-	                        : null)
-	                    .roomNumber(a.getDoctor().getRoomNumber())
-	                    .specialization(a.getDoctor().getSpecialization())
-	                    .qualification(a.getDoctor().getQualification())
-	                    .build()
-	            )
-	            .build())
+	    List<AppointmentResponseDTO> responseDTOs = rows.stream()
+	        .map(this::toResponseDTO)
 	        .collect(Collectors.toList());
 
 	    logger.info("Successfully retrieved {} appointments for patient ID: {}", responseDTOs.size(), patientId);
 	    return responseDTOs;
 	}
 
+	// One page of a patient's history, ordered by (date, time, id). The cursor is the
+	// nextCursor of the previous page; null starts from the beginning.
+	public AppointmentPageDTO getAppointmentPageByPatient(Long patientId, String cursor, int size) {
+	    logger.info("Fetching appointment page for patient ID: {} (size {})", patientId, size);
+		if (size < 1 || size > HISTORY_PAGE_MAX_SIZE) {
+			throw new RuntimeException("Page size must be between 1 and " + HISTORY_PAGE_MAX_SIZE + ".");
+		}
+		// Read one extra row to know whether another page follows.
+		PageRequest limit = PageRequest.of(0, size + 1);
+		List<PatientAppointmentRow> rows;
+		if (cursor == null || cursor.isBlank()) {
+			rows = appointmentRepository.findHistoryByPatientId(patientId, limit);
+		} else {
+			HistoryCursor after = HistoryCursor.decode(cursor);
+			rows = appointmentRepository.findHistoryByPatientIdAfter(patientId, after.date(), after.time(),
+					after.appointmentId(), limit);
+		}
+
+		String nextCursor = null;
+		if (rows.size() > size) {
+			rows = rows.subList(0, size);
+			PatientAppointmentRow last = rows.get(size - 1);
+			nextCursor = new HistoryCursor(last.getAppointmentDate(), last.getAppointmentTime(), last.getAppointmentId())
+					.encode();
+		}
+		List<AppointmentResponseDTO> appointments = rows.stream().map(this::toResponseDTO).collect(Collectors.toList());
+		return new AppointmentPageDTO(appointments, nextCursor);
+	}
+
+	AppointmentResponseDTO toResponseDTO(PatientAppointmentRow r) {
+		return AppointmentResponseDTO.builder()
+				.appointmentId(r.getAppointmentId())
+				.appointmentDate(r.getAppointmentDate())
+				.appointmentTime(r.getAppointmentTime())
+				.status(r.getStatus().name())
+				.doctor(DoctorResponseDTO.builder()
+						.doctorId(r.getDoctorId())
+						.name(r.getDoctorName())
+						.gender(r.getDoctorGender())
+						.roomNumber(r.getRoomNumber())
+						.specialization(r.getSpecialization())
+						.qualification(r.getQualification())
+						.build())
+				.build();
+	}
+
+	// Position of the last row of a history page, sent to clients as URL-safe base64.
+	private record HistoryCursor(LocalDate date, LocalTime time, Long appointmentId) {
+
+		String encode() {
+			String key = date + "|" + time + "|" + appointmentId;
+			return Base64.getUrlEncoder().withoutPadding().encodeToString(key.getBytes(StandardCharsets.UTF_8));
+		}
+
+		static HistoryCursor decode(String cursor) {
+			try {
+				String[] key = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|");
+				return new HistoryCursor(LocalDate.parse(key[0]), LocalTime.parse(key[1]), Long.valueOf(key[2]));
+			} catch (RuntimeException e) {
+				throw new RuntimeException("Invalid cursor", e);
+			}
+		}
+	}
+
 	@Transactional
 	public WaitingAppointment addToWaitingList(Long patientId, Long doctorId, LocalDateTime preferredTime) {
 	    logger.info("Adding patient {} to waiting list for doctor {} at {}", patientId, doctorId, preferredTime);
-		Patient patient = patientRepository.findById(patientId)
+		Patient patient = referenceDataCache.findPatient(patientId)
 				.orElseThrow(() -> new RuntimeException("Patient not found"));
-		Doctor doctor = doctorRepository.findById(doctorId)
+		Doctor doctor = referenceDataCache.findDoctor(doctorId)
 				.orElseThrow(() -> new RuntimeException("Doctor not found"));
 
 		if (!patient.getUser().getRole().equals(Role.PATIENT)) {
@@ -307,6 +677,7 @@ public class AppointmentService {
 		waiting.setPreferredTime(preferredTime);
 
 		WaitingAppointment savedWaiting = waitingAppointmentRepository.saveAndFlush(waiting);
+		waitlistEngine.added(savedWaiting);
 	    logger.info("Successfully added patient {} to waiting list for doctor {} at {}", patientId, doctorId, preferredTime);
 
 	    return savedWaiting;
@@ -327,32 +698,85 @@ public class AppointmentService {
 		LocalDateTime startWindow = apptDateTime.minusMinutes(15);
 		LocalDateTime endWindow = apptDateTime.plusMinutes(15);
 
-		// Look for waiting appointments for the same doctor within this window.
-		List<WaitingAppointment> waitingList = waitingAppointmentRepository
-				.findByDoctorAndPreferredTimeBetween(appointment.getDoctor(), startWindow, endWindow);
+		// Promote the longest-waiting patient for the same doctor within this window;
+		// its waiting record is removed by the engine.
+		Optional<WaitingAppointment> nextWaiting = waitlistEngine
+				.promoteNext(appointment.getDoctor().getDoctorId(), startWindow, endWindow);
 
-		// If there are waiting appointments, reassign the appointment.
-		if (waitingList != null && !waitingList.isEmpty()) {
-			WaitingAppointment waiting = waitingList.get(0);
+		// If someone is waiting, reassign the appointment.
+		if (nextWaiting.isPresent()) {
+			WaitingAppointment waiting = nextWaiting.get();
 			appointment.setPatient(waiting.getPatient());
 			appointment.setStatus(AppointmentStatus.BOOKED);
 		} else {
 			appointment.setStatus(AppointmentStatus.CANCELLED);
+			slotOccupancyIndex.markFreed(appointment.getDoctor().getDoctorId(), appointment.getAppointmentDate(),
+					appointment.getAppointmentTime());
+			doctorDaySlotStore.freed(appointment.getDoctor().getDoctorId(), appointment.getAppointmentDate(),
+					appointment.getAppointmentTime());
 		}
 
 		Appointment updatedAppointment = appointmentRepository.save(appointment);
-
-		// Cleanup: remove waiting records if present.
-		if (waitingList != null && !waitingList.isEmpty()) {
-			waitingAppointmentRepository.deleteAll(waitingList);
-			waitingAppointmentRepository.flush();
-			logger.info("Removed {} waiting records after appointment cancellation.", waitingList.size());
-		}
 		logger.info("Cancelled appointment {}. New status: {}", appointmentId, updatedAppointment.getStatus());
 		return updatedAppointment;
 
 	}
 
+	/**
+	 * Promotes waiting patients after booked appointments of a doctor-day were
+	 * cancelled in bulk because the doctor blocked their slots. A vacated slot
+	 * stays blocked, so instead of handing it over as cancelAppointment does,
+	 * the longest-waiting patient within 15 minutes of it is booked into the
+	 * open slot of the day nearest to it (bookable, not blocked, not booked and
+	 * not past). Call it after the bulk cancellation, in the same transaction.
+	 */
+	@Transactional
+	public List<Appointment> promoteWaitingAfterBlock(Long doctorId, LocalDate date, Collection<LocalTime> vacated,
+			Collection<LocalTime> blocked) {
+		SlotTemplate template = slotTemplateRegistry.forDoctorDay(doctorId, date);
+		long taken = template.maskOf(blocked);
+		for (AppointmentSlot slot : appointmentRepository.findSlotsByDoctorAndDateAndStatus(doctorId, date,
+				AppointmentStatus.BOOKED)) {
+			taken |= template.coveredSlots(slot.getAppointmentTime());
+		}
+		LocalDateTime now = LocalDateTime.now();
+		List<LocalTime> open = template.slotsOf(template.getBookableMask() & ~taken).stream()
+				.filter(time -> !template.isFollowUpOnly(time) && date.atTime(time).isAfter(now))
+				.collect(Collectors.toCollection(ArrayList::new));
+
+		List<Appointment> promoted = new ArrayList<>();
+		for (LocalTime vacatedTime : vacated.stream().sorted().toList()) {
+			if (open.isEmpty()) {
+				break;
+			}
+			LocalDateTime vacatedSlot = date.atTime(vacatedTime);
+			Optional<WaitingAppointment> nextWaiting = waitlistEngine.promoteNext(doctorId,
+					vacatedSlot.minusMinutes(15), vacatedSlot.plusMinutes(15));
+			if (nextWaiting.isEmpty()) {
+				continue;
+			}
+			LocalTime time = open.stream().min(Comparator
+					.comparingInt(t -> Math.abs(t.toSecondOfDay() - vacatedTime.toSecondOfDay()))).get();
+			open.remove(time);
+			slotLockRegistry.lockForTransaction(doctorId, date, time);
+
+			WaitingAppointment waiting = nextWaiting.get();
+			Appointment appointment = new Appointment();
+			appointment.setDoctor(waiting.getDoctor());
+			appointment.setPatient(waiting.getPatient());
+			appointment.setAppointmentDate(date);
+			appointment.setAppointmentTime(time);
+			appointment.setStatus(AppointmentStatus.BOOKED);
+			promoted.add(saveMoved(appointment,
+					"An open slot was booked while a waiting patient was being promoted. Please try again."));
+			slotOccupancyIndex.markBooked(doctorId, date, time);
+			doctorDaySlotStore.booked(doctorId, date, time);
+			logger.info("Promoted waiting record {} of doctor {} from blocked slot {} {} to {}", waiting.getId(),
+					doctorId, date, vacatedTime, time);
+		}
+		return promoted;
+	}
+
 	public AvailabilityResponseDTO getAvailability(Long doctorId, LocalDate date) {
 		 logger.info("Checking availability for doctor {} on {}", doctorId, date);
 		AvailabilityResponseDTO response = new AvailabilityResponseDTO();
@@ -365,62 +789,96 @@ public class AppointmentService {
 
 	}
 
-	public List<LocalTime> getAvailableTimeSlots(Long doctorId, LocalDate date) {
-	    logger.info("Fetching available time slots for doctor {} on {}", doctorId, date);
-		Doctor doctor = doctorRepository.findById(doctorId).orElseThrow(() -> new RuntimeException("Doctor not found"));
-
-		List<LocalTime> slots = new ArrayList<>();
-		LocalTime slotTime = WORK_START;
-		while (!slotTime.plusMinutes(30).isAfter(WORK_END)) {
-			// Exclude slots overlapping lunch.
-			if (!(slotTime.isBefore(LUNCH_END) && slotTime.plusMinutes(30).isAfter(LUNCH_START))) {
-				slots.add(slotTime);
+	// Free slots of several doctors over a date range, answered with at most one
+	// doctor lookup and one grouped appointment query. Slots already in the past
+	// are reported as taken, so earliestAvailable is always bookable.
+	public AvailabilityMatrixDTO getAvailabilityMatrix(List<Long> doctorIds, LocalDate from, LocalDate to) {
+		logger.info("Building availability matrix for {} doctors from {} to {}", doctorIds.size(), from, to);
+		if (doctorIds.isEmpty() || doctorIds.size() > MATRIX_MAX_DOCTORS) {
+			throw new RuntimeException("Between 1 and " + MATRIX_MAX_DOCTORS + " doctors can be requested at once.");
+		}
+		if (to.isBefore(from) || ChronoUnit.DAYS.between(from, to) >= MATRIX_MAX_DAYS) {
+			throw new RuntimeException("The date range must cover between 1 and " + MATRIX_MAX_DAYS + " days.");
+		}
+		List<Long> ids = doctorIds.stream().distinct().toList();
+		Set<Long> known = doctorRepository.findAllById(ids).stream().map(Doctor::getDoctorId)
+				.collect(Collectors.toSet());
+		for (Long doctorId : ids) {
+			if (!known.contains(doctorId)) {
+				logger.error("Doctor {} not found", doctorId);
+				throw new RuntimeException("Doctor not found");
 			}
-			slotTime = slotTime.plusMinutes(30);
 		}
 
-		List<Appointment> appointments = appointmentRepository.findByDoctorAndAppointmentDate(doctor, date);
-		for (Appointment a : appointments) {
-			if (a.getStatus() == AppointmentStatus.BOOKED) {
-				slots.remove(a.getAppointmentTime());
+		Map<Long, long[]> freeMasks = slotOccupancyIndex.freeSlotMasks(ids, from, to);
+		LocalDate today = LocalDate.now();
+		LocalTime now = LocalTime.now();
+
+		// Slot grids of the templates that occur in the matrix, by template name.
+		Map<String, List<LocalTime>> templates = new LinkedHashMap<>();
+		SlotTemplate defaultTemplate = slotTemplateRegistry.getDefaultTemplate();
+		templates.put(defaultTemplate.getName(), defaultTemplate.getSlotTimes());
+		List<DoctorAvailabilityRowDTO> rows = new ArrayList<>(ids.size());
+		for (Long doctorId : ids) {
+			long[] masks = freeMasks.get(doctorId);
+			List<Long> dayMasks = new ArrayList<>(masks.length);
+			List<String> dayTemplates = new ArrayList<>(masks.length);
+			LocalDateTime earliest = null;
+			for (int d = 0; d < masks.length; d++) {
+				LocalDate date = from.plusDays(d);
+				SlotTemplate template = slotTemplateRegistry.forDoctorDay(doctorId, date);
+				List<LocalTime> slotTimes = template.getSlotTimes();
+				templates.putIfAbsent(template.getName(), slotTimes);
+				long mask = masks[d];
+				if (date.isBefore(today)) {
+					mask = 0L;
+				} else if (date.equals(today)) {
+					for (int i = 0; i < slotTimes.size() && slotTimes.get(i).isBefore(now); i++) {
+						mask &= ~(1L << i);
+					}
+				}
+				if (earliest == null && mask != 0) {
+					earliest = date.atTime(slotTimes.get(Long.numberOfTrailingZeros(mask)));
+				}
+				dayMasks.add(mask);
+				dayTemplates.add(template.getName());
 			}
+			DoctorAvailabilityRowDTO row = new DoctorAvailabilityRowDTO();
+			row.setDoctorId(doctorId);
+			row.setFreeSlotMasks(dayMasks);
+			row.setSlotTemplates(dayTemplates);
+			row.setEarliestAvailable(earliest);
+			rows.add(row);
 		}
+
+		AvailabilityMatrixDTO matrix = new AvailabilityMatrixDTO();
+		matrix.setFrom(from);
+		matrix.setTo(to);
+		matrix.setSlotTimes(defaultTemplate.getSlotTimes());
+		matrix.setTemplates(templates);
+		matrix.setDoctors(rows);
+		return matrix;
+	}
+
+	public List<LocalTime> getAvailableTimeSlots(Long doctorId, LocalDate date) {
+	    logger.info("Fetching available time slots for doctor {} on {}", doctorId, date);
+		// Only a cold doctor-day needs the database; a warm one is answered from the index.
+		if (!slotOccupancyIndex.contains(doctorId, date)) {
+			referenceDataCache.findDoctor(doctorId).orElseThrow(() -> new RuntimeException("Doctor not found"));
+		}
+
+		List<LocalTime> slots = slotOccupancyIndex.availableSlots(doctorId, date);
 	    logger.info("Available slots for doctor {} on {}: {}", doctorId, date, slots);
 		return slots;
 
 	}
 
-	@Transactional
-	public void cancelOverdueAppointments() {
+	// Runs in one short transaction per chunk (see OverdueCancellationJob), so no
+	// @Transactional here.
+	public OverdueCancellationSummary cancelOverdueAppointments() {
 		LocalDate today = LocalDate.now();
 		LocalTime currentTime = LocalTime.now();
 		logger.info("Checking for overdue appointments on {}", today);
-
-		List<Appointment> appointments = appointmentRepository.findByAppointmentDateAndStatus(today,
-				AppointmentStatus.BOOKED);
-
-		for (Appointment appointment : appointments) {
-			if (appointment.getAppointmentTime().isBefore(currentTime)) {
-				logger.info("Cancelling overdue appointment {} scheduled for {} {}", 
-		                appointment.getAppointmentId(), appointment.getAppointmentDate(), appointment.getAppointmentTime());
-				
-				appointment.setStatus(AppointmentStatus.CANCELLED);
-				appointmentRepository.save(appointment);
-
-				LocalDateTime appointmentDateTime = appointment.getAppointmentDate()
-						.atTime(appointment.getAppointmentTime());
-				LocalDateTime startWindow = appointmentDateTime.minusMinutes(15);
-				LocalDateTime endWindow = appointmentDateTime.plusMinutes(15);
-
-				List<WaitingAppointment> waitingList = waitingAppointmentRepository
-						.findByDoctorAndPreferredTimeBetween(appointment.getDoctor(), startWindow, endWindow);
-
-				if (waitingList != null && !waitingList.isEmpty()) {
-					waitingAppointmentRepository.deleteAll(waitingList);
-					waitingAppointmentRepository.flush();
-				}
-			}
-		}
-		logger.info("Cancelled overdue appointments for {}", today);
+		return overdueCancellationJob.run(today, currentTime);
 	}
 }
@@ -0,0 +1,235 @@
+package com.appointment.service;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.appointment.entity.AppointmentStatus;
+import com.appointment.entity.DoctorDayId;
+import com.appointment.entity.DoctorDaySlots;
+import com.appointment.repository.AppointmentRepository;
+import com.appointment.repository.AppointmentRepository.AppointmentSlot;
+import com.appointment.repository.DoctorDaySlotsRepository;
+import com.appointment.template.SlotTemplate;
+import com.appointment.template.SlotTemplateRegistry;
+
+/**
+ * Materialized slot state per (doctor, date) in the doctor_day_slots table, so
+ * that an availability read is one primary-key lookup. Unlike SlotOccupancyIndex
+ * it is shared between processes:
+ * - the blocked mask is written inside the transaction in which
+ *   DoctorAvailability blocks or unblocks slots;
+ * - the booked mask is kept out of the booking transactions, which would
+ *   otherwise all write the doctor-day's one row and queue behind each other
+ *   on its lock. booked and freed only note the doctor-day; once the
+ *   transaction commits, each noted day is rebuilt from the appointments table
+ *   in a short transaction of its own. A rebuild that fails is logged and left
+ *   to DoctorDaySlotsChecker.
+ *
+ * A booked mask that is not materialized yet is built from the appointments
+ * table on its first read. Masks are always written whole: MySQL's bit
+ * operators return unsigned values, which overflow the signed BIGINT columns
+ * once slot 63 is set. Masks are laid out on the doctor-day's SlotTemplate, so
+ * days whose template changes must be rebuilt.
+ */
+@Component
+public class DoctorDaySlotStore {
+
+	private static final Logger logger = LoggerFactory.getLogger(DoctorDaySlotStore.class);
+
+	// Same statement as DoctorDaySlotsRepository.setBlocked, for JDBC batching.
+	private static final String SET_BLOCKED_SQL = "INSERT INTO doctor_day_slots (doctor_id, slot_date, blocked_mask, "
+			+ "updated_at) VALUES (?, ?, ?, NOW(6)) ON DUPLICATE KEY UPDATE blocked_mask = VALUES(blocked_mask), "
+			+ "updated_at = VALUES(updated_at)";
+
+	@Autowired
+	private DoctorDaySlotsRepository doctorDaySlotsRepository;
+
+	@Autowired
+	private AppointmentRepository appointmentRepository;
+
+	@Autowired
+	private SlotTemplateRegistry slotTemplateRegistry;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	// Runs the rebuilds after the booking transaction has committed.
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Value("${appointment.doctor-day-slots.batch-size:500}")
+	private int batchSize = 500;
+
+	public Optional<DoctorDaySlots> find(Long doctorId, LocalDate date) {
+		return doctorDaySlotsRepository.findById(new DoctorDayId(doctorId, date));
+	}
+
+	/**
+	 * Locks the doctor-day's row, if present, for a rebuild from its sources.
+	 */
+	public Optional<DoctorDaySlots> findForUpdate(Long doctorId, LocalDate date) {
+		return doctorDaySlotsRepository.findForUpdate(new DoctorDayId(doctorId, date));
+	}
+
+	public List<DoctorDaySlots> findBetween(LocalDate from, LocalDate to) {
+		return doctorDaySlotsRepository.findById_SlotDateBetween(from, to);
+	}
+
+	/**
+	 * Records booked appointments starting at the given times: the doctor-day's
+	 * booked mask is rebuilt once the current transaction commits.
+	 */
+	public void booked(Long doctorId, LocalDate date, Collection<LocalTime> times) {
+		if (!times.isEmpty()) {
+			rebuildAfterCommit(new DoctorDayId(doctorId, date));
+		}
+	}
+
+	public void booked(Long doctorId, LocalDate date, LocalTime time) {
+		booked(doctorId, date, List.of(time));
+	}
+
+	/**
+	 * Records cancelled or moved appointments that started at the given times:
+	 * the doctor-day's booked mask is rebuilt once the current transaction
+	 * commits.
+	 */
+	public void freed(Long doctorId, LocalDate date, Collection<LocalTime> times) {
+		if (!times.isEmpty()) {
+			rebuildAfterCommit(new DoctorDayId(doctorId, date));
+		}
+	}
+
+	public void freed(Long doctorId, LocalDate date, LocalTime time) {
+		freed(doctorId, date, List.of(time));
+	}
+
+	/**
+	 * Materializes the booked mask of a doctor-day that has none yet and
+	 * returns it.
+	 */
+	public long materializeBooked(Long doctorId, LocalDate date) {
+		long mask = bookedFromSource(doctorId, date);
+		doctorDaySlotsRepository.fillBooked(doctorId, date, mask);
+		return mask;
+	}
+
+	/**
+	 * Overwrites the booked mask with one rebuilt from the appointments table
+	 * and returns it. The row is locked before the appointments are read, so
+	 * of two rebuilds of a day the later one sees every booking the earlier
+	 * one saw.
+	 */
+	public long rebuildBooked(Long doctorId, LocalDate date) {
+		doctorDaySlotsRepository.lockForRebuild(doctorId, date);
+		long mask = bookedFromSource(doctorId, date);
+		doctorDaySlotsRepository.setBooked(doctorId, date, mask);
+		return mask;
+	}
+
+	/**
+	 * Slots covered by the doctor-day's BOOKED appointments.
+	 */
+	public long bookedFromSource(Long doctorId, LocalDate date) {
+		SlotTemplate template = slotTemplateRegistry.forDoctorDay(doctorId, date);
+		long mask = 0L;
+		for (AppointmentSlot slot : appointmentRepository.findSlotsByDoctorAndDateAndStatus(doctorId, date,
+				AppointmentStatus.BOOKED)) {
+			mask |= template.coveredSlots(slot.getAppointmentTime());
+		}
+		return mask;
+	}
+
+	/**
+	 * Overwrites the booked mask, e.g. with one rebuilt by a consistency check.
+	 */
+	public void setBooked(Long doctorId, LocalDate date, long mask) {
+		doctorDaySlotsRepository.setBooked(doctorId, date, mask);
+	}
+
+	/**
+	 * Overwrites the blocked mask; its source is owned by DoctorAvailability.
+	 */
+	public void setBlocked(Long doctorId, LocalDate date, long mask) {
+		doctorDaySlotsRepository.setBlocked(doctorId, date, mask);
+	}
+
+	/**
+	 * Overwrites the blocked masks of many doctor-days in JDBC batches.
+	 */
+	public void setBlocked(Map<DoctorDayId, Long> masks) {
+		jdbcTemplate.batchUpdate(SET_BLOCKED_SQL, masks.entrySet(), batchSize, (ps, entry) -> {
+			ps.setLong(1, entry.getKey().getDoctorId());
+			ps.setDate(2, Date.valueOf(entry.getKey().getSlotDate()));
+			ps.setLong(3, entry.getValue());
+		});
+	}
+
+	/**
+	 * Materializes the blocked mask unless it has been written meanwhile.
+	 */
+	public void fillBlocked(Long doctorId, LocalDate date, long mask) {
+		doctorDaySlotsRepository.fillBlocked(doctorId, date, mask);
+	}
+
+	// Notes the doctor-day in the current transaction, so that each day is rebuilt
+	// once however many of its appointments changed; without a transaction the
+	// day is rebuilt at once.
+	private void rebuildAfterCommit(DoctorDayId day) {
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			rebuild(List.of(day));
+			return;
+		}
+		@SuppressWarnings("unchecked")
+		Set<DoctorDayId> days = (Set<DoctorDayId>) TransactionSynchronizationManager.getResource(this);
+		if (days == null) {
+			Set<DoctorDayId> changed = new LinkedHashSet<>();
+			TransactionSynchronizationManager.bindResource(this, changed);
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCommit() {
+					rebuild(changed);
+				}
+
+				@Override
+				public void afterCompletion(int status) {
+					TransactionSynchronizationManager.unbindResourceIfPossible(DoctorDaySlotStore.this);
+				}
+			});
+			days = changed;
+		}
+		days.add(day);
+	}
+
+	private void rebuild(Collection<DoctorDayId> days) {
+		TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+		transaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+		for (DoctorDayId day : days) {
+			try {
+				transaction.executeWithoutResult(status -> rebuildBooked(day.getDoctorId(), day.getSlotDate()));
+			} catch (RuntimeException e) {
+				logger.warn("Could not rebuild booked slots of doctor {} on {}; left to the consistency check: {}",
+						day.getDoctorId(), day.getSlotDate(), e.getMessage());
+			}
+		}
+	}
+}
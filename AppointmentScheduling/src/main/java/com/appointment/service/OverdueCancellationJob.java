@@ -0,0 +1,109 @@
+package com.appointment.service;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.appointment.dto.OverdueCancellationSummary;
+import com.appointment.entity.AppointmentStatus;
+import com.appointment.repository.AppointmentRepository;
+import com.appointment.repository.AppointmentRepository.AppointmentSlot;
+import com.appointment.repository.WaitingAppointmentRepository;
+
+/**
+ * Cancels today's booked appointments whose start time has passed, in
+ * chunks of chunkSize. Each chunk runs in its own short transaction: one
+ * select of overdue ids, one bulk UPDATE of those appointments and one bulk
+ * DELETE of the waiting records within 15 minutes of them. Row locks are
+ * therefore only held for one chunk at a time.
+ */
+@Component
+public class OverdueCancellationJob {
+
+	private static final Logger logger = LoggerFactory.getLogger(OverdueCancellationJob.class);
+
+	@Autowired
+	private AppointmentRepository appointmentRepository;
+
+	@Autowired
+	private WaitingAppointmentRepository waitingAppointmentRepository;
+
+	@Autowired
+	private SlotOccupancyIndex slotOccupancyIndex;
+
+	@Autowired
+	private DoctorDaySlotStore doctorDaySlotStore;
+
+	@Autowired
+	private WaitlistEngine waitlistEngine;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@Value("${appointment.overdue.chunk-size:500}")
+	private int chunkSize = 500;
+
+	public OverdueCancellationSummary run(LocalDate date, LocalTime before) {
+		logger.info("Cancelling overdue appointments on {} before {} in chunks of {}", date, before, chunkSize);
+		long start = System.nanoTime();
+		OverdueCancellationSummary summary = new OverdueCancellationSummary();
+
+		while (true) {
+			int[] counts = transactionTemplate.execute(status -> cancelChunk(date, before));
+			if (counts == null || counts[0] == 0) {
+				break;
+			}
+			summary.setChunks(summary.getChunks() + 1);
+			summary.setAppointmentsCancelled(summary.getAppointmentsCancelled() + counts[1]);
+			summary.setWaitingRecordsRemoved(summary.getWaitingRecordsRemoved() + counts[2]);
+			logger.info("Overdue chunk {}: {} appointments cancelled, {} waiting records removed ({} so far)",
+					summary.getChunks(), counts[1], counts[2], summary.getAppointmentsCancelled());
+			if (counts[0] < chunkSize) {
+				break;
+			}
+		}
+
+		summary.setElapsedMillis((System.nanoTime() - start) / 1_000_000);
+		logger.info("Cancelled {} overdue appointments and removed {} waiting records on {} in {} chunks ({} ms)",
+				summary.getAppointmentsCancelled(), summary.getWaitingRecordsRemoved(), date, summary.getChunks(),
+				summary.getElapsedMillis());
+		return summary;
+	}
+
+	// Returns {rows selected, appointments cancelled, waiting records removed}.
+	private int[] cancelChunk(LocalDate date, LocalTime before) {
+		// Cancelled rows drop out of the BOOKED filter, so the first page is always the next chunk.
+		List<AppointmentSlot> overdue = appointmentRepository.findSlotsByDateAndStatusBefore(date,
+				AppointmentStatus.BOOKED, before, PageRequest.of(0, chunkSize));
+		if (overdue.isEmpty()) {
+			return new int[] { 0, 0, 0 };
+		}
+		List<Long> ids = overdue.stream().map(AppointmentSlot::getAppointmentId).toList();
+
+		int cancelled = appointmentRepository.cancelBookedByIds(ids);
+		int removed = waitingAppointmentRepository.deleteNearAppointments(ids);
+
+		// The bulk statements bypass the caches; update them once the chunk commits.
+		for (AppointmentSlot slot : overdue) {
+			slotOccupancyIndex.markFreed(slot.getDoctorId(), slot.getAppointmentDate(), slot.getAppointmentTime());
+		}
+		// One materialized-row update per doctor in the chunk.
+		overdue.stream().collect(Collectors.groupingBy(AppointmentSlot::getDoctorId,
+				Collectors.mapping(AppointmentSlot::getAppointmentTime, Collectors.toList())))
+				.forEach((doctorId, times) -> doctorDaySlotStore.freed(doctorId, date, times));
+		if (removed > 0) {
+			overdue.stream().map(AppointmentSlot::getDoctorId).distinct()
+					.forEach(doctorId -> waitlistEngine.evict(doctorId, date));
+		}
+		return new int[] { overdue.size(), cancelled, removed };
+	}
+}
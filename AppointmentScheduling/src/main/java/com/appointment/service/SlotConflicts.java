@@ -0,0 +1,41 @@
+package com.appointment.service;
+
+import java.sql.SQLException;
+import java.util.Locale;
+
+import org.hibernate.exception.ConstraintViolationException;
+
+/**
+ * Tells a lost booking race apart from other integrity errors. Only a
+ * violation of uk_appointments_active_slot means that the slot was taken by a
+ * concurrent booking; foreign key, NOT NULL and data-too-long errors are real
+ * failures and must not be turned into a waiting-list entry.
+ */
+public final class SlotConflicts {
+
+	public static final String ACTIVE_SLOT_CONSTRAINT = "uk_appointments_active_slot";
+
+	private SlotConflicts() {
+	}
+
+	/**
+	 * True if the exception, or one of its causes, is a violation of the
+	 * appointments active-slot unique key.
+	 */
+	public static boolean isActiveSlotConflict(Throwable e) {
+		for (Throwable cause = e; cause != null; cause = cause.getCause() == cause ? null : cause.getCause()) {
+			if (cause instanceof ConstraintViolationException violation && violation.getConstraintName() != null) {
+				// MySQL 8 reports the key as <table>.<name>.
+				return mentionsConstraint(violation.getConstraintName());
+			}
+			if (cause instanceof SQLException sqlException && mentionsConstraint(sqlException.getMessage())) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static boolean mentionsConstraint(String text) {
+		return text != null && text.toLowerCase(Locale.ROOT).contains(ACTIVE_SLOT_CONSTRAINT);
+	}
+}
@@ -0,0 +1,139 @@
+package com.appointment.service;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.appointment.template.SlotTemplateRegistry;
+
+/**
+ * Striped locks that serialize booking attempts for the same (doctor, date,
+ * slot) while letting every other slot proceed in parallel.
+ *
+ * A lock is held until the surrounding transaction completes, so the next
+ * request for the slot only reads the appointments table after the previous
+ * booking is committed. It must therefore be taken before the transaction
+ * reads anything, otherwise a REPEATABLE READ snapshot would hide the
+ * competing insert. Across several application instances the unique key on
+ * appointments (doctor_id, appointment_date, appointment_time, active_slot)
+ * is the final guard.
+ *
+ * One transaction may hold at most max-locks-per-transaction stripes, well
+ * below the stripe count, so that no single caller can block every other
+ * booking; batch booking locks one doctor-day at a time.
+ */
+@Component
+public class SlotLockRegistry {
+
+	private static final Logger logger = LoggerFactory.getLogger(SlotLockRegistry.class);
+
+	// Lock granularity; an appointment takes every 30-minute bucket it touches.
+	private static final int BUCKET_MINUTES = 30;
+
+	private final ReentrantLock[] stripes;
+
+	private final SlotTemplateRegistry slotTemplateRegistry;
+
+	@Value("${appointment.booking.lock-timeout-ms:10000}")
+	private long lockTimeoutMs = 10000;
+
+	@Value("${appointment.booking.max-locks-per-transaction:64}")
+	private int maxLocksPerTransaction = 64;
+
+	public SlotLockRegistry(@Value("${appointment.booking.lock-stripes:1024}") int stripeCount,
+			SlotTemplateRegistry slotTemplateRegistry) {
+		this.slotTemplateRegistry = slotTemplateRegistry;
+		stripes = new ReentrantLock[stripeCount];
+		for (int i = 0; i < stripeCount; i++) {
+			stripes[i] = new ReentrantLock();
+		}
+	}
+
+	/**
+	 * Locks the slot starting at startTime for the rest of the current
+	 * transaction.
+	 */
+	public void lockForTransaction(Long doctorId, LocalDate date, LocalTime startTime) {
+		lockForTransaction(List.of(new Slot(doctorId, date, startTime)));
+	}
+
+	/**
+	 * Locks all given slots for the rest of the current transaction. Stripes are
+	 * always taken in ascending order so that two batches cannot deadlock.
+	 */
+	public void lockForTransaction(Collection<Slot> slots) {
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			// Without a transaction there is no commit to hold the lock until.
+			logger.debug("No active transaction; skipping slot locks for {} slots", slots.size());
+			return;
+		}
+		TreeSet<Integer> indexes = new TreeSet<>();
+		for (Slot slot : slots) {
+			// Two overlapping appointments of the same doctor-day share a bucket.
+			int slotMinutes = slotTemplateRegistry.forDoctorDay(slot.doctorId(), slot.date()).getSlotMinutes();
+			int startMinute = slot.startTime().toSecondOfDay() / 60;
+			int endMinute = startMinute + slotMinutes - 1;
+			for (int bucket = startMinute / BUCKET_MINUTES; bucket <= endMinute / BUCKET_MINUTES; bucket++) {
+				indexes.add(stripeIndex(slot.doctorId(), slot.date(), bucket));
+			}
+		}
+		if (indexes.size() > maxLocksPerTransaction) {
+			throw new IllegalArgumentException("Cannot lock " + indexes.size() + " slot stripes in one transaction; "
+					+ "the limit is " + maxLocksPerTransaction + ".");
+		}
+
+		List<ReentrantLock> acquired = new ArrayList<>(indexes.size());
+		try {
+			for (int index : indexes) {
+				ReentrantLock lock = stripes[index];
+				if (!lock.tryLock(lockTimeoutMs, TimeUnit.MILLISECONDS)) {
+					throw new RuntimeException("The requested slot is busy. Please try again.");
+				}
+				acquired.add(lock);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			unlock(acquired);
+			throw new RuntimeException("Interrupted while waiting for the requested slot.", e);
+		} catch (RuntimeException e) {
+			unlock(acquired);
+			throw e;
+		}
+
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+			@Override
+			public void afterCompletion(int status) {
+				unlock(acquired);
+			}
+		});
+	}
+
+	private int stripeIndex(Long doctorId, LocalDate date, int gridSlot) {
+		return Math.floorMod(Objects.hash(doctorId, date, gridSlot), stripes.length);
+	}
+
+	private static void unlock(List<ReentrantLock> locks) {
+		for (int i = locks.size() - 1; i >= 0; i--) {
+			locks.get(i).unlock();
+		}
+	}
+
+	/**
+	 * A slot to lock: doctor, date and start time.
+	 */
+	public record Slot(Long doctorId, LocalDate date, LocalTime startTime) {
+	}
+}
@@ -0,0 +1,338 @@
+package com.appointment.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.appointment.entity.AppointmentStatus;
+import com.appointment.entity.DoctorDayChange;
+import com.appointment.repository.AppointmentRepository;
+import com.appointment.repository.AppointmentRepository.AppointmentSlot;
+import com.appointment.repository.AppointmentRepository.BookedSlot;
+import com.appointment.repository.DoctorDayChangeRepository;
+import com.appointment.template.SlotTemplate;
+import com.appointment.template.SlotTemplateRegistry;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * In-memory slot occupancy per (doctor, date). Each doctor-day is a bitmask over
+ * the slot grid of its SlotTemplate, so an availability lookup is a bit scan
+ * instead of a query. Entries are loaded from the appointments table on
+ * first use and then kept in sync by AppointmentService after each commit.
+ *
+ * Every process that scans this package (AppointmentScheduling and
+ * DoctorAvailability) has its own index. Bulk changes that bypass those
+ * updates, such as DoctorAvailability cancelling blocked slots, call evict:
+ * it records a DoctorDayChange in the same transaction and drops the local
+ * entry once it commits. Each index polls doctor_day_changes every
+ * poll-interval-ms and drops the doctor-days changed elsewhere. Entries also
+ * expire after a TTL, which bounds staleness if polling fails.
+ */
+@Component
+public class SlotOccupancyIndex {
+
+	private static final Logger logger = LoggerFactory.getLogger(SlotOccupancyIndex.class);
+
+	@Autowired
+	private AppointmentRepository appointmentRepository;
+
+	@Autowired
+	private SlotTemplateRegistry slotTemplateRegistry;
+
+	@Autowired
+	private DoctorDayChangeRepository changeRepository;
+
+	@Value("${appointment.slot-index.ttl-seconds:300}")
+	private long ttlSeconds = 300;
+
+	// 0 or less turns polling off; the TTL is then the only way to see other processes' bulk changes.
+	@Value("${appointment.slot-index.poll-interval-ms:5000}")
+	private long pollIntervalMs = 5000;
+
+	// Each poll reads this far back again, for changes that committed late.
+	@Value("${appointment.slot-index.poll-overlap-ms:60000}")
+	private long pollOverlapMs = 60000;
+
+	@Value("${appointment.slot-index.change-retention-hours:24}")
+	private long changeRetentionHours = 24;
+
+	private final Map<DoctorDay, Occupancy> occupancy = new ConcurrentHashMap<>();
+
+	// Bumped on every change to a doctor-day in the stripe; see occupiedMask.
+	private final AtomicLongArray generations = new AtomicLongArray(64);
+
+	// Poller state, only touched by the poller thread (or a test calling applyChanges).
+	private final Map<Long, Instant> appliedChanges = new HashMap<>();
+	private Instant polledAt = Instant.now();
+	private Instant purgedAt = Instant.now();
+	private ScheduledExecutorService poller;
+
+	// Polls on its own thread: DoctorAvailability does not enable @Scheduled.
+	@PostConstruct
+	void start() {
+		if (pollIntervalMs > 0) {
+			poller = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("slot-index-"));
+			poller.scheduleWithFixedDelay(this::applyChanges, pollIntervalMs, pollIntervalMs, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	@PreDestroy
+	void stop() {
+		if (poller != null) {
+			poller.shutdownNow();
+		}
+	}
+
+	/**
+	 * Returns true if the doctor-day is loaded and not expired.
+	 */
+	public boolean contains(Long doctorId, LocalDate date) {
+		Occupancy entry = occupancy.get(new DoctorDay(doctorId, date));
+		return entry != null && !entry.isExpired(ttlNanos());
+	}
+
+	/**
+	 * Free bookable slots for the doctor-day, in chronological order. Loads the
+	 * day from the database on a miss.
+	 */
+	public List<LocalTime> availableSlots(Long doctorId, LocalDate date) {
+		SlotTemplate template = slotTemplateRegistry.forDoctorDay(doctorId, date);
+		long occupied = occupiedMask(doctorId, date);
+		if (occupied == 0L) {
+			return template.getBookableSlots();
+		}
+		return template.slotsOf(template.getBookableMask() & ~occupied);
+	}
+
+	/**
+	 * Free-slot bitmasks for several doctors over a date range, one mask per day
+	 * (index 0 is from). Bit i refers to slot i of that doctor-day's template
+	 * (see SlotTemplateRegistry.forDoctorDay). Warm doctor-days
+	 * come from the index; the rest are read with a single grouped query. The
+	 * queried days are not added to the index, because a booking committed while
+	 * the query runs could not be applied to them.
+	 */
+	public Map<Long, long[]> freeSlotMasks(Collection<Long> doctorIds, LocalDate from, LocalDate to) {
+		int days = (int) ChronoUnit.DAYS.between(from, to) + 1;
+		long ttl = ttlNanos();
+		Map<Long, long[]> occupied = new HashMap<>();
+		Set<Long> cold = new LinkedHashSet<>();
+		for (Long doctorId : doctorIds) {
+			long[] masks = new long[days];
+			occupied.put(doctorId, masks);
+			for (int d = 0; d < days; d++) {
+				Occupancy entry = occupancy.get(new DoctorDay(doctorId, from.plusDays(d)));
+				if (entry == null || entry.isExpired(ttl)) {
+					cold.add(doctorId);
+					break;
+				}
+				masks[d] = entry.mask();
+			}
+		}
+
+		if (!cold.isEmpty()) {
+			logger.debug("Loading slot occupancy for {} doctors from {} to {}", cold.size(), from, to);
+			for (Long doctorId : cold) {
+				Arrays.fill(occupied.get(doctorId), 0L);
+			}
+			for (BookedSlot slot : appointmentRepository.findBookedSlots(cold, from, to, AppointmentStatus.BOOKED)) {
+				int d = (int) ChronoUnit.DAYS.between(from, slot.getAppointmentDate());
+				occupied.get(slot.getDoctorId())[d] |= slotTemplateRegistry
+						.forDoctorDay(slot.getDoctorId(), slot.getAppointmentDate())
+						.coveredSlots(slot.getAppointmentTime());
+			}
+		}
+
+		for (Map.Entry<Long, long[]> entry : occupied.entrySet()) {
+			long[] masks = entry.getValue();
+			for (int d = 0; d < days; d++) {
+				long bookable = slotTemplateRegistry.forDoctorDay(entry.getKey(), from.plusDays(d)).getBookableMask();
+				masks[d] = bookable & ~masks[d];
+			}
+		}
+		return occupied;
+	}
+
+	/**
+	 * Records a booked appointment once the current transaction commits.
+	 */
+	public void markBooked(Long doctorId, LocalDate date, LocalTime time) {
+		afterCommit(() -> update(doctorId, date, time, true));
+	}
+
+	/**
+	 * Records a freed (cancelled or moved) appointment once the current
+	 * transaction commits.
+	 */
+	public void markFreed(Long doctorId, LocalDate date, LocalTime time) {
+		afterCommit(() -> update(doctorId, date, time, false));
+	}
+
+	/**
+	 * Drops a doctor-day so that the next lookup reloads it, in this process
+	 * once the current transaction commits and in the others at their next
+	 * poll.
+	 */
+	public void evict(Long doctorId, LocalDate date) {
+		DoctorDayChange change = new DoctorDayChange();
+		change.setDoctorId(doctorId);
+		change.setSlotDate(date);
+		change.setChangedAt(Instant.now());
+		changeRepository.save(change);
+		afterCommit(() -> drop(new DoctorDay(doctorId, date)));
+	}
+
+	/**
+	 * Drops the doctor-days changed since the previous poll. Runs on the poller
+	 * thread; public for tests.
+	 */
+	public void applyChanges() {
+		Instant now = Instant.now();
+		try {
+			Instant since = polledAt.minusMillis(pollOverlapMs);
+			Set<DoctorDay> days = new HashSet<>();
+			for (DoctorDayChange change : changeRepository.findByChangedAtAfter(since)) {
+				if (appliedChanges.putIfAbsent(change.getId(), change.getChangedAt()) == null) {
+					days.add(new DoctorDay(change.getDoctorId(), change.getSlotDate()));
+				}
+			}
+			appliedChanges.values().removeIf(changedAt -> changedAt.isBefore(since));
+			days.forEach(this::drop);
+			if (!days.isEmpty()) {
+				logger.debug("Dropped {} doctor-days changed elsewhere from slot index", days.size());
+			}
+			polledAt = now;
+			if (purgedAt.isBefore(now.minus(Duration.ofHours(1)))) {
+				changeRepository.deleteChangedBefore(now.minus(Duration.ofHours(changeRetentionHours)));
+				purgedAt = now;
+			}
+		} catch (RuntimeException e) {
+			logger.warn("Could not read doctor-day changes: {}", e.getMessage());
+		}
+	}
+
+	// Periodically drop expired entries so the index stays bounded to days in use.
+	@Scheduled(fixedDelayString = "${appointment.slot-index.purge-interval-ms:600000}")
+	public void purgeExpired() {
+		long ttl = ttlNanos();
+		int before = occupancy.size();
+		occupancy.values().removeIf(entry -> entry.isExpired(ttl));
+		logger.debug("Purged {} expired doctor-day entries from slot index", before - occupancy.size());
+	}
+
+	private long occupiedMask(Long doctorId, LocalDate date) {
+		DoctorDay key = new DoctorDay(doctorId, date);
+		long ttl = ttlNanos();
+		Occupancy entry = occupancy.get(key);
+		if (entry != null && !entry.isExpired(ttl)) {
+			return entry.mask();
+		}
+		// Load outside the map lock so a slow query does not stall other doctor-days
+		// in the same bin. A load that overlaps a change to the doctor-day may have
+		// missed it, so it is returned but not stored.
+		long loadGeneration = generations.get(stripe(key));
+		Occupancy loaded = load(key);
+		occupancy.compute(key, (k, current) -> {
+			if (current != null && !current.isExpired(ttl)) {
+				return current;
+			}
+			return generations.get(stripe(k)) == loadGeneration ? loaded : null;
+		});
+		return loaded.mask();
+	}
+
+	private Occupancy load(DoctorDay key) {
+		logger.debug("Loading slot occupancy for doctor {} on {}", key.doctorId(), key.date());
+		List<AppointmentSlot> booked = appointmentRepository.findSlotsByDoctorAndDateAndStatus(key.doctorId(),
+				key.date(), AppointmentStatus.BOOKED);
+		SlotTemplate template = slotTemplateRegistry.forDoctorDay(key.doctorId(), key.date());
+		long mask = 0L;
+		for (AppointmentSlot slot : booked) {
+			mask |= template.coveredSlots(slot.getAppointmentTime());
+		}
+		return new Occupancy(mask, System.nanoTime());
+	}
+
+	private void update(Long doctorId, LocalDate date, LocalTime time, boolean booked) {
+		DoctorDay key = new DoctorDay(doctorId, date);
+		changed(key);
+		int index = slotTemplateRegistry.forDoctorDay(doctorId, date).slotIndex(time);
+		if (index < 0) {
+			// Off-grid times can share slots with other appointments; reload instead of guessing.
+			occupancy.remove(key);
+			return;
+		}
+		long bit = 1L << index;
+		occupancy.computeIfPresent(key,
+				(k, entry) -> new Occupancy(booked ? entry.mask() | bit : entry.mask() & ~bit, entry.loadedAt()));
+	}
+
+	private void drop(DoctorDay key) {
+		changed(key);
+		occupancy.remove(key);
+	}
+
+	// Marks a doctor-day as changed before the change is applied, so that a load
+	// already in flight for it is not stored.
+	private void changed(DoctorDay key) {
+		generations.incrementAndGet(stripe(key));
+	}
+
+	private int stripe(DoctorDay key) {
+		return Math.floorMod(key.hashCode(), generations.length());
+	}
+
+	private long ttlNanos() {
+		return ttlSeconds * 1_000_000_000L;
+	}
+
+	private static void afterCommit(Runnable action) {
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCommit() {
+					action.run();
+				}
+			});
+		} else {
+			action.run();
+		}
+	}
+
+	private record DoctorDay(Long doctorId, LocalDate date) {
+	}
+
+	private record Occupancy(long mask, long loadedAt) {
+
+		boolean isExpired(long ttlNanos) {
+			return System.nanoTime() - loadedAt > ttlNanos;
+		}
+	}
+}
@@ -0,0 +1,257 @@
+package com.appointment.service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.appointment.entity.WaitingAppointment;
+import com.appointment.repository.WaitingAppointmentRepository;
+
+/**
+ * Waiting list served from memory. For each (doctor, date) the waiting
+ * records are kept in one priority queue per preferred slot, ordered by
+ * request time (first come, first served) with the record id as tie-breaker,
+ * so promoting the next patient is a queue poll instead of a range query.
+ *
+ * WaitingAppointment rows remain the source of truth: a doctor-day is loaded
+ * from them on first use, every change here is mirrored to the table, and
+ * entries expire after a TTL to pick up changes made elsewhere.
+ */
+@Component
+public class WaitlistEngine {
+
+	private static final Logger logger = LoggerFactory.getLogger(WaitlistEngine.class);
+
+	// Promotion order. A priority tier would be compared before requestedAt.
+	private static final Comparator<Entry> ORDER = Comparator
+			.comparing(Entry::requestedAt, Comparator.nullsLast(Comparator.naturalOrder()))
+			.thenComparing(Entry::waitingId);
+
+	@Autowired
+	private WaitingAppointmentRepository waitingAppointmentRepository;
+
+	@Value("${appointment.waitlist.ttl-seconds:300}")
+	private long ttlSeconds = 300;
+
+	private final Map<DoctorDay, DayQueue> days = new ConcurrentHashMap<>();
+
+	/**
+	 * Returns true if the patient is already waiting for this doctor and slot.
+	 */
+	public boolean isWaiting(Long doctorId, Long patientId, LocalDateTime slot) {
+		DayQueue day = day(doctorId, slot.toLocalDate());
+		synchronized (day) {
+			PriorityQueue<Entry> queue = day.bySlot.get(slot);
+			return queue != null && queue.stream().anyMatch(e -> e.patientId().equals(patientId));
+		}
+	}
+
+	/**
+	 * Removes and returns the first patient waiting for the doctor with a
+	 * preferred time in [from, to], deleting the waiting record. If the
+	 * transaction rolls back the entry is put back in the queue.
+	 */
+	public Optional<WaitingAppointment> promoteNext(Long doctorId, LocalDateTime from, LocalDateTime to) {
+		for (LocalDate date = from.toLocalDate(); !date.isAfter(to.toLocalDate()); date = date.plusDays(1)) {
+			DayQueue day = day(doctorId, date);
+			Entry head;
+			while ((head = day.pollFirst(from, to)) != null) {
+				restoreOnRollback(day, head);
+				Optional<WaitingAppointment> waiting = waitingAppointmentRepository.findById(head.waitingId());
+				if (waiting.isPresent()) {
+					waitingAppointmentRepository.delete(waiting.get());
+					logger.info("Promoting waiting record {} for doctor {} at {}", head.waitingId(), doctorId,
+							head.preferredTime());
+					return waiting;
+				}
+				// Already removed by someone else; try the next in line.
+			}
+		}
+		return Optional.empty();
+	}
+
+	/**
+	 * Adds a newly saved waiting record once the current transaction commits.
+	 * computeIfPresent waits for a load of the same day that is in progress
+	 * (it may have read the table before the commit) and applies to its result.
+	 */
+	public void added(WaitingAppointment waiting) {
+		Entry entry = Entry.of(waiting);
+		DoctorDay key = new DoctorDay(waiting.getDoctor().getDoctorId(), waiting.getPreferredTime().toLocalDate());
+		afterCommit(() -> days.computeIfPresent(key, (k, day) -> {
+			synchronized (day) {
+				day.add(entry);
+			}
+			return day;
+		}));
+	}
+
+	/**
+	 * Drops deleted waiting records once the current transaction commits.
+	 */
+	public void removed(Collection<WaitingAppointment> waitingRecords) {
+		List<Entry> entries = waitingRecords.stream().map(Entry::of).toList();
+		afterCommit(() -> {
+			for (Entry entry : entries) {
+				DoctorDay key = new DoctorDay(entry.doctorId(), entry.preferredTime().toLocalDate());
+				days.computeIfPresent(key, (k, day) -> {
+					synchronized (day) {
+						day.remove(entry);
+					}
+					return day;
+				});
+			}
+		});
+	}
+
+	/**
+	 * Forgets every loaded day of a doctor, e.g. after a bulk delete.
+	 */
+	public void evictDoctor(Long doctorId) {
+		afterCommit(() -> days.keySet().removeIf(key -> key.doctorId().equals(doctorId)));
+	}
+
+	/**
+	 * Forgets one doctor-day so that it is reloaded on next use.
+	 */
+	public void evict(Long doctorId, LocalDate date) {
+		afterCommit(() -> days.remove(new DoctorDay(doctorId, date)));
+	}
+
+	// Periodically drop expired days so memory stays bounded to days in use.
+	@Scheduled(fixedDelayString = "${appointment.waitlist.purge-interval-ms:600000}")
+	public void purgeExpired() {
+		long ttl = ttlNanos();
+		days.values().removeIf(day -> day.isExpired(ttl));
+	}
+
+	private DayQueue day(Long doctorId, LocalDate date) {
+		DoctorDay key = new DoctorDay(doctorId, date);
+		DayQueue day = days.get(key);
+		if (day != null && day.isExpired(ttlNanos())) {
+			days.remove(key, day);
+		}
+		return days.computeIfAbsent(key, this::load);
+	}
+
+	private DayQueue load(DoctorDay key) {
+		logger.debug("Loading waiting list for doctor {} on {}", key.doctorId(), key.date());
+		List<WaitingAppointment> rows = waitingAppointmentRepository.findByDoctor_DoctorIdAndPreferredTimeBetween(
+				key.doctorId(), key.date().atStartOfDay(), key.date().plusDays(1).atStartOfDay().minusNanos(1));
+		DayQueue day = new DayQueue(System.nanoTime());
+		for (WaitingAppointment row : rows) {
+			day.add(Entry.of(row));
+		}
+		return day;
+	}
+
+	private void restoreOnRollback(DayQueue day, Entry entry) {
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCompletion(int status) {
+					if (status != STATUS_COMMITTED) {
+						synchronized (day) {
+							day.add(entry);
+						}
+					}
+				}
+			});
+		}
+	}
+
+	private long ttlNanos() {
+		return ttlSeconds * 1_000_000_000L;
+	}
+
+	private static void afterCommit(Runnable action) {
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCommit() {
+					action.run();
+				}
+			});
+		} else {
+			action.run();
+		}
+	}
+
+	private record DoctorDay(Long doctorId, LocalDate date) {
+	}
+
+	private record Entry(Long waitingId, Long doctorId, Long patientId, LocalDateTime preferredTime,
+			LocalDateTime requestedAt) {
+
+		static Entry of(WaitingAppointment waiting) {
+			return new Entry(waiting.getId(), waiting.getDoctor().getDoctorId(), waiting.getPatient().getPatientId(),
+					waiting.getPreferredTime(), waiting.getRequestedAt());
+		}
+	}
+
+	// Waiting entries of one doctor-day, one queue per preferred slot. Guarded by its own monitor.
+	private static final class DayQueue {
+		private final NavigableMap<LocalDateTime, PriorityQueue<Entry>> bySlot = new TreeMap<>();
+		private final long loadedAt;
+
+		DayQueue(long loadedAt) {
+			this.loadedAt = loadedAt;
+		}
+
+		void add(Entry entry) {
+			PriorityQueue<Entry> queue = bySlot.computeIfAbsent(entry.preferredTime(), t -> new PriorityQueue<>(ORDER));
+			if (queue.stream().noneMatch(e -> e.waitingId().equals(entry.waitingId()))) {
+				queue.add(entry);
+			}
+		}
+
+		void remove(Entry entry) {
+			PriorityQueue<Entry> queue = bySlot.get(entry.preferredTime());
+			if (queue != null) {
+				queue.removeIf(e -> e.waitingId().equals(entry.waitingId()));
+				if (queue.isEmpty()) {
+					bySlot.remove(entry.preferredTime());
+				}
+			}
+		}
+
+		// Polls the earliest request among the slots in [from, to].
+		synchronized Entry pollFirst(LocalDateTime from, LocalDateTime to) {
+			PriorityQueue<Entry> best = null;
+			for (PriorityQueue<Entry> queue : bySlot.subMap(from, true, to, true).values()) {
+				if (best == null || ORDER.compare(queue.peek(), best.peek()) < 0) {
+					best = queue;
+				}
+			}
+			if (best == null) {
+				return null;
+			}
+			Entry head = best.poll();
+			if (best.isEmpty()) {
+				bySlot.remove(head.preferredTime());
+			}
+			return head;
+		}
+
+		boolean isExpired(long ttlNanos) {
+			return System.nanoTime() - loadedAt > ttlNanos;
+		}
+	}
+}
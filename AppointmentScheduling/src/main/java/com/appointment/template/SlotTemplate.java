@@ -0,0 +1,253 @@
+package com.appointment.template;
+
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * One working-day layout: working hours, breaks, the slot length and the
+ * follow-up-only period. Everything a booking or availability check needs is
+ * computed once when the template is built, so the checks below are array or
+ * bit lookups and the slot lists are shared immutable instances.
+ *
+ * A slot is bookable if it fits the working hours and does not overlap a
+ * break. Follow-up-only slots are still bookable (as follow-ups).
+ */
+public final class SlotTemplate {
+
+	// Bookable slots are exchanged as long bitmasks (slot index = bit index).
+	public static final int MAX_SLOTS = 64;
+
+	private static final int MINUTES_PER_DAY = 24 * 60;
+	private static final DateTimeFormatter HOUR_FORMAT = DateTimeFormatter.ofPattern("H:mm");
+
+	// Per-minute flags for an appointment starting at that minute.
+	private static final byte FITS_HOURS = 1;
+	private static final byte CLEAR_OF_BREAKS = 2;
+	private static final byte FOLLOW_UP_ONLY = 4;
+
+	private final String name;
+	private final LocalTime start;
+	private final LocalTime end;
+	private final int slotMinutes;
+	private final List<Break> breaks;
+	private final LocalTime followUpOnlyFrom;
+
+	private final int startMinute;
+	private final List<LocalTime> slotTimes;
+	private final long bookableMask;
+	private final List<LocalTime> bookableSlots;
+	private final byte[] startFlags = new byte[MINUTES_PER_DAY];
+
+	/**
+	 * @param followUpOnlyFrom start of the follow-up-only period, or null if
+	 *                         regular appointments are allowed all day
+	 */
+	public SlotTemplate(String name, LocalTime start, LocalTime end, int slotMinutes, List<Break> breaks,
+			LocalTime followUpOnlyFrom) {
+		if (slotMinutes <= 0 || !start.isBefore(end)) {
+			throw new IllegalArgumentException("Slot template " + name + " needs a positive slot length and start < end");
+		}
+		this.name = name;
+		this.start = start;
+		this.end = end;
+		this.slotMinutes = slotMinutes;
+		this.breaks = List.copyOf(breaks);
+		this.followUpOnlyFrom = followUpOnlyFrom;
+		this.startMinute = minuteOf(start);
+
+		int endMinute = minuteOf(end);
+		int slotCount = (endMinute - startMinute) / slotMinutes;
+		if (slotCount > MAX_SLOTS) {
+			throw new IllegalArgumentException("Slot template " + name + " has " + slotCount
+					+ " slots; at most " + MAX_SLOTS + " are supported");
+		}
+
+		for (int minute = 0; minute < MINUTES_PER_DAY; minute++) {
+			byte flags = 0;
+			if (minute >= startMinute && minute + slotMinutes <= endMinute) {
+				flags |= FITS_HOURS;
+			}
+			if (!overlapsAnyBreak(minute)) {
+				flags |= CLEAR_OF_BREAKS;
+			}
+			if (followUpOnlyFrom != null && minute >= minuteOf(followUpOnlyFrom)) {
+				flags |= FOLLOW_UP_ONLY;
+			}
+			startFlags[minute] = flags;
+		}
+
+		LocalTime[] times = new LocalTime[slotCount];
+		List<LocalTime> bookable = new ArrayList<>(slotCount);
+		long mask = 0L;
+		for (int i = 0; i < slotCount; i++) {
+			times[i] = start.plusMinutes((long) i * slotMinutes);
+			if ((startFlags[startMinute + i * slotMinutes] & CLEAR_OF_BREAKS) != 0) {
+				mask |= 1L << i;
+				bookable.add(times[i]);
+			}
+		}
+		this.slotTimes = List.of(times);
+		this.bookableMask = mask;
+		this.bookableSlots = List.copyOf(bookable);
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public int getSlotMinutes() {
+		return slotMinutes;
+	}
+
+	/**
+	 * Start times of the whole slot grid, including slots that overlap a break.
+	 * Bit i of a slot mask refers to getSlotTimes().get(i).
+	 */
+	public List<LocalTime> getSlotTimes() {
+		return slotTimes;
+	}
+
+	/**
+	 * Start times of the bookable slots, in order.
+	 */
+	public List<LocalTime> getBookableSlots() {
+		return bookableSlots;
+	}
+
+	public long getBookableMask() {
+		return bookableMask;
+	}
+
+	/**
+	 * True if time is the start of a bookable slot of this template.
+	 */
+	public boolean isSlotStart(LocalTime time) {
+		int index = slotIndex(time);
+		return index >= 0 && (bookableMask & (1L << index)) != 0;
+	}
+
+	/**
+	 * Grid position of time, or -1 if it is not the start of a grid slot.
+	 */
+	public int slotIndex(LocalTime time) {
+		if (!isWholeMinute(time)) {
+			return -1;
+		}
+		int offset = minuteOf(time) - startMinute;
+		if (offset < 0 || offset % slotMinutes != 0) {
+			return -1;
+		}
+		int index = offset / slotMinutes;
+		return index < slotTimes.size() ? index : -1;
+	}
+
+	/**
+	 * Bits of the given slot starts; times that are not grid slot starts are
+	 * ignored.
+	 */
+	public long maskOf(Collection<LocalTime> times) {
+		long mask = 0L;
+		for (LocalTime time : times) {
+			int index = slotIndex(time);
+			if (index >= 0) {
+				mask |= 1L << index;
+			}
+		}
+		return mask;
+	}
+
+	/**
+	 * Start times of the grid slots set in mask, in order.
+	 */
+	public List<LocalTime> slotsOf(long mask) {
+		List<LocalTime> slots = new ArrayList<>(Long.bitCount(mask));
+		while (mask != 0) {
+			int i = Long.numberOfTrailingZeros(mask);
+			if (i >= slotTimes.size()) {
+				break;
+			}
+			slots.add(slotTimes.get(i));
+			mask &= mask - 1;
+		}
+		return slots;
+	}
+
+	/**
+	 * Bits of every grid slot overlapped by an appointment of this template's
+	 * length starting at time; off-grid times cover two slots.
+	 */
+	public long coveredSlots(LocalTime time) {
+		int from = minuteOf(time) - startMinute;
+		int to = from + slotMinutes;
+		long mask = 0L;
+		for (int i = Math.max(0, from / slotMinutes); i < slotTimes.size() && i * slotMinutes < to; i++) {
+			mask |= 1L << i;
+		}
+		return mask;
+	}
+
+	/**
+	 * True if appointments of this template's length starting at a and b overlap.
+	 */
+	public boolean overlaps(LocalTime a, LocalTime b) {
+		return Math.abs(a.toSecondOfDay() - b.toSecondOfDay()) < slotMinutes * 60;
+	}
+
+	public boolean fitsWorkingHours(LocalTime time) {
+		return isWholeMinute(time) && (startFlags[minuteOf(time)] & FITS_HOURS) != 0;
+	}
+
+	public boolean overlapsBreak(LocalTime time) {
+		return !isWholeMinute(time) || (startFlags[minuteOf(time)] & CLEAR_OF_BREAKS) == 0;
+	}
+
+	public boolean isFollowUpOnly(LocalTime time) {
+		return (startFlags[minuteOf(time)] & FOLLOW_UP_ONLY) != 0;
+	}
+
+	// Message texts for rejected times, worded as the hospital hours used to be.
+	public String describeWorkingHours() {
+		return "between " + HOUR_FORMAT.format(start) + " and " + HOUR_FORMAT.format(end.minusMinutes(slotMinutes))
+				+ " so that it finishes by " + HOUR_FORMAT.format(end);
+	}
+
+	public String describeBreak(LocalTime time) {
+		int from = minuteOf(time);
+		for (Break b : breaks) {
+			if (from < minuteOf(b.end()) && from + slotMinutes > minuteOf(b.start())) {
+				return b.name() + " (" + HOUR_FORMAT.format(b.start()) + " to " + HOUR_FORMAT.format(b.end()) + ")";
+			}
+		}
+		return "break";
+	}
+
+	public String describeFollowUpOnly() {
+		return "between " + HOUR_FORMAT.format(followUpOnlyFrom) + " and " + HOUR_FORMAT.format(end);
+	}
+
+	private boolean overlapsAnyBreak(int minute) {
+		for (Break b : breaks) {
+			if (minute < minuteOf(b.end()) && minute + slotMinutes > minuteOf(b.start())) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static boolean isWholeMinute(LocalTime time) {
+		return time.getSecond() == 0 && time.getNano() == 0;
+	}
+
+	private static int minuteOf(LocalTime time) {
+		return time.getHour() * 60 + time.getMinute();
+	}
+
+	/**
+	 * A period in which no regular slot may start or run, e.g. lunch.
+	 */
+	public record Break(String name, LocalTime start, LocalTime end) {
+	}
+}
@@ -0,0 +1,59 @@
+package com.appointment.template;
+
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * Slot template definitions, bound from scheduling.slot-templates.*. The
+ * defaults are the hospital hours every doctor had before templates existed:
+ * 9:30 to 18:00 in 30-minute slots, lunch from 13:00 to 14:30 and follow-ups
+ * only from 16:00.
+ */
+@Data
+@ConfigurationProperties(prefix = "scheduling.slot-templates")
+public class SlotTemplateProperties {
+
+	// Used for every doctor-day no assignment matches.
+	private Definition defaults = new Definition();
+
+	// Named templates that assignments refer to.
+	private Map<String, Definition> templates = new LinkedHashMap<>();
+
+	// Checked in order; the first one matching the doctor and weekday wins.
+	private List<Assignment> assignments = new ArrayList<>();
+
+	@Data
+	public static class Definition {
+		private LocalTime start = LocalTime.of(9, 30);
+		private LocalTime end = LocalTime.of(18, 0);
+		private int slotMinutes = 30;
+		private List<BreakPeriod> breaks = new ArrayList<>(List.of(new BreakPeriod()));
+		// Null allows regular appointments for the whole day.
+		private LocalTime followUpOnlyFrom = LocalTime.of(16, 0);
+	}
+
+	@Data
+	public static class BreakPeriod {
+		private String name = "lunch break";
+		private LocalTime start = LocalTime.of(13, 0);
+		private LocalTime end = LocalTime.of(14, 30);
+	}
+
+	@Data
+	public static class Assignment {
+		private String template;
+		// Empty means every doctor.
+		private Set<Long> doctorIds = Set.of();
+		// Empty means every day of the week.
+		private Set<DayOfWeek> days = Set.of();
+	}
+}
@@ -0,0 +1,94 @@
+package com.appointment.template;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import com.appointment.template.SlotTemplateProperties.Assignment;
+import com.appointment.template.SlotTemplateProperties.Definition;
+
+/**
+ * Resolves the slot template of a doctor-day. Templates are built once from
+ * SlotTemplateProperties at startup and resolved per (doctor, weekday) with
+ * two array lookups: the doctor's own assignments first, then the assignments
+ * for every doctor, then the default template.
+ */
+@Component
+@EnableConfigurationProperties(SlotTemplateProperties.class)
+public class SlotTemplateRegistry {
+
+	private static final Logger logger = LoggerFactory.getLogger(SlotTemplateRegistry.class);
+
+	public static final String DEFAULT_TEMPLATE = "default";
+
+	private final SlotTemplate defaultTemplate;
+	private final Map<String, SlotTemplate> templates = new LinkedHashMap<>();
+	// Index is DayOfWeek.ordinal(); null entries fall through to the next level.
+	private final SlotTemplate[] allDoctors = new SlotTemplate[7];
+	private final Map<Long, SlotTemplate[]> byDoctor = new HashMap<>();
+
+	public SlotTemplateRegistry(SlotTemplateProperties properties) {
+		defaultTemplate = build(DEFAULT_TEMPLATE, properties.getDefaults());
+		templates.put(DEFAULT_TEMPLATE, defaultTemplate);
+		properties.getTemplates().forEach((name, definition) -> templates.put(name, build(name, definition)));
+
+		for (Assignment assignment : properties.getAssignments()) {
+			SlotTemplate template = templates.get(assignment.getTemplate());
+			if (template == null) {
+				throw new IllegalArgumentException("Unknown slot template: " + assignment.getTemplate());
+			}
+			Collection<DayOfWeek> days = assignment.getDays().isEmpty() ? List.of(DayOfWeek.values())
+					: assignment.getDays();
+			if (assignment.getDoctorIds().isEmpty()) {
+				assign(allDoctors, days, template);
+			} else {
+				for (Long doctorId : assignment.getDoctorIds()) {
+					assign(byDoctor.computeIfAbsent(doctorId, id -> new SlotTemplate[7]), days, template);
+				}
+			}
+		}
+		logger.info("Loaded {} slot templates with {} doctor-specific assignments", templates.size(),
+				byDoctor.size());
+	}
+
+	/**
+	 * The template that applies to the doctor on date.
+	 */
+	public SlotTemplate forDoctorDay(Long doctorId, LocalDate date) {
+		int day = date.getDayOfWeek().ordinal();
+		SlotTemplate[] doctorDays = byDoctor.get(doctorId);
+		if (doctorDays != null && doctorDays[day] != null) {
+			return doctorDays[day];
+		}
+		return allDoctors[day] != null ? allDoctors[day] : defaultTemplate;
+	}
+
+	public SlotTemplate getDefaultTemplate() {
+		return defaultTemplate;
+	}
+
+	// Earlier assignments take precedence, so only empty days are filled.
+	private static void assign(SlotTemplate[] week, Collection<DayOfWeek> days, SlotTemplate template) {
+		for (DayOfWeek day : days) {
+			if (week[day.ordinal()] == null) {
+				week[day.ordinal()] = template;
+			}
+		}
+	}
+
+	private static SlotTemplate build(String name, Definition definition) {
+		return new SlotTemplate(name, definition.getStart(), definition.getEnd(), definition.getSlotMinutes(),
+				definition.getBreaks().stream()
+						.map(b -> new SlotTemplate.Break(b.getName(), b.getStart(), b.getEnd())).toList(),
+				definition.getFollowUpOnlyFrom());
+	}
+}
@@ -0,0 +1,95 @@
+package db.migration;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Locale;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Brings an appointments table created by hibernate ddl-auto=update before
+ * Flyway (on which V1 is a no-op) up to the V1 shape: the active_slot column,
+ * uk_appointments_active_slot and idx_appointments_patient_history. Each part
+ * is added only if it is missing, so databases created by V1 are unchanged.
+ *
+ * active_slot is backfilled for BOOKED rows before the unique key is added.
+ * If a legacy race left several BOOKED rows for one slot, only the lowest id
+ * is marked active, so that the key can be created; the others are logged.
+ *
+ * A Java migration because MySQL has no ADD COLUMN IF NOT EXISTS.
+ */
+public class V4__add_active_slot_to_existing_appointments extends BaseJavaMigration {
+
+	private static final Logger logger = LoggerFactory.getLogger(V4__add_active_slot_to_existing_appointments.class);
+
+	private static final String TABLE = "appointments";
+
+	// Marks the first BOOKED row of each slot that has no active row yet. The
+	// derived table lets MySQL read the table that is being updated.
+	private static final String BACKFILL_SQL = "UPDATE appointments SET active_slot = TRUE WHERE appointment_id IN ("
+			+ "SELECT appointment_id FROM (SELECT MIN(appointment_id) AS appointment_id FROM appointments "
+			+ "WHERE status = 'BOOKED' GROUP BY doctor_id, appointment_date, appointment_time "
+			+ "HAVING COUNT(active_slot) = 0) first_booked)";
+
+	private static final String DUPLICATES_SQL = "SELECT COUNT(*) FROM appointments "
+			+ "WHERE status = 'BOOKED' AND active_slot IS NULL";
+
+	@Override
+	public void migrate(Context context) throws Exception {
+		Connection connection = context.getConnection();
+		try (Statement statement = connection.createStatement()) {
+			if (!hasColumn(connection, "active_slot")) {
+				statement.execute("ALTER TABLE appointments ADD COLUMN active_slot BIT");
+			}
+			int backfilled = statement.executeUpdate(BACKFILL_SQL);
+			logger.info("Marked {} booked appointments as holding their slot", backfilled);
+			try (ResultSet rs = statement.executeQuery(DUPLICATES_SQL)) {
+				if (rs.next() && rs.getLong(1) > 0) {
+					logger.warn("{} booked appointments share a slot with an earlier booking and were not marked "
+							+ "active; review them manually", rs.getLong(1));
+				}
+			}
+			if (!hasIndex(connection, "uk_appointments_active_slot")) {
+				statement.execute("ALTER TABLE appointments ADD CONSTRAINT uk_appointments_active_slot "
+						+ "UNIQUE (doctor_id, appointment_date, appointment_time, active_slot)");
+			}
+			if (!hasIndex(connection, "idx_appointments_patient_history")) {
+				statement.execute("CREATE INDEX idx_appointments_patient_history "
+						+ "ON appointments (patient_id, appointment_date, appointment_time, appointment_id)");
+			}
+		}
+	}
+
+	private static boolean hasColumn(Connection connection, String column) throws SQLException {
+		DatabaseMetaData metaData = connection.getMetaData();
+		try (ResultSet rs = metaData.getColumns(connection.getCatalog(), connection.getSchema(), TABLE, null)) {
+			while (rs.next()) {
+				if (column.equalsIgnoreCase(rs.getString("COLUMN_NAME"))) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	// Some databases name the index behind a unique constraint after the constraint plus a suffix.
+	private static boolean hasIndex(Connection connection, String index) throws SQLException {
+		DatabaseMetaData metaData = connection.getMetaData();
+		try (ResultSet rs = metaData.getIndexInfo(connection.getCatalog(), connection.getSchema(), TABLE, false,
+				false)) {
+			while (rs.next()) {
+				String name = rs.getString("INDEX_NAME");
+				if (name != null && name.toLowerCase(Locale.ROOT).startsWith(index)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+}
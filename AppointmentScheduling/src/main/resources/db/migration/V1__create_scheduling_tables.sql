@@ -0,0 +1,30 @@
+-- Scheduling tables as previously created by hibernate ddl-auto=update.
+-- IF NOT EXISTS keeps this a no-op on databases that already have them.
+-- users, doctors and patients are owned by UserManagement.
+
+CREATE TABLE IF NOT EXISTS appointments (
+    appointment_id   BIGINT NOT NULL AUTO_INCREMENT,
+    doctor_id        BIGINT NOT NULL,
+    patient_id       BIGINT NOT NULL,
+    appointment_date DATE,
+    appointment_time TIME(6),
+    status           ENUM('BOOKED', 'CANCELLED', 'COMPLETED'),
+    follow_up        BIT NOT NULL,
+    active_slot      BIT,
+    PRIMARY KEY (appointment_id),
+    CONSTRAINT uk_appointments_active_slot UNIQUE (doctor_id, appointment_date, appointment_time, active_slot),
+    INDEX idx_appointments_patient_history (patient_id, appointment_date, appointment_time, appointment_id),
+    CONSTRAINT fk_appointments_doctor FOREIGN KEY (doctor_id) REFERENCES doctors (doctor_id),
+    CONSTRAINT fk_appointments_patient FOREIGN KEY (patient_id) REFERENCES patients (patient_id)
+);
+
+CREATE TABLE IF NOT EXISTS waiting_appointments (
+    id             BIGINT NOT NULL AUTO_INCREMENT,
+    doctor_id      BIGINT NOT NULL,
+    patient_id     BIGINT NOT NULL,
+    preferred_time DATETIME(6),
+    requested_at   DATETIME(6),
+    PRIMARY KEY (id),
+    CONSTRAINT fk_waiting_appointments_doctor FOREIGN KEY (doctor_id) REFERENCES doctors (doctor_id),
+    CONSTRAINT fk_waiting_appointments_patient FOREIGN KEY (patient_id) REFERENCES patients (patient_id)
+);
@@ -0,0 +1,10 @@
+-- Indexes for the scheduling finders.
+-- appointments (doctor_id, appointment_date, appointment_time) is served by the
+-- prefix of uk_appointments_active_slot, and appointments (patient_id) by the
+-- prefix of idx_appointments_patient_history.
+
+-- findByAppointmentDateAndStatus, overdue cancellation job
+CREATE INDEX idx_appointments_date_status ON appointments (appointment_date, status, appointment_time);
+
+-- findByDoctorAndPreferredTimeBetween, waitlist engine load, overdue waitlist cleanup
+CREATE INDEX idx_waiting_doctor_preferred_time ON waiting_appointments (doctor_id, preferred_time);
@@ -0,0 +1,14 @@
+-- Materialized slot state per doctor-day (see DoctorDaySlotStore), read by
+-- DoctorAvailability with one primary-key lookup. Bit i of each mask is slot i
+-- of the doctor-day's SlotTemplate. A NULL mask is not materialized yet and is
+-- rebuilt from its source table (appointments, availability busy slots) on use.
+
+CREATE TABLE IF NOT EXISTS doctor_day_slots (
+    doctor_id    BIGINT NOT NULL,
+    slot_date    DATE NOT NULL,
+    booked_mask  BIGINT,
+    blocked_mask BIGINT,
+    updated_at   DATETIME(6) NOT NULL,
+    PRIMARY KEY (doctor_id, slot_date),
+    CONSTRAINT fk_doctor_day_slots_doctor FOREIGN KEY (doctor_id) REFERENCES doctors (doctor_id)
+);
@@ -0,0 +1,12 @@
+-- Change log of users' doctor and patient data, written by UserManagement and
+-- polled by ReferenceDataCache. Owned by UserManagement like users, doctors
+-- and patients, but created here too so that ddl-auto=validate does not depend
+-- on which service was upgraded first.
+
+CREATE TABLE IF NOT EXISTS reference_data_changes (
+    id         BIGINT NOT NULL AUTO_INCREMENT,
+    user_id    BIGINT NOT NULL,
+    changed_at DATETIME(6) NOT NULL,
+    PRIMARY KEY (id),
+    INDEX idx_reference_data_changes_changed_at (changed_at)
+);
@@ -0,0 +1,13 @@
+-- Change log of doctor-days whose appointments were changed in bulk, for
+-- example by DoctorAvailability cancelling blocked slots. Written in the same
+-- transaction as the change and polled by every SlotOccupancyIndex, so each
+-- process drops its cached copy of the doctor-day.
+
+CREATE TABLE IF NOT EXISTS doctor_day_changes (
+    id         BIGINT NOT NULL AUTO_INCREMENT,
+    doctor_id  BIGINT NOT NULL,
+    slot_date  DATE NOT NULL,
+    changed_at DATETIME(6) NOT NULL,
+    PRIMARY KEY (id),
+    INDEX idx_doctor_day_changes_changed_at (changed_at)
+);
@@ -0,0 +1,143 @@
+package com.appointment.repository.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.appointment.entity.Appointment;
+import com.appointment.entity.AppointmentStatus;
+import com.appointment.repository.AppointmentRepository;
+import com.appointment.repository.AppointmentRepository.PatientAppointmentRow;
+import com.example.demo.entity.Doctor;
+import com.example.demo.entity.Patient;
+import com.example.demo.entity.Role;
+import com.example.demo.entity.User;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+
+/**
+ * Compares the statement count and latency of the entity-based patient history
+ * read with the joined projection query, for a patient with 520 appointments
+ * spread over 20 doctors. Runs against in-memory H2.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.flyway.enabled=false",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.jpa.show-sql=false" })
+public class PatientHistoryQueryBenchmarkTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(PatientHistoryQueryBenchmarkTest.class);
+
+    private static final int DOCTORS = 20;
+    private static final int APPOINTMENTS = 520;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    private Long patientId;
+
+    @BeforeEach
+    public void setUp() {
+        List<Doctor> doctors = new ArrayList<>();
+        for (int i = 0; i < DOCTORS; i++) {
+            Doctor doctor = new Doctor();
+            doctor.setUser(user("Doctor " + i, Role.DOCTOR));
+            doctor.setSpecialization("Nephrology");
+            doctor.setRoomNumber("R" + i);
+            doctors.add(entityManager.persist(doctor));
+        }
+        Patient patient = new Patient();
+        patient.setUser(user("Patient", Role.PATIENT));
+        patientId = entityManager.persist(patient).getPatientId();
+
+        LocalDate start = LocalDate.now().minusYears(2);
+        for (int i = 0; i < APPOINTMENTS; i++) {
+            Appointment appointment = new Appointment();
+            appointment.setDoctor(doctors.get(i % DOCTORS));
+            appointment.setPatient(patient);
+            appointment.setAppointmentDate(start.plusDays(i / DOCTORS));
+            appointment.setAppointmentTime(LocalTime.of(10, 0));
+            appointment.setStatus(AppointmentStatus.COMPLETED);
+            entityManager.persist(appointment);
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    public void testHistoryProjection_SingleStatementForLargeHistory() {
+        Statistics statistics = entityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+
+        statistics.clear();
+        long entityStart = System.nanoTime();
+        List<Appointment> appointments = appointmentRepository.findByPatient_PatientId(patientId);
+        appointments.forEach(a -> a.getDoctor().getUser().getName());
+        long entityNanos = System.nanoTime() - entityStart;
+        long entityStatements = statistics.getPrepareStatementCount();
+        entityManager.clear();
+
+        statistics.clear();
+        long projectionStart = System.nanoTime();
+        List<PatientAppointmentRow> rows = appointmentRepository.findHistoryByPatientId(patientId);
+        long projectionNanos = System.nanoTime() - projectionStart;
+        long projectionStatements = statistics.getPrepareStatementCount();
+
+        logger.info("Patient history with {} appointments: entities {} statements in {} ms, projection {} statements in {} ms",
+                APPOINTMENTS, entityStatements, entityNanos / 1_000_000, projectionStatements,
+                projectionNanos / 1_000_000);
+
+        assertEquals(APPOINTMENTS, appointments.size());
+        assertEquals(APPOINTMENTS, rows.size());
+        assertEquals(1, projectionStatements, "The projection must be a single query.");
+        assertTrue(entityStatements > DOCTORS, "The entity path loads every doctor separately.");
+        assertEquals("Doctor 0", rows.get(0).getDoctorName());
+    }
+
+    @Test
+    public void testHistoryKeyset_PagesWalkTheWholeHistoryInOrder() {
+        Statistics statistics = entityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        List<Long> ids = new ArrayList<>();
+        List<PatientAppointmentRow> page = appointmentRepository.findHistoryByPatientId(patientId, PageRequest.of(0, 100));
+        while (!page.isEmpty()) {
+            page.forEach(r -> ids.add(r.getAppointmentId()));
+            PatientAppointmentRow last = page.get(page.size() - 1);
+            page = appointmentRepository.findHistoryByPatientIdAfter(patientId, last.getAppointmentDate(),
+                    last.getAppointmentTime(), last.getAppointmentId(), PageRequest.of(0, 100));
+        }
+
+        assertEquals(APPOINTMENTS, ids.size());
+        assertEquals(APPOINTMENTS, ids.stream().distinct().count());
+        // Six pages of at most 100 rows, plus the empty one that ends the walk.
+        assertEquals(7, statistics.getPrepareStatementCount());
+    }
+
+    private User user(String name, Role role) {
+        User user = new User();
+        user.setName(name);
+        user.setEmail(name.replace(' ', '.') + "@hospital.test");
+        user.setRole(role);
+        return entityManager.persist(user);
+    }
+}
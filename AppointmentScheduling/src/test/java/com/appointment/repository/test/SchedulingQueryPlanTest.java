@@ -0,0 +1,192 @@
+package com.appointment.repository.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+import javax.sql.DataSource;
+
+import com.appointment.entity.AppointmentStatus;
+import com.appointment.repository.AppointmentRepository;
+import com.appointment.repository.WaitingAppointmentRepository;
+import com.example.demo.entity.Doctor;
+import com.example.demo.entity.Patient;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Applies the Flyway migrations to H2 in MySQL mode, starting from scheduling
+ * tables as hibernate ddl-auto=update created them before Flyway
+ * (db/testbaseline), and checks with EXPLAIN that the SQL Hibernate generates
+ * for each AppointmentRepository and WaitingAppointmentRepository finder is
+ * answered through an index, not a table scan. db/testschema adds the
+ * UserManagement tables the migrations reference.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:scheduling_plans;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.flyway.locations=classpath:db/migration,classpath:db/testschema,classpath:db/testbaseline",
+        "spring.flyway.baseline-on-migrate=false",
+        "spring.jpa.hibernate.ddl-auto=none",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+                + "com.appointment.repository.test.SchedulingQueryPlanTest$CapturedSql" })
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+public class SchedulingQueryPlanTest {
+
+    private static final LocalDate DAY = LocalDate.of(2025, 6, 2);
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private WaitingAppointmentRepository waitingAppointmentRepository;
+
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    public void setUp() {
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        for (int i = 1; i <= 20; i++) {
+            jdbcTemplate.update("INSERT INTO doctors (doctor_id) VALUES (?)", i);
+            jdbcTemplate.update("INSERT INTO patients (patient_id) VALUES (?)", i);
+        }
+        // A few hundred rows so that the optimizer has a reason to prefer an index.
+        for (int i = 0; i < 400; i++) {
+            LocalDate date = DAY.plusDays(i / 20 % 10);
+            LocalTime time = LocalTime.of(9, 30).plusMinutes(30L * (i / 200));
+            jdbcTemplate.update("INSERT INTO appointments (doctor_id, patient_id, appointment_date, appointment_time, "
+                    + "status, follow_up, active_slot) VALUES (?, ?, ?, ?, 'BOOKED', FALSE, TRUE)",
+                    i % 20 + 1, i % 7 + 1, date, time);
+            jdbcTemplate.update("INSERT INTO waiting_appointments (doctor_id, patient_id, preferred_time, requested_at) "
+                    + "VALUES (?, ?, ?, ?)", i % 20 + 1, i % 11 + 1, date.atTime(time), date.atStartOfDay());
+        }
+    }
+
+    @Test
+    public void testPreFlywayAppointments_AreUpgradedByV4() {
+        // The first booking of the slot holds it; the duplicate and the cancelled row do not.
+        assertEquals(Boolean.TRUE, activeSlot(9001));
+        assertNull(activeSlot(9002));
+        assertNull(activeSlot(9003));
+        assertThrows(DataIntegrityViolationException.class,
+                () -> jdbcTemplate.update("UPDATE appointments SET active_slot = TRUE WHERE appointment_id = 9002"));
+    }
+
+    @Test
+    public void testAppointmentFinders_UseIndexes() {
+        Doctor doctor = entityManager.getEntityManager().getReference(Doctor.class, 5L);
+        Patient patient = entityManager.getEntityManager().getReference(Patient.class, 3L);
+        LocalDate date = DAY.plusDays(1);
+
+        assertIndexed(sqlOf("appointments", () -> appointmentRepository.findHistoryByPatientId(3L)),
+                "idx_appointments_patient_history");
+        assertIndexed(sqlOf("appointments", () -> appointmentRepository.findByPatient_PatientId(3L)),
+                "idx_appointments_patient_history");
+        assertIndexed(sqlOf("appointments",
+                () -> appointmentRepository.findHistoryByPatientId(3L, PageRequest.of(0, 51))),
+                "idx_appointments_patient_history");
+        assertIndexed(sqlOf("appointments", () -> appointmentRepository.findHistoryByPatientIdAfter(3L, date,
+                LocalTime.of(10, 0), 40L, PageRequest.of(0, 51))), "idx_appointments_patient_history");
+        assertIndexed(sqlOf("appointments", () -> appointmentRepository.findByDoctorAndAppointmentDate(doctor, date)),
+                "uk_appointments_active_slot");
+        assertIndexed(sqlOf("appointments", () -> appointmentRepository
+                .findByDoctor_DoctorIdAndAppointmentDateAndStatus(5L, date, AppointmentStatus.BOOKED)),
+                "uk_appointments_active_slot");
+        assertIndexed(sqlOf("appointments", () -> appointmentRepository
+                .findFirstByDoctorAndPatientAndAppointmentDateAndAppointmentTime(doctor, patient, date,
+                        LocalTime.of(10, 0))), null);
+        assertIndexed(sqlOf("appointments", () -> appointmentRepository.findBookedSlots(List.of(5L, 6L, 7L), DAY,
+                DAY.plusDays(6), AppointmentStatus.BOOKED)), "uk_appointments_active_slot");
+        assertIndexed(sqlOf("appointments", () -> appointmentRepository.findSlotsByDoctorAndDateAndStatus(5L, date,
+                AppointmentStatus.BOOKED)), "uk_appointments_active_slot");
+        assertIndexed(sqlOf("appointments", () -> appointmentRepository.findSlotsByDoctorsAndDateRangeAndStatus(
+                List.of(5L, 6L, 7L), DAY, DAY.plusDays(6), AppointmentStatus.BOOKED)), "uk_appointments_active_slot");
+        assertIndexed(sqlOf("appointments", () -> appointmentRepository.findByAppointmentDateAndStatus(date,
+                AppointmentStatus.BOOKED)), "idx_appointments_date_status");
+        assertIndexed(sqlOf("appointments", () -> appointmentRepository.findSlotsByDateAndStatusBefore(date,
+                AppointmentStatus.BOOKED, LocalTime.of(18, 0), PageRequest.of(0, 500))),
+                "idx_appointments_date_status");
+    }
+
+    @Test
+    public void testWaitingAppointmentFinders_UseIndexes() {
+        Doctor doctor = entityManager.getEntityManager().getReference(Doctor.class, 5L);
+        Patient patient = entityManager.getEntityManager().getReference(Patient.class, 3L);
+        LocalDateTime slot = DAY.plusDays(1).atTime(10, 0);
+
+        assertIndexed(sqlOf("waiting_appointments", () -> waitingAppointmentRepository
+                .findByDoctorAndPreferredTimeBetween(doctor, slot.minusMinutes(15), slot.plusMinutes(15))),
+                "idx_waiting_doctor_preferred_time");
+        assertIndexed(sqlOf("waiting_appointments", () -> waitingAppointmentRepository
+                .findByDoctor_DoctorIdAndPreferredTimeBetween(5L, slot.minusMinutes(15), slot.plusMinutes(15))),
+                "idx_waiting_doctor_preferred_time");
+        assertIndexed(sqlOf("waiting_appointments",
+                () -> waitingAppointmentRepository.findByDoctorAndPatient(doctor, patient)), null);
+    }
+
+    private Boolean activeSlot(long appointmentId) {
+        return jdbcTemplate.queryForObject("SELECT active_slot FROM appointments WHERE appointment_id = ?",
+                Boolean.class, appointmentId);
+    }
+
+    // Runs the finder and returns the first statement it sent that reads the table.
+    private String sqlOf(String table, Runnable finder) {
+        CapturedSql.STATEMENTS.clear();
+        finder.run();
+        return CapturedSql.STATEMENTS.stream()
+                .filter(sql -> sql.toLowerCase(Locale.ROOT).contains("from " + table + " "))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("No query on " + table + " in " + CapturedSql.STATEMENTS));
+    }
+
+    // Asserts that the plan has no table scan and, if given, that it uses the expected index.
+    // EXPLAIN does not need the statement's parameters to be bound.
+    private void assertIndexed(String sql, String expectedIndex) {
+        String plan = jdbcTemplate.query(con -> con.prepareStatement("EXPLAIN " + sql),
+                rs -> rs.next() ? rs.getString(1) : null);
+        assertFalse(plan.contains("tableScan"), () -> "Full scan for: " + sql + "\n" + plan);
+        if (expectedIndex != null) {
+            assertTrue(plan.toLowerCase().contains(expectedIndex), () -> "Expected " + expectedIndex + " in:\n" + plan);
+        }
+    }
+
+    /**
+     * Records the SQL of every statement Hibernate prepares.
+     */
+    public static class CapturedSql implements StatementInspector {
+
+        static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            STATEMENTS.add(sql);
+            return sql;
+        }
+    }
+}
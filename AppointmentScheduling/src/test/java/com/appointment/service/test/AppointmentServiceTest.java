@@ -1,36 +1,64 @@
 package com.appointment.service.test;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 import java.time.LocalDate;
+import java.sql.SQLException;
 import java.time.LocalTime;
+import java.time.LocalDateTime;
 import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
 
 import com.appointment.dto.AppointmentRequestDTO;
+import com.appointment.dto.AppointmentUpdateDTO;
 import com.appointment.dto.BookingResult;
 import com.appointment.entity.Appointment;
 import com.appointment.entity.AppointmentStatus;
+import com.appointment.entity.WaitingAppointment;
+import com.appointment.exception.SlotConflictException;
 import com.appointment.repository.AppointmentRepository;
+import com.appointment.repository.AppointmentRepository.AppointmentSlot;
 import com.appointment.repository.WaitingAppointmentRepository;
 import com.appointment.service.AppointmentService;
+import com.appointment.service.DoctorDaySlotStore;
+import com.appointment.service.SlotLockRegistry;
+import com.appointment.service.SlotOccupancyIndex;
+import com.appointment.service.WaitlistEngine;
+import com.appointment.template.SlotTemplateProperties;
+import com.appointment.template.SlotTemplateRegistry;
+import com.example.demo.cache.ReferenceDataCache;
 import com.example.demo.entity.Doctor;
 import com.example.demo.entity.Patient;
+import com.example.demo.entity.Role;
 import com.example.demo.entity.User;
 import com.example.demo.repository.DoctorRepository;
 import com.example.demo.repository.PatientRepository;
 
+import org.hibernate.exception.ConstraintViolationException;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 @ExtendWith(MockitoExtension.class)
 public class AppointmentServiceTest {
@@ -50,13 +78,34 @@ public class AppointmentServiceTest {
     @Mock
     private DoctorRepository doctorRepository;
 
+    @Mock
+    private ReferenceDataCache referenceDataCache;
+
+    @Mock
+    private SlotOccupancyIndex slotOccupancyIndex;
+
+    @Mock
+    private DoctorDaySlotStore doctorDaySlotStore;
+
+    @Mock
+    private SlotLockRegistry slotLockRegistry;
+
+    @Mock
+    private WaitlistEngine waitlistEngine;
+
+    @Spy
+    private SlotTemplateRegistry slotTemplateRegistry = new SlotTemplateRegistry(new SlotTemplateProperties());
+
+    @Spy
+    private TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+
     @Test
     public void testBookOrWaitAppointment_SuccessfulBooking() {
         // Arrange: Prepare the AppointmentRequestDTO with a valid, future appointment.
         AppointmentRequestDTO request = new AppointmentRequestDTO();
         request.setPatientId(1L);
         request.setDoctorId(7L);
-        request.setAppointmentDate(LocalDate.of(2025, 7, 4));
+        request.setAppointmentDate(LocalDate.now().plusDays(7));
         request.setAppointmentTime(LocalTime.of(10, 30));
       //  LocalDateTime appointmentDateTime = LocalDateTime.of(request.getAppointmentDate(), request.getAppointmentTime());
 
@@ -74,8 +123,8 @@ public class AppointmentServiceTest {
         doctor.setUser(doctorUser);
 
         // Stub repository calls.
-        when(patientRepository.findById(1L)).thenReturn(Optional.of(patient));
-        when(doctorRepository.findById(7L)).thenReturn(Optional.of(doctor));
+        when(referenceDataCache.findPatient(1L)).thenReturn(Optional.of(patient));
+        when(referenceDataCache.findDoctor(7L)).thenReturn(Optional.of(doctor));
         // Ensure no duplicate appointment exists.
         when(appointmentRepository.findFirstByDoctorAndPatientAndAppointmentDateAndAppointmentTime(
                 eq(doctor), eq(patient), eq(request.getAppointmentDate()), eq(request.getAppointmentTime())))
@@ -109,6 +158,217 @@ public class AppointmentServiceTest {
         assertEquals("Appointment booked successfully.", result.getMessage(), "Success message must be set.");
     }
 
+    @Test
+    public void testBookOrWaitAppointments_SecondRequestForSameSlotIsWaitListed() {
+        LocalDate date = LocalDate.now().plusDays(7);
+        Doctor doctor = new Doctor();
+        doctor.setDoctorId(7L);
+        User doctorUser = new User();
+        doctorUser.setRole(Role.DOCTOR);
+        doctor.setUser(doctorUser);
+        Patient first = new Patient();
+        first.setPatientId(1L);
+        Patient second = new Patient();
+        second.setPatientId(2L);
+        User secondUser = new User();
+        secondUser.setRole(Role.PATIENT);
+        second.setUser(secondUser);
+
+        when(patientRepository.findAllById(any())).thenReturn(List.of(first, second));
+        when(doctorRepository.findAllById(any())).thenReturn(List.of(doctor));
+        when(appointmentRepository.findByDoctorAndAppointmentDate(doctor, date)).thenReturn(Collections.emptyList());
+        when(appointmentRepository.saveAll(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(waitingAppointmentRepository.saveAll(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        List<BookingResult> results = appointmentService.bookOrWaitAppointments(List.of(
+                request(1L, 7L, date, LocalTime.of(10, 30)),
+                request(2L, 7L, date, LocalTime.of(10, 30)),
+                request(2L, 7L, LocalDate.now().minusDays(1), LocalTime.of(10, 30))));
+
+        assertEquals(3, results.size());
+        assertTrue(results.get(0).isBooked(), "First request should take the slot.");
+        assertFalse(results.get(1).isBooked(), "Second request for the same slot should wait.");
+        assertNotNull(results.get(1).getWaitingAppointment());
+        assertEquals("Cannot book an appointment in the past.", results.get(2).getMessage());
+        // One appointment query for the single doctor-day in the batch.
+        verify(appointmentRepository, times(1)).findByDoctorAndAppointmentDate(doctor, date);
+    }
+
+    @Test
+    public void testWaitOnConflict_PatientAlreadyWaitingIsRejected() {
+        LocalDate date = LocalDate.now().plusDays(7);
+        when(waitlistEngine.isWaiting(7L, 1L, date.atTime(10, 30))).thenReturn(true);
+
+        RuntimeException exception = assertThrows(RuntimeException.class,
+                () -> appointmentService.waitOnConflict(request(1L, 7L, date, LocalTime.of(10, 30))));
+
+        assertEquals("Duplicate waiting: You are already on the waiting list for this slot.", exception.getMessage());
+        verify(waitingAppointmentRepository, never()).saveAndFlush(any());
+    }
+
+    @Test
+    public void testBookOrWaitAppointments_LostSlotRaceRetriesTheDoctorDay() {
+        LocalDate date = LocalDate.now().plusDays(7);
+        Doctor doctor = new Doctor();
+        doctor.setDoctorId(7L);
+        User doctorUser = new User();
+        doctorUser.setRole(Role.DOCTOR);
+        doctor.setUser(doctorUser);
+        Patient patient = new Patient();
+        patient.setPatientId(1L);
+        User patientUser = new User();
+        patientUser.setRole(Role.PATIENT);
+        patient.setUser(patientUser);
+        Patient other = new Patient();
+        other.setPatientId(9L);
+        Appointment competing = new Appointment();
+        competing.setPatient(other);
+        competing.setAppointmentDate(date);
+        competing.setAppointmentTime(LocalTime.of(10, 30));
+        DataIntegrityViolationException conflict = new DataIntegrityViolationException("duplicate",
+                new ConstraintViolationException("duplicate", new SQLException("Duplicate entry"),
+                        "appointments.uk_appointments_active_slot"));
+
+        when(patientRepository.findAllById(any())).thenReturn(List.of(patient));
+        when(doctorRepository.findAllById(any())).thenReturn(List.of(doctor));
+        // Another instance commits an appointment for the slot between the read and the insert.
+        when(appointmentRepository.findByDoctorAndAppointmentDate(doctor, date))
+                .thenReturn(Collections.emptyList(), List.of(competing));
+        when(appointmentRepository.saveAll(any())).thenThrow(conflict)
+                .thenAnswer(invocation -> invocation.getArgument(0));
+        when(waitingAppointmentRepository.saveAll(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        List<BookingResult> results = appointmentService.bookOrWaitAppointments(
+                List.of(request(1L, 7L, date, LocalTime.of(10, 30))));
+
+        assertFalse(results.get(0).isBooked());
+        assertNotNull(results.get(0).getWaitingAppointment(), "The retry should wait-list the request.");
+        verify(appointmentRepository, times(2)).findByDoctorAndAppointmentDate(doctor, date);
+    }
+
+    @Test
+    public void testBookOrWaitAppointments_LockTimeoutFailsOnlyItsDoctorDay() {
+        LocalDate date = LocalDate.now().plusDays(7);
+        Doctor doctor = new Doctor();
+        doctor.setDoctorId(7L);
+        User doctorUser = new User();
+        doctorUser.setRole(Role.DOCTOR);
+        doctor.setUser(doctorUser);
+        Patient patient = new Patient();
+        patient.setPatientId(1L);
+
+        when(patientRepository.findAllById(any())).thenReturn(List.of(patient));
+        when(doctorRepository.findAllById(any())).thenReturn(List.of(doctor));
+        when(appointmentRepository.findByDoctorAndAppointmentDate(eq(doctor), any(LocalDate.class)))
+                .thenReturn(Collections.emptyList());
+        when(appointmentRepository.saveAll(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        // The second day's slot stays locked by another booking past the lock timeout.
+        doThrow(new RuntimeException("The requested slot is busy. Please try again."))
+                .when(slotLockRegistry).lockForTransaction(argThat(
+                        slots -> slots.stream().anyMatch(slot -> slot.date().equals(date.plusDays(1)))));
+
+        List<BookingResult> results = appointmentService.bookOrWaitAppointments(List.of(
+                request(1L, 7L, date, LocalTime.of(10, 30)),
+                request(1L, 7L, date.plusDays(1), LocalTime.of(10, 30)),
+                request(1L, 7L, date.plusDays(2), LocalTime.of(10, 30))));
+
+        assertEquals(3, results.size());
+        assertTrue(results.get(0).isBooked());
+        assertFalse(results.get(1).isBooked());
+        assertEquals("Booking failed. Please try again later.", results.get(1).getMessage());
+        assertTrue(results.get(2).isBooked(), "Days after the failed one should still be booked.");
+        verify(appointmentRepository, never()).findByDoctorAndAppointmentDate(doctor, date.plusDays(1));
+    }
+
+    @Test
+    public void testPartialUpdateAppointment_MovingACancelledAppointmentLeavesTheSlotsAlone() {
+        LocalDate date = LocalDate.now().plusDays(7);
+        Doctor doctor = new Doctor();
+        doctor.setDoctorId(7L);
+        Appointment cancelled = new Appointment();
+        cancelled.setAppointmentId(20L);
+        cancelled.setDoctor(doctor);
+        cancelled.setAppointmentDate(date);
+        cancelled.setAppointmentTime(LocalTime.of(10, 30));
+        cancelled.setStatus(AppointmentStatus.CANCELLED);
+        when(appointmentRepository.findById(20L)).thenReturn(Optional.of(cancelled));
+        when(appointmentRepository.saveAndFlush(cancelled)).thenReturn(cancelled);
+        AppointmentUpdateDTO update = new AppointmentUpdateDTO();
+        update.setAppointmentTime(LocalTime.of(11, 0));
+
+        appointmentService.partialUpdateAppointment(20L, update);
+
+        // Someone else may hold 10:30 by now; a cancelled row must not free or claim any slot.
+        verifyNoInteractions(slotOccupancyIndex, doctorDaySlotStore, waitlistEngine);
+    }
+
+    @Test
+    public void testPartialUpdateAppointment_MoveOntoATakenSlotIsAConflict() {
+        LocalDate date = LocalDate.now().plusDays(7);
+        Doctor doctor = new Doctor();
+        doctor.setDoctorId(7L);
+        Appointment booked = new Appointment();
+        booked.setAppointmentId(21L);
+        booked.setDoctor(doctor);
+        booked.setAppointmentDate(date);
+        booked.setAppointmentTime(LocalTime.of(10, 30));
+        booked.setStatus(AppointmentStatus.BOOKED);
+        when(appointmentRepository.findById(21L)).thenReturn(Optional.of(booked));
+        // Another instance booked 11:00 first.
+        when(appointmentRepository.saveAndFlush(booked)).thenThrow(new DataIntegrityViolationException("duplicate",
+                new ConstraintViolationException("duplicate", new SQLException("Duplicate entry"),
+                        "appointments.uk_appointments_active_slot")));
+        AppointmentUpdateDTO update = new AppointmentUpdateDTO();
+        update.setAppointmentTime(LocalTime.of(11, 0));
+
+        assertThrows(SlotConflictException.class, () -> appointmentService.partialUpdateAppointment(21L, update));
+
+        verify(slotLockRegistry).lockForTransaction(List.of(new SlotLockRegistry.Slot(7L, date, LocalTime.of(10, 30)),
+                new SlotLockRegistry.Slot(7L, date, LocalTime.of(11, 0))));
+        verifyNoInteractions(slotOccupancyIndex, waitlistEngine);
+    }
+
+    @Test
+    public void testPromoteWaitingAfterBlock_BooksTheNearestOpenSlot() {
+        LocalDate date = LocalDate.now().plusDays(7);
+        Doctor doctor = new Doctor();
+        doctor.setDoctorId(7L);
+        Patient patient = new Patient();
+        patient.setPatientId(2L);
+        WaitingAppointment waiting = new WaitingAppointment();
+        waiting.setId(30L);
+        waiting.setDoctor(doctor);
+        waiting.setPatient(patient);
+        // 10:00 was cancelled and is blocked; 10:30 is still booked, so 9:30 is the nearest open slot.
+        AppointmentSlot kept = mock(AppointmentSlot.class);
+        when(kept.getAppointmentTime()).thenReturn(LocalTime.of(10, 30));
+        when(appointmentRepository.findSlotsByDoctorAndDateAndStatus(7L, date, AppointmentStatus.BOOKED))
+                .thenReturn(List.of(kept));
+        when(waitlistEngine.promoteNext(7L, LocalDateTime.of(date, LocalTime.of(9, 45)),
+                LocalDateTime.of(date, LocalTime.of(10, 15)))).thenReturn(Optional.of(waiting));
+        when(appointmentRepository.saveAndFlush(any(Appointment.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        List<Appointment> promoted = appointmentService.promoteWaitingAfterBlock(7L, date,
+                List.of(LocalTime.of(10, 0)), List.of(LocalTime.of(10, 0)));
+
+        assertEquals(1, promoted.size());
+        assertEquals(patient, promoted.get(0).getPatient());
+        assertEquals(LocalTime.of(9, 30), promoted.get(0).getAppointmentTime());
+        assertEquals(AppointmentStatus.BOOKED, promoted.get(0).getStatus());
+        verify(slotLockRegistry).lockForTransaction(7L, date, LocalTime.of(9, 30));
+        verify(slotOccupancyIndex).markBooked(7L, date, LocalTime.of(9, 30));
+        verify(doctorDaySlotStore).booked(7L, date, LocalTime.of(9, 30));
+    }
+
+    private AppointmentRequestDTO request(Long patientId, Long doctorId, LocalDate date, LocalTime time) {
+        AppointmentRequestDTO request = new AppointmentRequestDTO();
+        request.setPatientId(patientId);
+        request.setDoctorId(doctorId);
+        request.setAppointmentDate(date);
+        request.setAppointmentTime(time);
+        return request;
+    }
+
     @Test
     public void testBookOrWaitAppointment_AppointmentInPastThrowsException() {
         // Arrange: Set up a request with an appointment date in the past.
@@ -0,0 +1,132 @@
+package com.appointment.service.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+import com.appointment.entity.AppointmentStatus;
+import com.appointment.repository.AppointmentRepository;
+import com.appointment.repository.AppointmentRepository.AppointmentSlot;
+import com.appointment.repository.DoctorDaySlotsRepository;
+import com.appointment.service.DoctorDaySlotStore;
+import com.appointment.template.SlotTemplate;
+import com.appointment.template.SlotTemplateProperties;
+import com.appointment.template.SlotTemplateRegistry;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+@ExtendWith(MockitoExtension.class)
+public class DoctorDaySlotStoreTest {
+
+    @InjectMocks
+    private DoctorDaySlotStore doctorDaySlotStore;
+
+    @Mock
+    private DoctorDaySlotsRepository doctorDaySlotsRepository;
+
+    @Mock
+    private AppointmentRepository appointmentRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Spy
+    private SlotTemplateRegistry slotTemplateRegistry = new SlotTemplateRegistry(new SlotTemplateProperties());
+
+    private final LocalDate date = LocalDate.now().plusDays(3);
+
+    @Test
+    public void testBooked_DayIsRebuiltOnceAfterTheBookingCommits() {
+        when(appointmentRepository.findSlotsByDoctorAndDateAndStatus(7L, date, AppointmentStatus.BOOKED))
+                .thenReturn(List.of(slot(LocalTime.of(10, 0)), slot(LocalTime.of(11, 0))));
+
+        inCommittedTransaction(() -> {
+            doctorDaySlotStore.booked(7L, date, LocalTime.of(10, 0));
+            doctorDaySlotStore.freed(7L, date, LocalTime.of(10, 30));
+            // The booking transaction itself does not touch the doctor-day's row.
+            verifyNoInteractions(doctorDaySlotsRepository);
+        });
+
+        // 10:00 and 11:00 are slots 1 and 3 of the default 9:30 grid.
+        verify(doctorDaySlotsRepository, times(1)).lockForRebuild(7L, date);
+        verify(doctorDaySlotsRepository, times(1)).setBooked(7L, date, 0b1010L);
+    }
+
+    @Test
+    public void testFreed_FailedRebuildIsLeftToTheCheckerAndOtherDaysGoOn() {
+        when(appointmentRepository.findSlotsByDoctorAndDateAndStatus(eq(8L), any(LocalDate.class),
+                eq(AppointmentStatus.BOOKED))).thenReturn(List.of(slot(LocalTime.of(11, 0))));
+        doThrow(new CannotAcquireLockException("Lock wait timeout exceeded")).when(doctorDaySlotsRepository)
+                .lockForRebuild(7L, date);
+
+        inCommittedTransaction(() -> {
+            doctorDaySlotStore.freed(7L, date, LocalTime.of(10, 15));
+            doctorDaySlotStore.freed(8L, date, LocalTime.of(10, 0));
+        });
+
+        verify(doctorDaySlotsRepository, never()).setBooked(eq(7L), eq(date), anyLong());
+        verify(doctorDaySlotsRepository).setBooked(8L, date, 0b1000L);
+    }
+
+    @Test
+    public void testBooked_LastSlotOfA64SlotTemplateIsStoredAsTheSignBit() {
+        // 6:00 to 22:00 in 15-minute slots: 64 slots, the last one starting at 21:45.
+        SlotTemplate template = new SlotTemplate("long-day", LocalTime.of(6, 0), LocalTime.of(22, 0), 15, List.of(),
+                null);
+        doReturn(template).when(slotTemplateRegistry).forDoctorDay(9L, date);
+        when(appointmentRepository.findSlotsByDoctorAndDateAndStatus(9L, date, AppointmentStatus.BOOKED))
+                .thenReturn(List.of(slot(LocalTime.of(21, 45))));
+
+        // No transaction is active, so the day is rebuilt at once.
+        doctorDaySlotStore.booked(9L, date, LocalTime.of(21, 45));
+
+        assertEquals(63, template.slotIndex(LocalTime.of(21, 45)));
+        verify(doctorDaySlotsRepository).setBooked(9L, date, Long.MIN_VALUE);
+        assertEquals(List.of(LocalTime.of(21, 45)), template.slotsOf(Long.MIN_VALUE));
+    }
+
+    private AppointmentSlot slot(LocalTime time) {
+        AppointmentSlot slot = mock(AppointmentSlot.class);
+        when(slot.getAppointmentTime()).thenReturn(time);
+        return slot;
+    }
+
+    // Simulates a transaction that commits: the store rebuilds its noted days in afterCommit.
+    private static void inCommittedTransaction(Runnable body) {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            body.run();
+            List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+            for (TransactionSynchronization sync : synchronizations) {
+                sync.afterCommit();
+            }
+            for (TransactionSynchronization sync : synchronizations) {
+                sync.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+            }
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+}
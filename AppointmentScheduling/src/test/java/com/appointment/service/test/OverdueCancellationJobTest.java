@@ -0,0 +1,108 @@
+package com.appointment.service.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+import com.appointment.dto.OverdueCancellationSummary;
+import com.appointment.entity.AppointmentStatus;
+import com.appointment.repository.AppointmentRepository;
+import com.appointment.repository.AppointmentRepository.AppointmentSlot;
+import com.appointment.repository.WaitingAppointmentRepository;
+import com.appointment.service.DoctorDaySlotStore;
+import com.appointment.service.OverdueCancellationJob;
+import com.appointment.service.SlotOccupancyIndex;
+import com.appointment.service.WaitlistEngine;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@ExtendWith(MockitoExtension.class)
+public class OverdueCancellationJobTest {
+
+    @InjectMocks
+    private OverdueCancellationJob overdueCancellationJob;
+
+    @Mock
+    private AppointmentRepository appointmentRepository;
+
+    @Mock
+    private WaitingAppointmentRepository waitingAppointmentRepository;
+
+    @Mock
+    private SlotOccupancyIndex slotOccupancyIndex;
+
+    @Mock
+    private DoctorDaySlotStore doctorDaySlotStore;
+
+    @Mock
+    private WaitlistEngine waitlistEngine;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    private final LocalDate today = LocalDate.now();
+
+    @Test
+    public void testRun_CancelsInChunksWithOneTransactionEach() {
+        ReflectionTestUtils.setField(overdueCancellationJob, "chunkSize", 2);
+        when(transactionTemplate.execute(any()))
+                .thenAnswer(invocation -> ((TransactionCallback<?>) invocation.getArgument(0)).doInTransaction(null));
+        when(appointmentRepository.findSlotsByDateAndStatusBefore(eq(today), eq(AppointmentStatus.BOOKED),
+                eq(LocalTime.of(18, 0)), any()))
+                .thenReturn(List.of(slot(1L, 7L, LocalTime.of(9, 30)), slot(2L, 7L, LocalTime.of(10, 0))))
+                .thenReturn(List.of(slot(3L, 8L, LocalTime.of(11, 0))));
+        when(appointmentRepository.cancelBookedByIds(List.of(1L, 2L))).thenReturn(2);
+        when(appointmentRepository.cancelBookedByIds(List.of(3L))).thenReturn(1);
+        when(waitingAppointmentRepository.deleteNearAppointments(List.of(1L, 2L))).thenReturn(3);
+        when(waitingAppointmentRepository.deleteNearAppointments(List.of(3L))).thenReturn(0);
+
+        OverdueCancellationSummary summary = overdueCancellationJob.run(today, LocalTime.of(18, 0));
+
+        assertEquals(2, summary.getChunks());
+        assertEquals(3, summary.getAppointmentsCancelled());
+        assertEquals(3, summary.getWaitingRecordsRemoved());
+        // The short second chunk ends the run without another select.
+        verify(transactionTemplate, times(2)).execute(any());
+        verify(slotOccupancyIndex).markFreed(8L, today, LocalTime.of(11, 0));
+        verify(waitlistEngine).evict(7L, today);
+        verify(doctorDaySlotStore).freed(7L, today, List.of(LocalTime.of(9, 30), LocalTime.of(10, 0)));
+    }
+
+    private AppointmentSlot slot(Long appointmentId, Long doctorId, LocalTime time) {
+        return new AppointmentSlot() {
+            @Override
+            public Long getAppointmentId() {
+                return appointmentId;
+            }
+
+            @Override
+            public Long getDoctorId() {
+                return doctorId;
+            }
+
+            @Override
+            public LocalDate getAppointmentDate() {
+                return today;
+            }
+
+            @Override
+            public LocalTime getAppointmentTime() {
+                return time;
+            }
+        };
+    }
+}
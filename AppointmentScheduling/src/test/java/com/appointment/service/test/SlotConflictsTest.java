@@ -0,0 +1,36 @@
+package com.appointment.service.test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.SQLException;
+
+import com.appointment.service.SlotConflicts;
+
+import org.hibernate.exception.ConstraintViolationException;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+
+public class SlotConflictsTest {
+
+    @Test
+    public void testActiveSlotKeyViolation_IsASlotConflict() {
+        assertTrue(SlotConflicts.isActiveSlotConflict(violation(
+                "Duplicate entry '7-2025-06-02-10:30:00-1' for key 'appointments.uk_appointments_active_slot'",
+                "appointments.uk_appointments_active_slot")));
+    }
+
+    @Test
+    public void testOtherIntegrityErrors_AreNotSlotConflicts() {
+        assertFalse(SlotConflicts.isActiveSlotConflict(violation(
+                "Cannot add or update a child row: a foreign key constraint fails", "fk_appointments_doctor")));
+        assertFalse(SlotConflicts.isActiveSlotConflict(new DataIntegrityViolationException("not-null property",
+                new SQLException("Column 'appointment_date' cannot be null"))));
+    }
+
+    private DataIntegrityViolationException violation(String message, String constraint) {
+        SQLException sqlException = new SQLException(message, "23000");
+        return new DataIntegrityViolationException(message,
+                new ConstraintViolationException(message, sqlException, constraint));
+    }
+}
@@ -0,0 +1,111 @@
+package com.appointment.service.test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import com.appointment.service.SlotLockRegistry;
+import com.appointment.template.SlotTemplateProperties;
+import com.appointment.template.SlotTemplateRegistry;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+public class SlotLockRegistryTest {
+
+    private final SlotLockRegistry slotLockRegistry = new SlotLockRegistry(1024,
+            new SlotTemplateRegistry(new SlotTemplateProperties()));
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+    private final LocalDate date = LocalDate.now().plusDays(1);
+
+    @AfterEach
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testSameSlotWaitsForFirstTransactionToComplete() throws Exception {
+        CountDownLatch firstLocked = new CountDownLatch(1);
+        CountDownLatch releaseFirst = new CountDownLatch(1);
+
+        executor.submit(() -> inTransaction(() -> {
+            slotLockRegistry.lockForTransaction(7L, date, LocalTime.of(10, 0));
+            firstLocked.countDown();
+            await(releaseFirst);
+        }));
+        assertTrue(firstLocked.await(5, TimeUnit.SECONDS));
+
+        Future<?> second = executor.submit(() -> inTransaction(
+                () -> slotLockRegistry.lockForTransaction(7L, date, LocalTime.of(10, 0))));
+        Thread.sleep(200);
+        assertFalse(second.isDone(), "Second booking for the same slot must wait.");
+
+        releaseFirst.countDown();
+        second.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testDifferentSlotsDoNotBlockEachOther() throws Exception {
+        CountDownLatch releaseFirst = new CountDownLatch(1);
+        CountDownLatch firstLocked = new CountDownLatch(1);
+
+        executor.submit(() -> inTransaction(() -> {
+            slotLockRegistry.lockForTransaction(7L, date, LocalTime.of(10, 0));
+            firstLocked.countDown();
+            await(releaseFirst);
+        }));
+        assertTrue(firstLocked.await(5, TimeUnit.SECONDS));
+
+        Future<?> other = executor.submit(() -> inTransaction(
+                () -> slotLockRegistry.lockForTransaction(8L, date, LocalTime.of(10, 0))));
+        other.get(5, TimeUnit.SECONDS);
+        releaseFirst.countDown();
+    }
+
+    @Test
+    public void testLockSetAboveTheCapIsRejected() {
+        // 200 doctor-days spread over far more stripes than the default cap of 64.
+        List<SlotLockRegistry.Slot> slots = new ArrayList<>();
+        for (long doctorId = 1; doctorId <= 200; doctorId++) {
+            slots.add(new SlotLockRegistry.Slot(doctorId, date, LocalTime.of(10, 0)));
+        }
+
+        inTransaction(() -> assertThrows(IllegalArgumentException.class,
+                () -> slotLockRegistry.lockForTransaction(slots)));
+    }
+
+    // Simulates a transaction boundary: the registry releases its locks in afterCompletion.
+    private static void inTransaction(Runnable body) {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            body.run();
+        } finally {
+            for (TransactionSynchronization sync : TransactionSynchronizationManager.getSynchronizations()) {
+                sync.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+            }
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package com.appointment.service.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import com.appointment.entity.AppointmentStatus;
+import com.appointment.entity.DoctorDayChange;
+import com.appointment.repository.AppointmentRepository;
+import com.appointment.repository.AppointmentRepository.AppointmentSlot;
+import com.appointment.repository.AppointmentRepository.BookedSlot;
+import com.appointment.repository.DoctorDayChangeRepository;
+import com.appointment.service.SlotOccupancyIndex;
+import com.appointment.template.SlotTemplateProperties;
+import com.appointment.template.SlotTemplateRegistry;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+public class SlotOccupancyIndexTest {
+
+    @InjectMocks
+    private SlotOccupancyIndex slotOccupancyIndex;
+
+    @Mock
+    private AppointmentRepository appointmentRepository;
+
+    @Mock
+    private DoctorDayChangeRepository changeRepository;
+
+    @Spy
+    private SlotTemplateRegistry slotTemplateRegistry = new SlotTemplateRegistry(new SlotTemplateProperties());
+
+    private final LocalDate date = LocalDate.now().plusDays(3);
+
+    @Test
+    public void testAvailableSlots_EmptyDayMatchesSlotTemplate() {
+        when(appointmentRepository.findSlotsByDoctorAndDateAndStatus(7L, date, AppointmentStatus.BOOKED))
+                .thenReturn(Collections.emptyList());
+
+        List<LocalTime> slots = slotOccupancyIndex.availableSlots(7L, date);
+
+        // 9:30 to 12:30 and 14:30 to 17:30; slots touching the lunch break are excluded.
+        assertEquals(14, slots.size());
+        assertEquals(LocalTime.of(9, 30), slots.get(0));
+        assertEquals(LocalTime.of(12, 30), slots.get(6));
+        assertEquals(LocalTime.of(14, 30), slots.get(7));
+        assertEquals(LocalTime.of(17, 30), slots.get(13));
+    }
+
+    @Test
+    public void testAvailableSlots_LoadsOnceAndTracksBookings() {
+        AppointmentSlot booked = slot(LocalTime.of(10, 0));
+        when(appointmentRepository.findSlotsByDoctorAndDateAndStatus(7L, date, AppointmentStatus.BOOKED))
+                .thenReturn(List.of(booked));
+
+        assertFalse(slotOccupancyIndex.availableSlots(7L, date).contains(LocalTime.of(10, 0)));
+        assertTrue(slotOccupancyIndex.contains(7L, date));
+
+        // No transaction is active, so the updates apply immediately.
+        slotOccupancyIndex.markBooked(7L, date, LocalTime.of(15, 0));
+        slotOccupancyIndex.markFreed(7L, date, LocalTime.of(10, 0));
+
+        List<LocalTime> slots = slotOccupancyIndex.availableSlots(7L, date);
+        assertTrue(slots.contains(LocalTime.of(10, 0)));
+        assertFalse(slots.contains(LocalTime.of(15, 0)));
+        verify(appointmentRepository, times(1))
+                .findSlotsByDoctorAndDateAndStatus(7L, date, AppointmentStatus.BOOKED);
+    }
+
+    @Test
+    public void testAvailableSlots_OffGridAppointmentBlocksBothOverlappedSlots() {
+        AppointmentSlot booked = slot(LocalTime.of(10, 15));
+        when(appointmentRepository.findSlotsByDoctorAndDateAndStatus(7L, date, AppointmentStatus.BOOKED))
+                .thenReturn(List.of(booked));
+
+        List<LocalTime> slots = slotOccupancyIndex.availableSlots(7L, date);
+
+        assertFalse(slots.contains(LocalTime.of(10, 0)));
+        assertFalse(slots.contains(LocalTime.of(10, 30)));
+        assertTrue(slots.contains(LocalTime.of(11, 0)));
+    }
+
+    @Test
+    public void testAvailableSlots_LoadOverlappingABookingIsNotKept() {
+        AppointmentSlot booked = slot(LocalTime.of(15, 0));
+        when(appointmentRepository.findSlotsByDoctorAndDateAndStatus(7L, date, AppointmentStatus.BOOKED))
+                .thenAnswer(invocation -> {
+                    // Committed after the query read the table, so the load does not see it.
+                    slotOccupancyIndex.markBooked(7L, date, LocalTime.of(15, 0));
+                    return Collections.emptyList();
+                })
+                .thenReturn(List.of(booked));
+
+        assertTrue(slotOccupancyIndex.availableSlots(7L, date).contains(LocalTime.of(15, 0)));
+        assertFalse(slotOccupancyIndex.contains(7L, date));
+
+        assertFalse(slotOccupancyIndex.availableSlots(7L, date).contains(LocalTime.of(15, 0)));
+        assertTrue(slotOccupancyIndex.contains(7L, date));
+        verify(appointmentRepository, times(2))
+                .findSlotsByDoctorAndDateAndStatus(7L, date, AppointmentStatus.BOOKED);
+    }
+
+    @Test
+    public void testEvict_RecordsTheChangeForOtherProcesses() {
+        when(appointmentRepository.findSlotsByDoctorAndDateAndStatus(7L, date, AppointmentStatus.BOOKED))
+                .thenReturn(Collections.emptyList());
+        slotOccupancyIndex.availableSlots(7L, date);
+
+        slotOccupancyIndex.evict(7L, date);
+
+        assertFalse(slotOccupancyIndex.contains(7L, date));
+        verify(changeRepository).save(argThat(change -> change.getDoctorId().equals(7L)
+                && change.getSlotDate().equals(date) && change.getChangedAt() != null));
+    }
+
+    @Test
+    public void testApplyChanges_DropsDoctorDaysChangedElsewhereOnce() {
+        when(appointmentRepository.findSlotsByDoctorAndDateAndStatus(7L, date, AppointmentStatus.BOOKED))
+                .thenReturn(Collections.emptyList());
+        when(appointmentRepository.findSlotsByDoctorAndDateAndStatus(8L, date, AppointmentStatus.BOOKED))
+                .thenReturn(Collections.emptyList());
+        slotOccupancyIndex.availableSlots(7L, date);
+        slotOccupancyIndex.availableSlots(8L, date);
+        // Another process cancelled doctor 7's blocked slots.
+        DoctorDayChange change = new DoctorDayChange();
+        change.setId(1L);
+        change.setDoctorId(7L);
+        change.setSlotDate(date);
+        change.setChangedAt(Instant.now());
+        when(changeRepository.findByChangedAtAfter(any())).thenReturn(List.of(change));
+
+        slotOccupancyIndex.applyChanges();
+
+        assertFalse(slotOccupancyIndex.contains(7L, date));
+        assertTrue(slotOccupancyIndex.contains(8L, date));
+
+        // The next poll reads the change again (overlap) but does not drop the reloaded day.
+        slotOccupancyIndex.availableSlots(7L, date);
+        slotOccupancyIndex.applyChanges();
+        assertTrue(slotOccupancyIndex.contains(7L, date));
+    }
+
+    @Test
+    public void testFreeSlotMasks_WarmDaysFromIndexColdDoctorsInOneQuery() {
+        when(appointmentRepository.findSlotsByDoctorAndDateAndStatus(7L, date, AppointmentStatus.BOOKED))
+                .thenReturn(Collections.emptyList());
+        when(appointmentRepository.findBookedSlots(any(), eq(date), eq(date.plusDays(1)), eq(AppointmentStatus.BOOKED)))
+                .thenReturn(List.of(bookedSlot(8L, date.plusDays(1), LocalTime.of(9, 30))));
+        // Doctor 7 is warm for the first day only, so it is read from the database with doctor 8.
+        slotOccupancyIndex.availableSlots(7L, date);
+
+        Map<Long, long[]> masks = slotOccupancyIndex.freeSlotMasks(List.of(7L, 8L), date, date.plusDays(1));
+
+        List<LocalTime> slotTimes = slotTemplateRegistry.getDefaultTemplate().getSlotTimes();
+        assertEquals(2, masks.get(7L).length);
+        assertEquals(14, Long.bitCount(masks.get(7L)[0]));
+        assertEquals(14, Long.bitCount(masks.get(8L)[0]));
+        assertEquals(13, Long.bitCount(masks.get(8L)[1]));
+        assertEquals(LocalTime.of(10, 0), slotTimes.get(Long.numberOfTrailingZeros(masks.get(8L)[1])));
+        verify(appointmentRepository, times(1))
+                .findBookedSlots(any(), eq(date), eq(date.plusDays(1)), eq(AppointmentStatus.BOOKED));
+    }
+
+    private static AppointmentSlot slot(LocalTime time) {
+        AppointmentSlot slot = mock(AppointmentSlot.class);
+        when(slot.getAppointmentTime()).thenReturn(time);
+        return slot;
+    }
+
+    private static BookedSlot bookedSlot(Long doctorId, LocalDate date, LocalTime time) {
+        return new BookedSlot() {
+            @Override
+            public Long getDoctorId() {
+                return doctorId;
+            }
+
+            @Override
+            public LocalDate getAppointmentDate() {
+                return date;
+            }
+
+            @Override
+            public LocalTime getAppointmentTime() {
+                return time;
+            }
+        };
+    }
+}
@@ -0,0 +1,100 @@
+package com.appointment.service.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import com.appointment.entity.WaitingAppointment;
+import com.appointment.repository.WaitingAppointmentRepository;
+import com.appointment.service.WaitlistEngine;
+import com.example.demo.entity.Doctor;
+import com.example.demo.entity.Patient;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+public class WaitlistEngineTest {
+
+    @InjectMocks
+    private WaitlistEngine waitlistEngine;
+
+    @Mock
+    private WaitingAppointmentRepository waitingAppointmentRepository;
+
+    private final LocalDate date = LocalDate.now().plusDays(2);
+
+    @Test
+    public void testPromoteNext_EarliestRequestWinsAndIsDeleted() {
+        LocalDateTime slot = date.atTime(LocalTime.of(10, 0));
+        WaitingAppointment late = waiting(1L, 1L, slot, slot.minusDays(1));
+        WaitingAppointment early = waiting(2L, 2L, slot, slot.minusDays(2));
+        when(waitingAppointmentRepository.findByDoctor_DoctorIdAndPreferredTimeBetween(
+                7L, date.atStartOfDay(), date.plusDays(1).atStartOfDay().minusNanos(1)))
+                .thenReturn(List.of(late, early));
+        when(waitingAppointmentRepository.findById(2L)).thenReturn(Optional.of(early));
+        when(waitingAppointmentRepository.findById(1L)).thenReturn(Optional.of(late));
+
+        assertTrue(waitlistEngine.isWaiting(7L, 1L, slot));
+        assertEquals(early, waitlistEngine.promoteNext(7L, slot, slot).orElseThrow());
+        assertFalse(waitlistEngine.isWaiting(7L, 2L, slot));
+        assertEquals(late, waitlistEngine.promoteNext(7L, slot.minusMinutes(15), slot.plusMinutes(15)).orElseThrow());
+        assertTrue(waitlistEngine.promoteNext(7L, slot, slot).isEmpty());
+
+        verify(waitingAppointmentRepository).delete(early);
+        verify(waitingAppointmentRepository).delete(late);
+        verify(waitingAppointmentRepository, times(1)).findByDoctor_DoctorIdAndPreferredTimeBetween(
+                7L, date.atStartOfDay(), date.plusDays(1).atStartOfDay().minusNanos(1));
+    }
+
+    @Test
+    public void testAdded_DuringALoadAppliesToTheLoadedDay() throws InterruptedException {
+        LocalDateTime slot = date.atTime(LocalTime.of(11, 0));
+        WaitingAppointment committed = waiting(3L, 3L, slot, slot.minusDays(1));
+        Thread[] callback = new Thread[1];
+        when(waitingAppointmentRepository.findByDoctor_DoctorIdAndPreferredTimeBetween(
+                7L, date.atStartOfDay(), date.plusDays(1).atStartOfDay().minusNanos(1)))
+                .thenAnswer(invocation -> {
+                    // The record commits after this load read the table; its callback runs mid-load.
+                    callback[0] = new Thread(() -> waitlistEngine.added(committed));
+                    callback[0].start();
+                    while (callback[0].getState() != Thread.State.BLOCKED
+                            && callback[0].getState() != Thread.State.TERMINATED) {
+                        Thread.sleep(1);
+                    }
+                    return Collections.emptyList();
+                });
+
+        waitlistEngine.isWaiting(7L, 3L, slot);
+        callback[0].join();
+
+        assertTrue(waitlistEngine.isWaiting(7L, 3L, slot));
+    }
+
+    private WaitingAppointment waiting(Long id, Long patientId, LocalDateTime slot, LocalDateTime requestedAt) {
+        Doctor doctor = new Doctor();
+        doctor.setDoctorId(7L);
+        Patient patient = new Patient();
+        patient.setPatientId(patientId);
+        WaitingAppointment waiting = new WaitingAppointment();
+        waiting.setId(id);
+        waiting.setDoctor(doctor);
+        waiting.setPatient(patient);
+        waiting.setPreferredTime(slot);
+        waiting.setRequestedAt(requestedAt);
+        return waiting;
+    }
+}
@@ -0,0 +1,87 @@
+package com.appointment.template.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.temporal.TemporalAdjusters;
+import java.util.List;
+import java.util.Set;
+
+import com.appointment.template.SlotTemplate;
+import com.appointment.template.SlotTemplateProperties;
+import com.appointment.template.SlotTemplateRegistry;
+
+import org.junit.jupiter.api.Test;
+
+public class SlotTemplateRegistryTest {
+
+    private final LocalDate saturday = LocalDate.now().with(TemporalAdjusters.next(DayOfWeek.SATURDAY));
+
+    @Test
+    public void testDefaultTemplate_MatchesHospitalHours() {
+        SlotTemplate template = new SlotTemplateRegistry(new SlotTemplateProperties()).getDefaultTemplate();
+
+        assertEquals(17, template.getSlotTimes().size());
+        assertEquals(14, template.getBookableSlots().size());
+        assertTrue(template.isSlotStart(LocalTime.of(9, 30)));
+        assertTrue(template.isSlotStart(LocalTime.of(17, 30)));
+        // Lunch, off-grid and after-hours times are not slot starts.
+        assertFalse(template.isSlotStart(LocalTime.of(13, 30)));
+        assertFalse(template.isSlotStart(LocalTime.of(10, 15)));
+        assertFalse(template.isSlotStart(LocalTime.of(18, 0)));
+        assertTrue(template.overlapsBreak(LocalTime.of(12, 45)));
+        assertFalse(template.fitsWorkingHours(LocalTime.of(17, 45)));
+        assertTrue(template.isFollowUpOnly(LocalTime.of(16, 0)));
+        assertEquals("between 9:30 and 17:30 so that it finishes by 18:00", template.describeWorkingHours());
+    }
+
+    @Test
+    public void testForDoctorDay_DoctorAssignmentBeforeAllDoctorsBeforeDefault() {
+        SlotTemplateProperties properties = new SlotTemplateProperties();
+        SlotTemplateProperties.Definition shortSlots = new SlotTemplateProperties.Definition();
+        shortSlots.setStart(LocalTime.of(8, 0));
+        shortSlots.setEnd(LocalTime.of(12, 0));
+        shortSlots.setSlotMinutes(20);
+        shortSlots.setBreaks(List.of());
+        shortSlots.setFollowUpOnlyFrom(null);
+        properties.getTemplates().put("saturday-short", shortSlots);
+        properties.getTemplates().put("weekend", new SlotTemplateProperties.Definition());
+        properties.getAssignments().add(assignment("saturday-short", Set.of(7L), Set.of(DayOfWeek.SATURDAY)));
+        properties.getAssignments().add(assignment("weekend", Set.of(), Set.of(DayOfWeek.SATURDAY)));
+
+        SlotTemplateRegistry registry = new SlotTemplateRegistry(properties);
+
+        SlotTemplate doctorSaturday = registry.forDoctorDay(7L, saturday);
+        assertEquals("saturday-short", doctorSaturday.getName());
+        assertEquals(12, doctorSaturday.getBookableSlots().size());
+        assertTrue(doctorSaturday.isSlotStart(LocalTime.of(8, 40)));
+        assertFalse(doctorSaturday.isSlotStart(LocalTime.of(8, 30)));
+        assertTrue(doctorSaturday.overlaps(LocalTime.of(8, 0), LocalTime.of(8, 19)));
+        assertFalse(doctorSaturday.overlaps(LocalTime.of(8, 0), LocalTime.of(8, 20)));
+        assertEquals("weekend", registry.forDoctorDay(8L, saturday).getName());
+        assertSame(registry.getDefaultTemplate(), registry.forDoctorDay(7L, saturday.plusDays(2)));
+    }
+
+    @Test
+    public void testUnknownTemplateIsRejected() {
+        SlotTemplateProperties properties = new SlotTemplateProperties();
+        properties.getAssignments().add(assignment("missing", Set.of(7L), Set.of()));
+
+        assertThrows(IllegalArgumentException.class, () -> new SlotTemplateRegistry(properties));
+    }
+
+    private static SlotTemplateProperties.Assignment assignment(String template, Set<Long> doctorIds,
+            Set<DayOfWeek> days) {
+        SlotTemplateProperties.Assignment assignment = new SlotTemplateProperties.Assignment();
+        assignment.setTemplate(template);
+        assignment.setDoctorIds(doctorIds);
+        assignment.setDays(days);
+        return assignment;
+    }
+}
@@ -0,0 +1,39 @@
+-- Test-only stand-in for a database whose scheduling tables were created by
+-- hibernate ddl-auto=update before Flyway: no active_slot column, no unique
+-- key and no history index. V1 is a no-op on it and V4 must upgrade it.
+-- Runs after db/testschema and before V1.
+
+CREATE TABLE appointments (
+    appointment_id   BIGINT NOT NULL AUTO_INCREMENT,
+    doctor_id        BIGINT NOT NULL,
+    patient_id       BIGINT NOT NULL,
+    appointment_date DATE,
+    appointment_time TIME(6),
+    status           ENUM('BOOKED', 'CANCELLED', 'COMPLETED'),
+    follow_up        BIT NOT NULL,
+    PRIMARY KEY (appointment_id),
+    CONSTRAINT fk_legacy_appointments_doctor FOREIGN KEY (doctor_id) REFERENCES doctors (doctor_id),
+    CONSTRAINT fk_legacy_appointments_patient FOREIGN KEY (patient_id) REFERENCES patients (patient_id)
+);
+
+CREATE TABLE waiting_appointments (
+    id             BIGINT NOT NULL AUTO_INCREMENT,
+    doctor_id      BIGINT NOT NULL,
+    patient_id     BIGINT NOT NULL,
+    preferred_time DATETIME(6),
+    requested_at   DATETIME(6),
+    PRIMARY KEY (id),
+    CONSTRAINT fk_legacy_waiting_doctor FOREIGN KEY (doctor_id) REFERENCES doctors (doctor_id),
+    CONSTRAINT fk_legacy_waiting_patient FOREIGN KEY (patient_id) REFERENCES patients (patient_id)
+);
+
+-- Pre-existing rows, including two BOOKED rows for one slot from an old race.
+INSERT INTO doctors (doctor_id) VALUES (100);
+INSERT INTO patients (patient_id) VALUES (100);
+INSERT INTO patients (patient_id) VALUES (101);
+INSERT INTO appointments (appointment_id, doctor_id, patient_id, appointment_date, appointment_time, status, follow_up)
+VALUES (9001, 100, 100, DATE '2025-05-05', TIME '10:00:00', 'BOOKED', FALSE);
+INSERT INTO appointments (appointment_id, doctor_id, patient_id, appointment_date, appointment_time, status, follow_up)
+VALUES (9002, 100, 101, DATE '2025-05-05', TIME '10:00:00', 'BOOKED', FALSE);
+INSERT INTO appointments (appointment_id, doctor_id, patient_id, appointment_date, appointment_time, status, follow_up)
+VALUES (9003, 100, 100, DATE '2025-05-06', TIME '10:00:00', 'CANCELLED', FALSE);
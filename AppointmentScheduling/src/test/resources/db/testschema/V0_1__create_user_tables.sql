@@ -0,0 +1,30 @@
+-- Test-only stand-in for the UserManagement tables that the scheduling
+-- migrations reference. Runs before V1.
+
+CREATE TABLE users (
+    user_id  BIGINT NOT NULL AUTO_INCREMENT,
+    name     VARCHAR(255),
+    gender   VARCHAR(255),
+    phone    VARCHAR(255),
+    email    VARCHAR(255),
+    password VARCHAR(255),
+    role     VARCHAR(255),
+    PRIMARY KEY (user_id)
+);
+
+CREATE TABLE doctors (
+    doctor_id      BIGINT NOT NULL AUTO_INCREMENT,
+    user_id        BIGINT,
+    specialization VARCHAR(255),
+    qualification  VARCHAR(255),
+    room_number    VARCHAR(255),
+    PRIMARY KEY (doctor_id)
+);
+
+CREATE TABLE patients (
+    patient_id BIGINT NOT NULL AUTO_INCREMENT,
+    user_id    BIGINT,
+    disease    VARCHAR(255),
+    place      VARCHAR(255),
+    PRIMARY KEY (patient_id)
+);
@@ -13,7 +13,7 @@ import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
 @EntityScan(basePackages = { "com.cr.entity", "com.appointment.entity", "com.example.demo.entity","com.doctor.availability" })
 // Optionally, also scan your repositories from both modules.
 @EnableJpaRepositories(basePackages = { "com.cr.repository", "com.appointment.repository", "com.example.demo.repository","com.doctor.availability" })
-@ComponentScan(basePackages = {"com.doctor.availability", "com.appointment.service"})
+@ComponentScan(basePackages = {"com.doctor.availability", "com.appointment.service", "com.appointment.template", "com.example.demo.cache"})
 public class DoctorAvailabilityApplication {
 
 	public static void main(String[] args) {
@@ -0,0 +1,95 @@
+package com.doctor.availability.config;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.flywaydb.core.api.FlywayException;
+import org.flywaydb.core.api.callback.Callback;
+import org.flywaydb.core.api.callback.Context;
+import org.flywaydb.core.api.callback.Event;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Adds the availability.doctor_id foreign key to doctors after every Flyway
+ * migrate of this module, once doctors exists. V1 creates availability without
+ * it: doctors belongs to UserManagement, and on a fresh database the key would
+ * fail V1 if UserManagement had not started yet (see the start-up order in
+ * README.md). Until doctors exists the key is skipped with a warning and added
+ * on a later start. Databases whose availability table already has a key to
+ * doctors (created by V1 before, or by ddl-auto) are left alone.
+ *
+ * A callback rather than a migration because it must run again after a start
+ * on which it had to be skipped.
+ */
+@Component
+public class AvailabilityForeignKeyCallback implements Callback {
+
+	private static final Logger logger = LoggerFactory.getLogger(AvailabilityForeignKeyCallback.class);
+
+	private static final String ADD_FOREIGN_KEY_SQL = "ALTER TABLE availability ADD CONSTRAINT fk_availability_doctor "
+			+ "FOREIGN KEY (doctor_id) REFERENCES doctors (doctor_id)";
+
+	@Override
+	public boolean supports(Event event, Context context) {
+		return event == Event.AFTER_MIGRATE;
+	}
+
+	@Override
+	public boolean canHandleInTransaction(Event event, Context context) {
+		return true;
+	}
+
+	@Override
+	public void handle(Event event, Context context) {
+		Connection connection = context.getConnection();
+		try {
+			if (!hasTable(connection, "doctors")) {
+				logger.warn("Table doctors does not exist yet; start UserManagement first. The availability foreign "
+						+ "key to doctors will be added on the next start.");
+				return;
+			}
+			if (hasDoctorForeignKey(connection)) {
+				return;
+			}
+			try (Statement statement = connection.createStatement()) {
+				statement.execute(ADD_FOREIGN_KEY_SQL);
+			}
+			logger.info("Added foreign key fk_availability_doctor to availability");
+		} catch (SQLException e) {
+			throw new FlywayException("Could not add the availability foreign key to doctors", e);
+		}
+	}
+
+	@Override
+	public String getCallbackName() {
+		return "availability-doctor-foreign-key";
+	}
+
+	private static boolean hasTable(Connection connection, String table) throws SQLException {
+		DatabaseMetaData metaData = connection.getMetaData();
+		try (ResultSet rs = metaData.getTables(connection.getCatalog(), connection.getSchema(), table,
+				new String[] { "TABLE" })) {
+			return rs.next();
+		}
+	}
+
+	// Any key from availability.doctor_id to doctors counts; ddl-auto gave it a generated name.
+	private static boolean hasDoctorForeignKey(Connection connection) throws SQLException {
+		DatabaseMetaData metaData = connection.getMetaData();
+		try (ResultSet rs = metaData.getImportedKeys(connection.getCatalog(), connection.getSchema(),
+				"availability")) {
+			while (rs.next()) {
+				if ("doctors".equalsIgnoreCase(rs.getString("PKTABLE_NAME"))
+						&& "doctor_id".equalsIgnoreCase(rs.getString("FKCOLUMN_NAME"))) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+}
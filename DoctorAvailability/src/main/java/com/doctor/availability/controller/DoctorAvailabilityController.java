@@ -11,10 +11,15 @@ import com.appointment.entity.Appointment;
 import com.appointment.entity.AppointmentStatus;
 import com.appointment.service.AppointmentService;
 import com.doctor.availability.dto.AppointmentStatusUpdateDTO;
+import com.doctor.availability.dto.DoctorBlockResultDTO;
 import com.doctor.availability.dto.DoctorScheduleDTO;
 import com.doctor.availability.dto.DoctorUnblockScheduleDTO;
+import com.doctor.availability.dto.RosterDTO;
+import com.doctor.availability.dto.RosterPublishResultDTO;
 import com.doctor.availability.entity.Availability;
 import com.doctor.availability.service.DoctorAvailabilityService;
+import com.doctor.availability.service.DoctorDaySlotsChecker;
+import com.doctor.availability.service.RosterPublishingService;
 
 @RestController
 @RequestMapping("/api/availability")
@@ -25,6 +30,12 @@ public class DoctorAvailabilityController {
 	
     @Autowired
     private DoctorAvailabilityService availabilityService;
+
+    @Autowired
+    private DoctorDaySlotsChecker doctorDaySlotsChecker;
+
+    @Autowired
+    private RosterPublishingService rosterPublishingService;
     
     /**
      * Public endpoint to retrieve a doctor's availability for a specified date.
@@ -43,16 +54,29 @@ public class DoctorAvailabilityController {
      * Protected endpoint for a doctor to set or update availability.
      * This endpoint is secured; only an authenticated doctor should be allowed to update their own availability.
      * Example: POST /api/availability with a JSON body containing doctor details, date, and available time slots.
+     * The response also lists the ids of the booked appointments that were cancelled by the block.
      */
     @PostMapping("/setAvailability")
-    public ResponseEntity<Availability> setAvailability(@RequestBody DoctorScheduleDTO doctorScheduleDTO) {
-        Availability updated = availabilityService.setAvailability(
+    public ResponseEntity<DoctorBlockResultDTO> setAvailability(@RequestBody DoctorScheduleDTO doctorScheduleDTO) {
+        DoctorBlockResultDTO updated = availabilityService.setAvailability(
                 doctorScheduleDTO.getDoctorId(),
                 doctorScheduleDTO.getDate(),
                 doctorScheduleDTO.getBusySlots());
         return ResponseEntity.ok(updated);
     }
     
+    /**
+     * Publishes a roster of busy slots for many doctors and dates at once. Valid entries
+     * are saved and their conflicting booked appointments cancelled; invalid entries are
+     * reported per doctor.
+     * Example: POST /api/availability/roster with {"schedules": [{"doctorId": 10, "date": "2026-08-15",
+     * "busySlots": ["11:00", "11:30"]}, ...]}
+     */
+    @PostMapping("/roster")
+    public ResponseEntity<RosterPublishResultDTO> publishRoster(@RequestBody RosterDTO roster) {
+        return ResponseEntity.ok(rosterPublishingService.publish(roster));
+    }
+
     /**
      * Protected endpoint to update the status of an appointment.
      * For example, after an appointment you may mark it as COMPLETED or CANCELLED.
@@ -70,6 +94,25 @@ public class DoctorAvailabilityController {
         return ResponseEntity.ok(updated);
     }
     
+    /**
+     * Checks a doctor-day's materialized slots against the appointments and blocked
+     * slots and rebuilds them if they differ. Returns true if they were consistent.
+     * Example: POST /api/availability/rebuild?doctorId=10&date=2026-08-15
+     */
+    @PostMapping("/rebuild")
+    public ResponseEntity<Boolean> rebuildDoctorDay(@RequestParam Long doctorId, @RequestParam String date) {
+        return ResponseEntity.ok(doctorDaySlotsChecker.verify(doctorId, LocalDate.parse(date)));
+    }
+
+    /**
+     * Checks every materialized doctor-day in a date range; returns the number rebuilt.
+     * Example: POST /api/availability/rebuild/range?from=2026-08-01&to=2026-08-31
+     */
+    @PostMapping("/rebuild/range")
+    public ResponseEntity<Integer> rebuildDoctorDays(@RequestParam String from, @RequestParam String to) {
+        return ResponseEntity.ok(doctorDaySlotsChecker.verifyRange(LocalDate.parse(from), LocalDate.parse(to)));
+    }
+
     @PutMapping("/followup/{appointmentId}")
     public ResponseEntity<Appointment> createFollowUpAppointment(@PathVariable Long appointmentId, @RequestBody AppointmentUpdateDTO requestDTO) {
         // Force the followUp flag to true for follow-up appointments
@@ -0,0 +1,15 @@
+package com.doctor.availability.dto;
+
+import lombok.Data;
+import java.util.List;
+
+import com.doctor.availability.entity.Availability;
+
+@Data
+public class DoctorBlockResultDTO {
+    // The doctor's availability record after the slots were blocked.
+    private Availability availability;
+
+    // Appointments that were booked in the blocked slots and have been cancelled.
+    private List<Long> cancelledAppointmentIds;
+}
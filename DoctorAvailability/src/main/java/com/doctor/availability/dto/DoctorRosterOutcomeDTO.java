@@ -0,0 +1,22 @@
+package com.doctor.availability.dto;
+
+import lombok.Data;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+public class DoctorRosterOutcomeDTO {
+    private Long doctorId;
+
+    // Days whose availability record was written.
+    private int daysPublished;
+
+    // Days left unchanged because their entry failed validation; see errors.
+    private int daysRejected;
+
+    // Booked appointments in newly blocked slots that have been cancelled.
+    private List<Long> cancelledAppointmentIds = new ArrayList<>();
+
+    // One message per rejected entry or invalid slot, prefixed with its date.
+    private List<String> errors = new ArrayList<>();
+}
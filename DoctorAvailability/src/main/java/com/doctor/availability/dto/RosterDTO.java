@@ -0,0 +1,10 @@
+package com.doctor.availability.dto;
+
+import lombok.Data;
+import java.util.List;
+
+@Data
+public class RosterDTO {
+    // One entry per doctor and date; busySlots are "HH:mm" slot starts of the doctor's template.
+    private List<DoctorScheduleDTO> schedules;
+}
@@ -0,0 +1,14 @@
+package com.doctor.availability.dto;
+
+import lombok.Data;
+import java.util.List;
+
+@Data
+public class RosterPublishResultDTO {
+    private int daysPublished;
+    private int daysRejected;
+    private int appointmentsCancelled;
+
+    // Outcome per doctor, in the order the doctors first appear in the roster.
+    private List<DoctorRosterOutcomeDTO> doctors;
+}
@@ -10,7 +10,8 @@ import com.example.demo.entity.Doctor;
 import com.example.demo.entity.User;
 
 @Entity
-@Table(name = "availability")
+@Table(name = "availability", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_availability_doctor_date", columnNames = {"doctor_id", "date"})})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -30,14 +31,13 @@ public class Availability {
     private LocalDate date;
 
     // A list of time slots when the doctor is available for appointments.
-    @ElementCollection
-    //@CollectionTable(name = "availability_time_slots", joinColumns = @JoinColumn(name = "availability_id"))
-    @Column(name = "time_slot")
+    // Packed into one column (see SlotTimesConverter) rather than a collection table.
+    @Convert(converter = SlotTimesConverter.class)
+    @Column(name = "available_slots", length = SlotTimesConverter.MAX_BYTES)
     private List<LocalTime> availableSlots;
 
     // A list of time slots that the doctor has blocked (or marked as busy).
-    @ElementCollection
-    @CollectionTable(name = "availability_busy_slots", joinColumns = @JoinColumn(name = "availability_id"))
-    @Column(name = "time_slot")
+    @Convert(converter = SlotTimesConverter.class)
+    @Column(name = "busy_slots", length = SlotTimesConverter.MAX_BYTES)
     private List<LocalTime> busySlots;
 }
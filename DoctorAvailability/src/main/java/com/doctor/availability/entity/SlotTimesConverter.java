@@ -0,0 +1,54 @@
+package com.doctor.availability.entity;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Stores a list of slot start times in one VARBINARY column as packed
+ * minute-of-day offsets: two bytes per time, big-endian, in list order. A day
+ * of 30-minute slots takes at most 96 bytes, so saving an Availability row is a
+ * single-row update instead of rewriting a collection table.
+ *
+ * Slot starts are whole minutes; seconds are rejected rather than lost.
+ */
+@Converter
+public class SlotTimesConverter implements AttributeConverter<List<LocalTime>, byte[]> {
+
+    // Every minute of a day, two bytes each; the column width.
+    public static final int MAX_BYTES = 24 * 60 * 2;
+
+    @Override
+    public byte[] convertToDatabaseColumn(List<LocalTime> times) {
+        if (times == null) {
+            return null;
+        }
+        byte[] packed = new byte[times.size() * 2];
+        for (int i = 0; i < times.size(); i++) {
+            LocalTime time = times.get(i);
+            if (time.getSecond() != 0 || time.getNano() != 0) {
+                throw new IllegalArgumentException("Slot time is not a whole minute: " + time);
+            }
+            int minute = time.getHour() * 60 + time.getMinute();
+            packed[2 * i] = (byte) (minute >>> 8);
+            packed[2 * i + 1] = (byte) minute;
+        }
+        return packed;
+    }
+
+    @Override
+    public List<LocalTime> convertToEntityAttribute(byte[] packed) {
+        if (packed == null) {
+            return null;
+        }
+        // Callers edit the list in place (e.g. unblockAvailability), so it must be mutable.
+        List<LocalTime> times = new ArrayList<>(packed.length / 2);
+        for (int i = 0; i + 1 < packed.length; i += 2) {
+            int minute = (packed[i] & 0xff) << 8 | (packed[i + 1] & 0xff);
+            times.add(LocalTime.of(minute / 60, minute % 60));
+        }
+        return times;
+    }
+}
@@ -12,5 +12,8 @@ import com.example.demo.entity.User;
 public interface AvailabilityRepository extends JpaRepository<Availability, Long> {
 
 	Availability findByDoctorAndDate(Doctor doctor, LocalDate date);
+
+	// Same record by doctor id, without loading the doctor (doctor-day rebuilds).
+	Availability findByDoctor_DoctorIdAndDate(Long doctorId, LocalDate date);
 }
 
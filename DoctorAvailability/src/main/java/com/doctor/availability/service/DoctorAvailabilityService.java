@@ -3,6 +3,7 @@ package com.doctor.availability.service;
 import java.time.LocalDate;
 import java.time.LocalTime;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -13,12 +14,17 @@ import org.springframework.transaction.annotation.Transactional;
 
 import com.appointment.entity.Appointment;
 import com.appointment.entity.AppointmentStatus;
+import com.appointment.entity.DoctorDaySlots;
+import com.example.demo.cache.ReferenceDataCache;
 import com.example.demo.entity.Doctor;
-import com.example.demo.entity.User;
-import com.example.demo.repository.DoctorRepository;
-import com.example.demo.repository.UserRepository;
 import com.appointment.repository.AppointmentRepository;
+import com.appointment.repository.AppointmentRepository.AppointmentSlot;
 import com.appointment.service.AppointmentService;
+import com.appointment.service.DoctorDaySlotStore;
+import com.appointment.service.SlotOccupancyIndex;
+import com.appointment.template.SlotTemplate;
+import com.appointment.template.SlotTemplateRegistry;
+import com.doctor.availability.dto.DoctorBlockResultDTO;
 import com.doctor.availability.dto.DoctorScheduleDTO;
 import com.doctor.availability.entity.Availability;
 import com.doctor.availability.repository.AvailabilityRepository;
@@ -29,41 +35,38 @@ public class DoctorAvailabilityService {
 	@Autowired
 	private AvailabilityRepository availabilityRepository;
 
-	@Autowired
-	private UserRepository userRepository;
-
 	@Autowired
 	private AppointmentRepository appointmentRepository;
 	
-    @Autowired
-    private DoctorRepository doctorRepository;
+	@Autowired
+	private ReferenceDataCache referenceDataCache;
+
+	// Working hours, breaks and slot length per doctor-day, shared with AppointmentScheduling.
+	@Autowired
+	private SlotTemplateRegistry slotTemplateRegistry;
+
+	// This process's booked-slot index; evict also reaches the AppointmentScheduling
+	// instances through doctor_day_changes, so bulk cancellations call it.
+	@Autowired
+	private SlotOccupancyIndex slotOccupancyIndex;
+
+	// Materialized booked and blocked slots per doctor-day, read by getAvailability.
+	@Autowired
+	private DoctorDaySlotStore doctorDaySlotStore;
 
-	private final int SLOT_DURATION_MINUTES = 30;
+	// Promotes waiting patients after a bulk cancellation, like every other cancel path.
+	@Autowired
+	private AppointmentService appointmentService;
 
 	/**
 	 * Set or update a doctor's availability for a given date. Typically, this
 	 * endpoint is secured so that only authenticated doctors can update their own
 	 * availability.
 	 */
-//    @Transactional
-//    public Availability setAvailability(Long doctorId, LocalDate date, List<String> busySlots) {
-//        User doctor = userRepository.findById(doctorId)
-//                .orElseThrow(() -> new RuntimeException("Doctor not found"));
-//        Availability availability = availabilityRepository.findByDoctorAndDate(doctor, date);
-//        if (availability == null) {
-//            availability = new Availability();
-//            availability.setDoctor(doctor);
-//            availability.setDate(date);
-//        }
-//        availability.setAvailableSlots(busySlots);
-//        return availabilityRepository.saveAndFlush(availability);
-//    }
-//    
-
 	@Transactional
-	public Availability setAvailability(Long doctorId, LocalDate date, List<String> busySlots) {
+	public DoctorBlockResultDTO setAvailability(Long doctorId, LocalDate date, List<String> busySlots) {
 		// Retrieve the doctor from the user repository.
-		Doctor doctor = doctorRepository.findById(doctorId)
+		Doctor doctor = referenceDataCache.findDoctor(doctorId)
                 .orElseThrow(() -> new RuntimeException("Doctor not found"));
 
 		// Retrieve or create an Availability record for this doctor and date.
@@ -75,6 +78,7 @@ public class DoctorAvailabilityService {
 		}
 
 		// Convert busySlots (strings in "HH:mm") to LocalTime objects.
+		SlotTemplate template = slotTemplateRegistry.forDoctorDay(doctorId, date);
 		List<LocalTime> blockedSlots = busySlots.stream().map(slotStr -> {
 			try {
 				return LocalTime.parse(slotStr);
@@ -82,31 +86,34 @@ public class DoctorAvailabilityService {
 				throw new RuntimeException("Invalid time format: " + slotStr);
 			}
 		})
-				// Validate that the time falls within working hours and is not during lunch.
-				.filter(slot -> {
-					boolean withinWorkingHours = !slot.isBefore(WORK_START)
-							&& !slot.plusMinutes(SLOT_DURATION_MINUTES).isAfter(WORK_END);
-					boolean isDuringLunch = (!slot.isBefore(LUNCH_START) && slot.isBefore(LUNCH_END));
-					return withinWorkingHours && !isDuringLunch;
-				}).collect(Collectors.toList());
-
-		// For each blocked slot, cancel any active appointment (even if booked, they
-		// must be cancelled).
-		for (LocalTime slot : blockedSlots) {
-			// Retrieve appointments for the doctor at the given date and slot.
-			List<Appointment> appointments = appointmentRepository.findByDoctorAndAppointmentDate(doctor, date).stream()
-					.filter(app -> app.getAppointmentTime().equals(slot)
-							&& app.getStatus() != AppointmentStatus.CANCELLED)
+				// Keep only bookable slot starts of the doctor's template (working hours, no break).
+				.filter(template::isSlotStart).distinct().collect(Collectors.toList());
+
+		// Load the doctor's booked appointments for the day once and pick those that
+		// start in a blocked slot; they must be cancelled even though they are booked.
+		Set<LocalTime> blocked = new HashSet<>(blockedSlots);
+		List<AppointmentSlot> cancelled = blocked.isEmpty() ? List.of()
+				: appointmentRepository.findSlotsByDoctorAndDateAndStatus(doctorId, date, AppointmentStatus.BOOKED)
+						.stream().filter(slot -> blocked.contains(slot.getAppointmentTime()))
+						.collect(Collectors.toList());
+		List<Long> cancelledIds = cancelled.stream().map(AppointmentSlot::getAppointmentId)
+				.collect(Collectors.toList());
+
+		// Cancel them in one statement. The bulk update bypasses the slot indexes, so
+		// the doctor-day is dropped from them once the transaction commits. Waiting
+		// patients are then promoted into the day's open slots.
+		if (!cancelledIds.isEmpty()) {
+			List<LocalTime> vacated = cancelled.stream().map(AppointmentSlot::getAppointmentTime)
 					.collect(Collectors.toList());
-			// Cancel each appointment.
-			for (Appointment app : appointments) {
-				app.setStatus(AppointmentStatus.CANCELLED);
-				appointmentRepository.save(app);
-			}
+			appointmentRepository.cancelBookedByIds(cancelledIds);
+			slotOccupancyIndex.evict(doctorId, date);
+			doctorDaySlotStore.freed(doctorId, date, vacated);
+			appointmentService.promoteWaitingAfterBlock(doctorId, date, vacated, blockedSlots);
 		}
 
 		// Save the blocked (busy) slots in the availability record.
 		availability.setBusySlots(blockedSlots);
+		doctorDaySlotStore.setBlocked(doctorId, date, template.maskOf(blockedSlots));
 
 		// Optionally, update availableSlots here by computing the complement of the
 		// default working slots.
@@ -114,7 +121,10 @@ public class DoctorAvailabilityService {
 		// dynamically.
 
 		// Persist the updated availability record.
-		return availabilityRepository.saveAndFlush(availability);
+		DoctorBlockResultDTO result = new DoctorBlockResultDTO();
+		result.setAvailability(availabilityRepository.saveAndFlush(availability));
+		result.setCancelledAppointmentIds(cancelledIds);
+		return result;
 	}
 
 	/**
@@ -124,56 +134,51 @@ public class DoctorAvailabilityService {
 	 */
 	// Example constants (adjust if these are defined elsewhere in your project)
 
+	@Transactional
 	public Availability getAvailability(Long doctorId, LocalDate date) {
 		// Retrieve the doctor from the User repository.
-		Doctor doctor = doctorRepository.findById(doctorId).orElseThrow(() -> new RuntimeException("Doctor not found"));
-
-		// Fetch all appointments for the specified doctor on the given date.
-		List<Appointment> appointments = appointmentRepository.findByDoctorAndAppointmentDate(doctor, date);
-
-		// Collect all time slots that have an active appointment (i.e. not CANCELLED).
-		Set<LocalTime> bookedSlots = appointments.stream()
-				.filter(appointment -> appointment.getStatus() != AppointmentStatus.CANCELLED)
-				.map(Appointment::getAppointmentTime).collect(Collectors.toSet());
-
-		// Generate the list of all potential appointment slots for the day,
-		// excluding any slots that fall in the lunch break.
-		List<LocalTime> allSlots = new ArrayList<>();
-		LocalTime currentSlot = WORK_START;
-		// Continue as long as the slot can fit into the working day.
-		while (!currentSlot.plusMinutes(SLOT_DURATION_MINUTES).isAfter(WORK_END)) {
-			// Add the slot if it is either before lunch or after the lunch break.
-			if (currentSlot.isBefore(LUNCH_START) || currentSlot.isAfter(LUNCH_END) || currentSlot.equals(LUNCH_END)) {
-				allSlots.add(currentSlot);
-			}
-			currentSlot = currentSlot.plusMinutes(SLOT_DURATION_MINUTES);
+		Doctor doctor = referenceDataCache.findDoctor(doctorId)
+				.orElseThrow(() -> new RuntimeException("Doctor not found"));
+
+		// The doctor-day's booked and blocked slots are one primary-key lookup of
+		// the materialized row; a mask that is not materialized yet is rebuilt
+		// from its source table and stored for the next read.
+		DoctorDaySlots day = doctorDaySlotStore.find(doctorId, date).orElse(null);
+		long booked = day != null && day.getBookedMask() != null ? day.getBookedMask()
+				: doctorDaySlotStore.materializeBooked(doctorId, date);
+		long blocked;
+		if (day != null && day.getBlockedMask() != null) {
+			blocked = day.getBlockedMask();
+		} else {
+			blocked = blockedFromSource(doctorId, date);
+			doctorDaySlotStore.fillBlocked(doctorId, date, blocked);
 		}
 
-		// Remove slots that have already been booked.
-		List<LocalTime> computedAvailableSlots = allSlots.stream().filter(slot -> !bookedSlots.contains(slot))
-				.collect(Collectors.toList());
-
-		// Retrieve any existing availability record for the given doctor and date.
-		Availability existingAvailability = availabilityRepository.findByDoctorAndDate(doctor, date);
-		// If an availability record exists and busySlots are defined, use them; else,
-		// use an empty list.
-		List<LocalTime> busySlots = (existingAvailability != null && existingAvailability.getBusySlots() != null)
-				? existingAvailability.getBusySlots()
-				: new ArrayList<>();
-
-		// Remove any manually blocked (busy) slots from the computed available slots.
-		computedAvailableSlots.removeAll(busySlots);
+		// Available slots are the bookable slots of the doctor's template for that
+		// day (working hours, no break) that are neither booked nor blocked.
+		SlotTemplate template = slotTemplateRegistry.forDoctorDay(doctorId, date);
 
 		// Construct the final Availability object containing both fields.
 		Availability result = new Availability();
 		result.setDoctor(doctor);
 		result.setDate(date);
-		result.setAvailableSlots(computedAvailableSlots);
-		result.setBusySlots(busySlots);
+		result.setAvailableSlots(template.slotsOf(template.getBookableMask() & ~booked & ~blocked));
+		result.setBusySlots(template.slotsOf(blocked));
 
 		return result;
 	}
 
+	/**
+	 * Slots the doctor has blocked on a date, from the availability record.
+	 */
+	public long blockedFromSource(Long doctorId, LocalDate date) {
+		Availability availability = availabilityRepository.findByDoctor_DoctorIdAndDate(doctorId, date);
+		if (availability == null || availability.getBusySlots() == null) {
+			return 0L;
+		}
+		return slotTemplateRegistry.forDoctorDay(doctorId, date).maskOf(availability.getBusySlots());
+	}
+
 	/**
 	 * Update the status of an appointment. When an appointment is completed or the
 	 * patient misses the appointment, the doctor can mark it as COMPLETED or
@@ -183,17 +188,23 @@ public class DoctorAvailabilityService {
 	public Appointment updateAppointmentStatus(Long appointmentId, AppointmentStatus status) {
 		Appointment appointment = appointmentRepository.findById(appointmentId)
 				.orElseThrow(() -> new RuntimeException("Appointment not found"));
+		AppointmentStatus previous = appointment.getStatus();
 		appointment.setStatus(status);
-		return appointmentRepository.saveAndFlush(appointment);
+		Appointment saved = appointmentRepository.saveAndFlush(appointment);
+
+		// Only moves into or out of BOOKED change the doctor-day's booked slots.
+		if ((previous == AppointmentStatus.BOOKED) != (status == AppointmentStatus.BOOKED)) {
+			Long doctorId = appointment.getDoctor().getDoctorId();
+			slotOccupancyIndex.evict(doctorId, appointment.getAppointmentDate());
+			if (status == AppointmentStatus.BOOKED) {
+				doctorDaySlotStore.booked(doctorId, appointment.getAppointmentDate(), appointment.getAppointmentTime());
+			} else {
+				doctorDaySlotStore.freed(doctorId, appointment.getAppointmentDate(), appointment.getAppointmentTime());
+			}
+		}
+		return saved;
 	}
 
-	private final LocalTime WORK_START = LocalTime.of(9, 30);
-	private final LocalTime WORK_END = LocalTime.of(18, 0);
-	private final LocalTime LUNCH_START = LocalTime.of(13, 0);
-	private final LocalTime LUNCH_END = LocalTime.of(14, 30);
-	// FOLLOWUP_ALLOWED_START is not used in default free slot calculations
-	private final LocalTime FOLLOWUP_ALLOWED_START = LocalTime.of(16, 0);
-
 	// Used to fetch the doctor based on doctorId
 
 	/**
@@ -203,6 +214,7 @@ public class DoctorAvailabilityService {
 	 * marks as busy is removed.
 	 *
 	 * The resulting available slots are stored in the Availability entity.
+	 * To save schedules for several doctors or dates, use RosterPublishingService.
 	 */
 	public Availability setDoctorSchedule(DoctorScheduleDTO scheduleDTO) {
 		LocalDate scheduleDate = scheduleDTO.getDate();
@@ -211,19 +223,10 @@ public class DoctorAvailabilityService {
 			throw new IllegalArgumentException("The schedule date must be exactly the next day: " + expectedDate);
 		}
 
-		// Compute default free slots as 30-minute intervals from WORK_START to
-		// WORK_END, excluding the lunch period
-		List<LocalTime> defaultSlots = new ArrayList<>();
-		LocalTime slotTime = WORK_START;
-		while (!slotTime.plusMinutes(30).isAfter(WORK_END)) {
-			// Skip slots falling within the lunch break
-			if (slotTime.compareTo(LUNCH_START) >= 0 && slotTime.isBefore(LUNCH_END)) {
-				slotTime = slotTime.plusMinutes(30);
-				continue;
-			}
-			defaultSlots.add(slotTime);
-			slotTime = slotTime.plusMinutes(30);
-		}
+		// Default free slots are the bookable slots of the doctor's template for that
+		// day (working hours, excluding breaks)
+		List<LocalTime> defaultSlots = slotTemplateRegistry.forDoctorDay(scheduleDTO.getDoctorId(), scheduleDate)
+				.getBookableSlots();
 
 		// Parse the busy slots provided by the doctor (if any) into LocalTime objects
 		List<LocalTime> busySlots = new ArrayList<>();
@@ -238,7 +241,7 @@ public class DoctorAvailabilityService {
 				.collect(Collectors.toList());
 
 		// Retrieve the doctor's User entity using the provided doctorId
-		Doctor doctor = doctorRepository.findById(scheduleDTO.getDoctorId()).orElseThrow(
+		Doctor doctor = referenceDataCache.findDoctor(scheduleDTO.getDoctorId()).orElseThrow(
 				() -> new IllegalArgumentException("Doctor not found with id: " + scheduleDTO.getDoctorId()));
 
 		// Build the Availability record
@@ -256,7 +259,7 @@ public class DoctorAvailabilityService {
 	@Transactional
 	public Availability unblockAvailability(Long doctorId, LocalDate date, List<String> unblockSlots) {
 	    // Retrieve the doctor from the user repository.
-	    Doctor doctor = doctorRepository.findById(doctorId)
+	    Doctor doctor = referenceDataCache.findDoctor(doctorId)
 	            .orElseThrow(() -> new RuntimeException("Doctor not found"));
 	    
 	    // Retrieve the existing Availability record for this doctor and date.
@@ -268,6 +271,7 @@ public class DoctorAvailabilityService {
 	    }
 	    
 	    // Convert unblockSlots (strings in HH:mm) to LocalTime objects.
+	    SlotTemplate template = slotTemplateRegistry.forDoctorDay(doctorId, date);
 	    List<LocalTime> unblockLocalTimes = unblockSlots.stream()
 	            .map(slotStr -> {
 	                try {
@@ -276,13 +280,8 @@ public class DoctorAvailabilityService {
 	                    throw new RuntimeException("Invalid time format: " + slotStr);
 	                }
 	            })
-	            // Validate that the time falls within working hours and is not during lunch.
-	            .filter(slot -> {
-	                boolean withinWorkingHours = !slot.isBefore(WORK_START) && 
-	                        !slot.plusMinutes(SLOT_DURATION_MINUTES).isAfter(WORK_END);
-	                boolean isDuringLunch = (!slot.isBefore(LUNCH_START) && slot.isBefore(LUNCH_END));
-	                return withinWorkingHours && !isDuringLunch;
-	            })
+	            // Keep only bookable slot starts of the doctor's template (working hours, no break).
+	            .filter(template::isSlotStart)
 	            .collect(Collectors.toList());
 	    
 	    // Remove the unblocking slots from the current busySlots.
@@ -295,6 +294,7 @@ public class DoctorAvailabilityService {
 	    // Remove every time that the doctor is unblocking.
 	    currentBusySlots.removeAll(unblockLocalTimes);
 	    availability.setBusySlots(currentBusySlots);
+	    doctorDaySlotStore.setBlocked(doctorId, date, template.maskOf(currentBusySlots));
 	    
 	    // Optionally, you might recalculate availableSlots
 	    // e.g., using: availableSlots = defaultSlots - currentBusySlots - bookedSlots
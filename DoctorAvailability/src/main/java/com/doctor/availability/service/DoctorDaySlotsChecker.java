@@ -0,0 +1,77 @@
+package com.doctor.availability.service;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Objects;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.appointment.entity.DoctorDaySlots;
+import com.appointment.service.DoctorDaySlotStore;
+
+/**
+ * Consistency check of the materialized doctor_day_slots rows against their
+ * source tables: the BOOKED appointments and the availability busy slots. A
+ * doctor-day that differs, or has no row yet, is rebuilt from the sources.
+ *
+ * Each day is checked in its own transaction that first locks the row, so it
+ * runs one at a time with the rebuild that DoctorDaySlotStore starts after
+ * each booking commits. It is also the backstop for a rebuild that failed.
+ */
+@Service
+public class DoctorDaySlotsChecker {
+
+	private static final Logger logger = LoggerFactory.getLogger(DoctorDaySlotsChecker.class);
+
+	@Autowired
+	private DoctorDaySlotStore doctorDaySlotStore;
+
+	@Autowired
+	private DoctorAvailabilityService doctorAvailabilityService;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	/**
+	 * Rebuilds one doctor-day if it is missing or differs from its sources.
+	 * Returns true if the materialized row was already consistent.
+	 */
+	public boolean verify(Long doctorId, LocalDate date) {
+		Boolean consistent = transactionTemplate.execute(status -> {
+			DoctorDaySlots day = doctorDaySlotStore.findForUpdate(doctorId, date).orElse(null);
+			long booked = doctorDaySlotStore.bookedFromSource(doctorId, date);
+			long blocked = doctorAvailabilityService.blockedFromSource(doctorId, date);
+			if (day != null && Objects.equals(day.getBookedMask(), booked)
+					&& Objects.equals(day.getBlockedMask(), blocked)) {
+				return true;
+			}
+			logger.warn("Rebuilding doctor-day slots for doctor {} on {}: booked {} -> {}, blocked {} -> {}", doctorId,
+					date, day == null ? null : day.getBookedMask(), booked, day == null ? null : day.getBlockedMask(),
+					blocked);
+			doctorDaySlotStore.setBooked(doctorId, date, booked);
+			doctorDaySlotStore.setBlocked(doctorId, date, blocked);
+			return false;
+		});
+		return Boolean.TRUE.equals(consistent);
+	}
+
+	/**
+	 * Verifies every materialized doctor-day between from and to (inclusive)
+	 * and returns the number of days that were rebuilt.
+	 */
+	public int verifyRange(LocalDate from, LocalDate to) {
+		List<DoctorDaySlots> days = doctorDaySlotStore.findBetween(from, to);
+		int rebuilt = 0;
+		for (DoctorDaySlots day : days) {
+			if (!verify(day.getId().getDoctorId(), day.getId().getSlotDate())) {
+				rebuilt++;
+			}
+		}
+		logger.info("Checked {} doctor-days from {} to {}; rebuilt {}", days.size(), from, to, rebuilt);
+		return rebuilt;
+	}
+}
@@ -12,7 +12,7 @@ import java.util.List;
 import com.doctor.availability.entity.Availability;
 import com.doctor.availability.repository.AvailabilityRepository;
 import com.example.demo.entity.Doctor;
-import com.example.demo.repository.DoctorRepository;
+import com.example.demo.cache.ReferenceDataCache;
 
 @Service
 public class Logging {
@@ -20,16 +20,16 @@ public class Logging {
     private static final Logger logger = LoggerFactory.getLogger(Logging.class);
 
     private final AvailabilityRepository availabilityRepository;
-    private final DoctorRepository doctorRepository;
+    private final ReferenceDataCache referenceDataCache;
 
-    public Logging(AvailabilityRepository availabilityRepository, DoctorRepository doctorRepository) {
+    public Logging(AvailabilityRepository availabilityRepository, ReferenceDataCache referenceDataCache) {
         this.availabilityRepository = availabilityRepository;
-        this.doctorRepository = doctorRepository;
+        this.referenceDataCache = referenceDataCache;
     }
 
     public Availability getAvailability(Long doctorId, LocalDate date) {
         logger.debug("Fetching availability for doctorId: {} on date: {}", doctorId, date);
-        Doctor doctor = doctorRepository.findById(doctorId)
+        Doctor doctor = referenceDataCache.findDoctor(doctorId)
                 .orElseThrow(() -> new RuntimeException("Doctor not found"));
 
         Availability availability = availabilityRepository.findByDoctorAndDate(doctor, date);
@@ -50,7 +50,7 @@ public class Logging {
     @Transactional
     public Availability setAvailability(Long doctorId, LocalDate date, List<LocalTime> busySlots) {
         logger.debug("Setting availability for doctorId: {} on date: {} with busySlots: {}", doctorId, date, busySlots);
-        Doctor doctor = doctorRepository.findById(doctorId)
+        Doctor doctor = referenceDataCache.findDoctor(doctorId)
                 .orElseThrow(() -> new RuntimeException("Doctor not found"));
 
         Availability availability = availabilityRepository.findByDoctorAndDate(doctor, date);
@@ -73,7 +73,7 @@ public class Logging {
     @Transactional
     public Availability unblockAvailability(Long doctorId, LocalDate date, List<String> unblockSlots) {
         logger.debug("Unblocking slots {} for doctorId: {} on date: {}", unblockSlots, doctorId, date);
-        Doctor doctor = doctorRepository.findById(doctorId)
+        Doctor doctor = referenceDataCache.findDoctor(doctorId)
                 .orElseThrow(() -> new RuntimeException("Doctor not found"));
 
         Availability availability = availabilityRepository.findByDoctorAndDate(doctor, date);
@@ -0,0 +1,259 @@
+package com.doctor.availability.service;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.appointment.entity.AppointmentStatus;
+import com.appointment.entity.DoctorDayId;
+import com.appointment.repository.AppointmentRepository;
+import com.appointment.repository.AppointmentRepository.AppointmentSlot;
+import com.appointment.service.AppointmentService;
+import com.appointment.service.DoctorDaySlotStore;
+import com.appointment.service.SlotOccupancyIndex;
+import com.appointment.template.SlotTemplate;
+import com.appointment.template.SlotTemplateRegistry;
+import com.doctor.availability.dto.DoctorRosterOutcomeDTO;
+import com.doctor.availability.dto.DoctorScheduleDTO;
+import com.doctor.availability.dto.RosterDTO;
+import com.doctor.availability.dto.RosterPublishResultDTO;
+import com.doctor.availability.entity.SlotTimesConverter;
+import com.example.demo.entity.Doctor;
+import com.example.demo.repository.DoctorRepository;
+
+/**
+ * Publishes a roster: busy slots for many doctors over many dates, in one
+ * transaction with a fixed number of statements per step:
+ * - one query for the doctors, then every entry is validated against its
+ *   doctor-day's slot template; an invalid entry is rejected as a whole and
+ *   reported, the others are published;
+ * - one JDBC batch upsert of the availability records (unique per doctor and
+ *   date), each busy list packed as by SlotTimesConverter;
+ * - one query for the booked appointments of the roster's doctors and dates,
+ *   and bulk cancellation of those in a newly blocked slot, after which each
+ *   affected doctor-day is evicted from the slot indexes and its waiting
+ *   patients are promoted into its open slots;
+ * - one JDBC batch of the materialized blocked masks.
+ */
+@Service
+public class RosterPublishingService {
+
+	private static final Logger logger = LoggerFactory.getLogger(RosterPublishingService.class);
+
+	private static final String UPSERT_AVAILABILITY_SQL = "INSERT INTO availability (doctor_id, date, busy_slots) "
+			+ "VALUES (?, ?, ?) ON DUPLICATE KEY UPDATE busy_slots = VALUES(busy_slots)";
+
+	// Keeps the IN list of a bulk cancellation to a bounded size.
+	private static final int CANCEL_CHUNK_SIZE = 1000;
+
+	@Autowired
+	private DoctorRepository doctorRepository;
+
+	@Autowired
+	private AppointmentRepository appointmentRepository;
+
+	@Autowired
+	private SlotTemplateRegistry slotTemplateRegistry;
+
+	@Autowired
+	private SlotOccupancyIndex slotOccupancyIndex;
+
+	@Autowired
+	private DoctorDaySlotStore doctorDaySlotStore;
+
+	@Autowired
+	private AppointmentService appointmentService;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Value("${availability.roster.batch-size:500}")
+	private int batchSize = 500;
+
+	private final SlotTimesConverter slotTimesConverter = new SlotTimesConverter();
+
+	@Transactional
+	public RosterPublishResultDTO publish(RosterDTO roster) {
+		long start = System.nanoTime();
+		List<DoctorScheduleDTO> schedules = roster.getSchedules() == null ? List.of() : roster.getSchedules();
+		LocalDate today = LocalDate.now();
+
+		Map<Long, DoctorRosterOutcomeDTO> outcomes = new LinkedHashMap<>();
+		Set<Long> doctorIds = new HashSet<>();
+		for (DoctorScheduleDTO schedule : schedules) {
+			if (schedule.getDoctorId() != null) {
+				doctorIds.add(schedule.getDoctorId());
+				outcomes.computeIfAbsent(schedule.getDoctorId(), this::outcome);
+			}
+		}
+		Set<Long> knownDoctors = doctorRepository.findAllById(doctorIds).stream().map(Doctor::getDoctorId)
+				.collect(Collectors.toSet());
+
+		// 1. Validate every entry; keep the accepted doctor-days with their busy slots in time order.
+		Map<DoctorDayId, TreeSet<LocalTime>> accepted = new LinkedHashMap<>();
+		int rejected = 0;
+		for (DoctorScheduleDTO schedule : schedules) {
+			if (schedule.getDoctorId() == null) {
+				rejected++;
+				logger.warn("Rejected roster entry without doctorId for {}", schedule.getDate());
+				continue;
+			}
+			DoctorRosterOutcomeDTO outcome = outcomes.get(schedule.getDoctorId());
+			List<String> errors = new ArrayList<>();
+			TreeSet<LocalTime> busy = validate(schedule, knownDoctors, today, errors);
+			DoctorDayId day = new DoctorDayId(schedule.getDoctorId(), schedule.getDate());
+			if (errors.isEmpty() && accepted.containsKey(day)) {
+				errors.add(schedule.getDate() + ": listed more than once");
+			}
+			if (errors.isEmpty()) {
+				accepted.put(day, busy);
+			} else {
+				rejected++;
+				outcome.setDaysRejected(outcome.getDaysRejected() + 1);
+				outcome.getErrors().addAll(errors);
+			}
+		}
+
+		// 2. Upsert the availability records.
+		jdbcTemplate.batchUpdate(UPSERT_AVAILABILITY_SQL, accepted.entrySet(), batchSize, (ps, entry) -> {
+			ps.setLong(1, entry.getKey().getDoctorId());
+			ps.setDate(2, Date.valueOf(entry.getKey().getSlotDate()));
+			ps.setBytes(3, slotTimesConverter.convertToDatabaseColumn(new ArrayList<>(entry.getValue())));
+		});
+		for (DoctorDayId day : accepted.keySet()) {
+			DoctorRosterOutcomeDTO outcome = outcomes.get(day.getDoctorId());
+			outcome.setDaysPublished(outcome.getDaysPublished() + 1);
+		}
+
+		// 3. Cancel booked appointments in blocked slots, and 4. materialize the blocked masks.
+		int cancelled = reconcileAppointments(accepted, outcomes);
+		Map<DoctorDayId, Long> blockedMasks = new HashMap<>();
+		accepted.forEach((day, busy) -> blockedMasks.put(day,
+				slotTemplateRegistry.forDoctorDay(day.getDoctorId(), day.getSlotDate()).maskOf(busy)));
+		doctorDaySlotStore.setBlocked(blockedMasks);
+
+		RosterPublishResultDTO result = new RosterPublishResultDTO();
+		result.setDaysPublished(accepted.size());
+		result.setDaysRejected(rejected);
+		result.setAppointmentsCancelled(cancelled);
+		result.setDoctors(new ArrayList<>(outcomes.values()));
+		logger.info("Published roster: {} doctor-days for {} doctors, {} rejected, {} appointments cancelled ({} ms)",
+				accepted.size(), outcomes.size(), rejected, cancelled, (System.nanoTime() - start) / 1_000_000);
+		return result;
+	}
+
+	// Returns the busy slots of a valid entry; otherwise adds at least one error.
+	private TreeSet<LocalTime> validate(DoctorScheduleDTO schedule, Set<Long> knownDoctors, LocalDate today,
+			List<String> errors) {
+		TreeSet<LocalTime> busy = new TreeSet<>();
+		LocalDate date = schedule.getDate();
+		if (date == null) {
+			errors.add("entry without a date");
+			return busy;
+		}
+		if (!knownDoctors.contains(schedule.getDoctorId())) {
+			errors.add(date + ": doctor not found");
+			return busy;
+		}
+		if (date.isBefore(today)) {
+			errors.add(date + ": date is in the past");
+			return busy;
+		}
+		if (schedule.getBusySlots() == null) {
+			return busy;
+		}
+		SlotTemplate template = slotTemplateRegistry.forDoctorDay(schedule.getDoctorId(), date);
+		for (String slot : schedule.getBusySlots()) {
+			LocalTime time;
+			try {
+				time = LocalTime.parse(slot);
+			} catch (DateTimeParseException e) {
+				errors.add(date + ": invalid time format: " + slot);
+				continue;
+			}
+			if (!template.isSlotStart(time)) {
+				errors.add(date + ": " + slot + " is not a bookable slot of template " + template.getName());
+				continue;
+			}
+			busy.add(time);
+		}
+		return busy;
+	}
+
+	// Cancels the booked appointments that start in a blocked slot of a published day; returns the count.
+	private int reconcileAppointments(Map<DoctorDayId, TreeSet<LocalTime>> accepted,
+			Map<Long, DoctorRosterOutcomeDTO> outcomes) {
+		Set<Long> blockingDoctors = new HashSet<>();
+		LocalDate from = null;
+		LocalDate to = null;
+		for (Map.Entry<DoctorDayId, TreeSet<LocalTime>> entry : accepted.entrySet()) {
+			if (entry.getValue().isEmpty()) {
+				continue;
+			}
+			LocalDate date = entry.getKey().getSlotDate();
+			blockingDoctors.add(entry.getKey().getDoctorId());
+			from = from == null || date.isBefore(from) ? date : from;
+			to = to == null || date.isAfter(to) ? date : to;
+		}
+		if (blockingDoctors.isEmpty()) {
+			return 0;
+		}
+
+		Map<DoctorDayId, List<LocalTime>> freed = new LinkedHashMap<>();
+		List<Long> ids = new ArrayList<>();
+		for (AppointmentSlot slot : appointmentRepository.findSlotsByDoctorsAndDateRangeAndStatus(blockingDoctors, from,
+				to, AppointmentStatus.BOOKED)) {
+			DoctorDayId day = new DoctorDayId(slot.getDoctorId(), slot.getAppointmentDate());
+			Set<LocalTime> busy = accepted.get(day);
+			if (busy != null && busy.contains(slot.getAppointmentTime())) {
+				ids.add(slot.getAppointmentId());
+				freed.computeIfAbsent(day, d -> new ArrayList<>()).add(slot.getAppointmentTime());
+				outcomes.get(slot.getDoctorId()).getCancelledAppointmentIds().add(slot.getAppointmentId());
+			}
+		}
+		for (List<Long> chunk : chunks(ids)) {
+			appointmentRepository.cancelBookedByIds(chunk);
+		}
+		// The bulk updates bypass the slot indexes of every process and the booked masks;
+		// update them per doctor-day, then promote the day's waiting patients.
+		freed.forEach((day, times) -> {
+			slotOccupancyIndex.evict(day.getDoctorId(), day.getSlotDate());
+			doctorDaySlotStore.freed(day.getDoctorId(), day.getSlotDate(), times);
+			appointmentService.promoteWaitingAfterBlock(day.getDoctorId(), day.getSlotDate(), times,
+					accepted.get(day));
+		});
+		return ids.size();
+	}
+
+	private static List<List<Long>> chunks(List<Long> ids) {
+		List<List<Long>> chunks = new ArrayList<>();
+		for (int i = 0; i < ids.size(); i += CANCEL_CHUNK_SIZE) {
+			chunks.add(ids.subList(i, Math.min(ids.size(), i + CANCEL_CHUNK_SIZE)));
+		}
+		return chunks;
+	}
+
+	private DoctorRosterOutcomeDTO outcome(Long doctorId) {
+		DoctorRosterOutcomeDTO outcome = new DoctorRosterOutcomeDTO();
+		outcome.setDoctorId(doctorId);
+		return outcome;
+	}
+}
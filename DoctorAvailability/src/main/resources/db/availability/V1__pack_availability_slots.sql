@@ -0,0 +1,49 @@
+-- Moves Availability.availableSlots and busySlots from their element collection
+-- tables into packed VARBINARY columns (see SlotTimesConverter): two bytes of
+-- minute-of-day per slot, big-endian.
+--
+-- The availability tables were created by hibernate ddl-auto=update. The
+-- CREATE ... IF NOT EXISTS statements give a fresh database the same starting
+-- point, so the copy below runs unchanged on both. They do not reference
+-- doctors, which UserManagement may not have created yet; the foreign key is
+-- added by AvailabilityForeignKeyCallback once it exists.
+
+CREATE TABLE IF NOT EXISTS availability (
+    id        BIGINT NOT NULL AUTO_INCREMENT,
+    doctor_id BIGINT NOT NULL,
+    date      DATE NOT NULL,
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE IF NOT EXISTS availability_available_slots (
+    availability_id BIGINT NOT NULL,
+    time_slot       TIME(6)
+);
+
+CREATE TABLE IF NOT EXISTS availability_busy_slots (
+    availability_id BIGINT NOT NULL,
+    time_slot       TIME(6)
+);
+
+ALTER TABLE availability
+    ADD COLUMN available_slots VARBINARY(2880),
+    ADD COLUMN busy_slots      VARBINARY(2880);
+
+-- 4 hex digits per slot; the default limit of 1024 would truncate long lists.
+SET SESSION group_concat_max_len = 16384;
+
+-- The collections had no order column; slots are stored in time order.
+UPDATE availability a
+SET a.available_slots = (
+        SELECT UNHEX(GROUP_CONCAT(LPAD(HEX(HOUR(s.time_slot) * 60 + MINUTE(s.time_slot)), 4, '0')
+                                  ORDER BY s.time_slot SEPARATOR ''))
+        FROM availability_available_slots s
+        WHERE s.availability_id = a.id AND s.time_slot IS NOT NULL),
+    a.busy_slots = (
+        SELECT UNHEX(GROUP_CONCAT(LPAD(HEX(HOUR(s.time_slot) * 60 + MINUTE(s.time_slot)), 4, '0')
+                                  ORDER BY s.time_slot SEPARATOR ''))
+        FROM availability_busy_slots s
+        WHERE s.availability_id = a.id AND s.time_slot IS NOT NULL);
+
+DROP TABLE availability_available_slots;
+DROP TABLE availability_busy_slots;
@@ -0,0 +1,8 @@
+-- One availability record per doctor and date, so that roster publishing can
+-- upsert with INSERT ... ON DUPLICATE KEY UPDATE. Earlier duplicates could
+-- only arise from concurrent first writes; the newest record is kept.
+
+DELETE older FROM availability older
+JOIN availability newer ON newer.doctor_id = older.doctor_id AND newer.date = older.date AND newer.id > older.id;
+
+ALTER TABLE availability ADD CONSTRAINT uk_availability_doctor_date UNIQUE (doctor_id, date);
@@ -4,6 +4,7 @@ import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
 import java.time.LocalDate;
+import java.time.LocalTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -13,8 +14,17 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import com.appointment.entity.AppointmentStatus;
+import com.appointment.repository.AppointmentRepository;
+import com.appointment.repository.AppointmentRepository.AppointmentSlot;
+import com.appointment.service.AppointmentService;
+import com.appointment.service.DoctorDaySlotStore;
+import com.appointment.service.SlotOccupancyIndex;
+import com.appointment.template.SlotTemplate;
+import com.appointment.template.SlotTemplateRegistry;
 import com.example.demo.entity.Doctor;
-import com.example.demo.repository.DoctorRepository;
+import com.example.demo.cache.ReferenceDataCache;
+import com.doctor.availability.dto.DoctorBlockResultDTO;
 import com.doctor.availability.entity.Availability;
 import com.doctor.availability.repository.AvailabilityRepository;
 import com.doctor.availability.service.DoctorAvailabilityService;
@@ -26,7 +36,22 @@ public class DoctorAvailabilityApplicationTests {
     private AvailabilityRepository availabilityRepository;
 
     @Mock
-    private DoctorRepository doctorRepository;
+    private ReferenceDataCache referenceDataCache;
+
+    @Mock
+    private AppointmentRepository appointmentRepository;
+
+    @Mock
+    private SlotTemplateRegistry slotTemplateRegistry;
+
+    @Mock
+    private SlotOccupancyIndex slotOccupancyIndex;
+
+    @Mock
+    private DoctorDaySlotStore doctorDaySlotStore;
+
+    @Mock
+    private AppointmentService appointmentService;
 
     @InjectMocks
     private DoctorAvailabilityService doctorAvailabilityService;
@@ -47,12 +72,19 @@ public class DoctorAvailabilityApplicationTests {
         mockAvailability.setBusySlots(List.of()); // Default empty slots
 
         // Mock repository behaviors
-        when(doctorRepository.findById(doctorId)).thenReturn(Optional.of(mockDoctor));
+        when(referenceDataCache.findDoctor(doctorId)).thenReturn(Optional.of(mockDoctor));
         when(availabilityRepository.findByDoctorAndDate(any(Doctor.class), eq(date))).thenReturn(mockAvailability);
         when(availabilityRepository.saveAndFlush(any(Availability.class))).thenReturn(mockAvailability);
+        when(slotTemplateRegistry.forDoctorDay(doctorId, date)).thenReturn(new SlotTemplate("default",
+                LocalTime.of(9, 0), LocalTime.of(17, 0), 30, List.of(), null));
+        AppointmentSlot blocked = bookedSlot(5L, LocalTime.of(10, 0));
+        AppointmentSlot kept = bookedSlot(6L, LocalTime.of(12, 0));
+        when(appointmentRepository.findSlotsByDoctorAndDateAndStatus(doctorId, date, AppointmentStatus.BOOKED))
+                .thenReturn(List.of(blocked, kept));
 
         // When
-        Availability result = doctorAvailabilityService.setAvailability(doctorId, date, busySlots);
+        DoctorBlockResultDTO blockResult = doctorAvailabilityService.setAvailability(doctorId, date, busySlots);
+        Availability result = blockResult.getAvailability();
 
         // Then
         assertNotNull(result);
@@ -60,8 +92,26 @@ public class DoctorAvailabilityApplicationTests {
         assertEquals(date, result.getDate());
         assertEquals(busySlots.size(), result.getBusySlots().size());
 
-        verify(doctorRepository, times(1)).findById(doctorId);
+        verify(referenceDataCache, times(1)).findDoctor(doctorId);
         verify(availabilityRepository, times(1)).findByDoctorAndDate(any(Doctor.class), eq(date));
         verify(availabilityRepository, times(1)).saveAndFlush(any(Availability.class));
+
+        // Only the appointment in a blocked slot is cancelled, with one bulk update.
+        assertEquals(List.of(5L), blockResult.getCancelledAppointmentIds());
+        verify(appointmentRepository, times(1)).cancelBookedByIds(List.of(5L));
+        verify(slotOccupancyIndex, times(1)).evict(doctorId, date);
+        // The materialized doctor-day loses the cancelled booking and records both blocked slots (bits 2 and 4).
+        verify(doctorDaySlotStore, times(1)).freed(doctorId, date, List.of(LocalTime.of(10, 0)));
+        verify(doctorDaySlotStore, times(1)).setBlocked(doctorId, date, 0b10100L);
+        // Waiting patients are promoted into the day's open slots; both requested slots stay blocked.
+        verify(appointmentService, times(1)).promoteWaitingAfterBlock(doctorId, date, List.of(LocalTime.of(10, 0)),
+                List.of(LocalTime.of(10, 0), LocalTime.of(11, 0)));
+    }
+
+    private AppointmentSlot bookedSlot(Long appointmentId, LocalTime time) {
+        AppointmentSlot slot = mock(AppointmentSlot.class);
+        lenient().when(slot.getAppointmentId()).thenReturn(appointmentId);
+        when(slot.getAppointmentTime()).thenReturn(time);
+        return slot;
     }
 }
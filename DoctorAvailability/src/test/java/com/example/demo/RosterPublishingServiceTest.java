@@ -0,0 +1,125 @@
+package com.example.demo;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+
+import com.appointment.entity.AppointmentStatus;
+import com.appointment.entity.DoctorDayId;
+import com.appointment.repository.AppointmentRepository;
+import com.appointment.repository.AppointmentRepository.AppointmentSlot;
+import com.appointment.service.AppointmentService;
+import com.appointment.service.DoctorDaySlotStore;
+import com.appointment.service.SlotOccupancyIndex;
+import com.appointment.template.SlotTemplate;
+import com.appointment.template.SlotTemplateRegistry;
+import com.doctor.availability.dto.DoctorRosterOutcomeDTO;
+import com.doctor.availability.dto.DoctorScheduleDTO;
+import com.doctor.availability.dto.RosterDTO;
+import com.doctor.availability.dto.RosterPublishResultDTO;
+import com.doctor.availability.service.RosterPublishingService;
+import com.example.demo.entity.Doctor;
+import com.example.demo.repository.DoctorRepository;
+
+@ExtendWith(MockitoExtension.class)
+public class RosterPublishingServiceTest {
+
+    @Mock
+    private DoctorRepository doctorRepository;
+
+    @Mock
+    private AppointmentRepository appointmentRepository;
+
+    @Mock
+    private SlotTemplateRegistry slotTemplateRegistry;
+
+    @Mock
+    private SlotOccupancyIndex slotOccupancyIndex;
+
+    @Mock
+    private DoctorDaySlotStore doctorDaySlotStore;
+
+    @Mock
+    private AppointmentService appointmentService;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @InjectMocks
+    private RosterPublishingService rosterPublishingService;
+
+    private final LocalDate day1 = LocalDate.now().plusDays(1);
+    private final LocalDate day2 = LocalDate.now().plusDays(2);
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testPublish_SavesValidDaysCancelsConflictsAndReportsInvalidOnes() {
+        Doctor doctor = new Doctor();
+        doctor.setDoctorId(1L);
+        when(doctorRepository.findAllById(any())).thenReturn(List.of(doctor));
+        when(slotTemplateRegistry.forDoctorDay(eq(1L), any())).thenReturn(new SlotTemplate("default",
+                LocalTime.of(9, 0), LocalTime.of(17, 0), 30, List.of(), null));
+        AppointmentSlot conflicting = bookedSlot(5L, LocalTime.of(10, 0));
+        AppointmentSlot kept = bookedSlot(6L, LocalTime.of(12, 0));
+        when(appointmentRepository.findSlotsByDoctorsAndDateRangeAndStatus(Set.of(1L), day1, day1,
+                AppointmentStatus.BOOKED)).thenReturn(List.of(conflicting, kept));
+
+        RosterDTO roster = new RosterDTO();
+        roster.setSchedules(List.of(
+                schedule(1L, day1, "10:00", "11:00"),
+                schedule(1L, day2, "10:15"),
+                schedule(2L, day1, "10:00")));
+
+        RosterPublishResultDTO result = rosterPublishingService.publish(roster);
+
+        assertEquals(1, result.getDaysPublished());
+        assertEquals(2, result.getDaysRejected());
+        assertEquals(1, result.getAppointmentsCancelled());
+        DoctorRosterOutcomeDTO first = result.getDoctors().get(0);
+        assertEquals(List.of(5L), first.getCancelledAppointmentIds());
+        assertEquals(1, first.getDaysRejected());
+        assertTrue(first.getErrors().get(0).contains("10:15"));
+        assertEquals(List.of(day1 + ": doctor not found"), result.getDoctors().get(1).getErrors());
+
+        // One batch for the availability records, one bulk cancel, one batch of blocked masks (bits 2 and 4).
+        verify(jdbcTemplate, times(1)).batchUpdate(anyString(), anyCollection(), anyInt(),
+                any(ParameterizedPreparedStatementSetter.class));
+        verify(appointmentRepository, times(1)).cancelBookedByIds(List.of(5L));
+        verify(doctorDaySlotStore).freed(1L, day1, List.of(LocalTime.of(10, 0)));
+        verify(doctorDaySlotStore).setBlocked(Map.of(new DoctorDayId(1L, day1), 0b10100L));
+        verify(slotOccupancyIndex).evict(1L, day1);
+        verify(appointmentService).promoteWaitingAfterBlock(eq(1L), eq(day1), eq(List.of(LocalTime.of(10, 0))),
+                eq(Set.of(LocalTime.of(10, 0), LocalTime.of(11, 0))));
+    }
+
+    private DoctorScheduleDTO schedule(Long doctorId, LocalDate date, String... busySlots) {
+        DoctorScheduleDTO schedule = new DoctorScheduleDTO();
+        schedule.setDoctorId(doctorId);
+        schedule.setDate(date);
+        schedule.setBusySlots(List.of(busySlots));
+        return schedule;
+    }
+
+    private AppointmentSlot bookedSlot(Long appointmentId, LocalTime time) {
+        AppointmentSlot slot = mock(AppointmentSlot.class);
+        lenient().when(slot.getAppointmentId()).thenReturn(appointmentId);
+        when(slot.getDoctorId()).thenReturn(1L);
+        when(slot.getAppointmentDate()).thenReturn(day1);
+        when(slot.getAppointmentTime()).thenReturn(time);
+        return slot;
+    }
+}
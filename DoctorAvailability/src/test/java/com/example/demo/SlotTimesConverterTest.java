@@ -0,0 +1,43 @@
+package com.example.demo;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.LocalTime;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.doctor.availability.entity.SlotTimesConverter;
+
+public class SlotTimesConverterTest {
+
+    private final SlotTimesConverter converter = new SlotTimesConverter();
+
+    @Test
+    void testRoundTrip_KeepsOrderInTwoBytesPerSlot() {
+        List<LocalTime> slots = List.of(LocalTime.of(17, 30), LocalTime.MIDNIGHT, LocalTime.of(9, 30),
+                LocalTime.of(23, 59));
+
+        byte[] packed = converter.convertToDatabaseColumn(slots);
+
+        assertEquals(8, packed.length);
+        // 9:30 is minute 570 = 0x023A.
+        assertEquals(0x02, packed[4]);
+        assertEquals(0x3A, packed[5]);
+        assertEquals(slots, converter.convertToEntityAttribute(packed));
+    }
+
+    @Test
+    void testEmptyAndNullLists() {
+        assertEquals(0, converter.convertToDatabaseColumn(List.of()).length);
+        assertTrue(converter.convertToEntityAttribute(new byte[0]).isEmpty());
+        assertNull(converter.convertToDatabaseColumn(null));
+        assertNull(converter.convertToEntityAttribute(null));
+    }
+
+    @Test
+    void testRejectsSeconds() {
+        assertThrows(IllegalArgumentException.class,
+                () -> converter.convertToDatabaseColumn(List.of(LocalTime.of(9, 30, 15))));
+    }
+}
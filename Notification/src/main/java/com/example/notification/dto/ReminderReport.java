@@ -0,0 +1,28 @@
+package com.example.notification.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDate;
+
+// Outcome of one reminder run.
+@Getter
+@Setter
+public class ReminderReport {
+    private LocalDate day;
+    private int appointments;
+    private int recipients; // distinct email addresses and phone numbers
+    private int emailsQueued;
+    private int smsQueued;
+    private int failures; // reminders that could not be queued
+    private int duplicates; // recipients already reminded, e.g. by an interrupted earlier run
+    private long durationMillis;
+    private double messagesPerSecond;
+
+    @Override
+    public String toString() {
+        return String.format("%d appointments, %d recipients, %d emails and %d SMS queued, %d failed, %d already sent"
+                + " in %d ms (%.1f/s)", appointments, recipients, emailsQueued, smsQueued, failures, duplicates,
+                durationMillis, messagesPerSecond);
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.notification.ledger;
+
+import com.example.notification.template.MessageType;
+
+import java.util.Date;
+
+// Identity of one notification: which appointment event, on which channel, to whom.
+public record LedgerKey(Long appointmentId, String channel, String eventType, String recipient) {
+
+    // Events that can happen more than once for an appointment (a move, a
+    // reminder) are qualified by the appointment time they refer to.
+    public static String event(MessageType type, Date appointmentDate) {
+        return type.name() + "@" + appointmentDate.getTime();
+    }
+
+    public static String event(MessageType type) {
+        return type.name();
+    }
+
+    String asString() {
+        return appointmentId + "|" + channel + "|" + eventType + "|" + recipient;
+    }
+}
@@ -0,0 +1,158 @@
+package com.example.notification.ledger;
+
+import com.example.notification.model.NotificationLedgerEntry;
+import com.example.notification.repository.NotificationLedgerRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+// Idempotency check for the send path. claim records a notification in the
+// notification_ledger table and returns false if it was recorded before.
+//
+// Two in-memory structures keep most checks off the database:
+//   - an LRU set of keys known to be recorded answers repeats directly;
+//   - a Bloom filter of every key recorded by this instance (and, at startup,
+//     in the last warm-up window) proves a key new without a read, so a new
+//     notification costs only its insert. Only a Bloom hit that is not in the
+//     LRU set is confirmed with a query.
+// The unique key on the table is the final arbiter between instances and for
+// keys older than the warm-up window: the insert of a duplicate fails.
+//
+// The ledger writes in the caller's transaction, so a claim commits or rolls
+// back together with the outbox row it guards and a crash in between leaves
+// neither. The insert goes through JDBC rather than the repository: a
+// duplicate then fails only that statement (MySQL and H2 roll back the
+// statement, not the transaction), whereas a failed JPA flush would mark the
+// caller's transaction rollback-only and fail the appointment change it
+// belongs to.
+@Service
+public class NotificationLedger {
+    private static final Logger logger = LoggerFactory.getLogger(NotificationLedger.class);
+
+    @Autowired
+    private NotificationLedgerRepository ledgerRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${notification.ledger.bloom-expected-entries:1000000}")
+    private int bloomExpectedEntries = 1000000;
+    @Value("${notification.ledger.bloom-false-positive-rate:0.01}")
+    private double bloomFalsePositiveRate = 0.01;
+    @Value("${notification.ledger.recent-capacity:100000}")
+    private int recentCapacity = 100000;
+    @Value("${notification.ledger.warm-up-hours:48}")
+    private long warmUpHours = 48;
+    @Value("${notification.ledger.retention-days:90}")
+    private long retentionDays = 90;
+
+    private static final String INSERT_SQL = "INSERT INTO notification_ledger "
+            + "(appointment_id, channel, event_type, recipient, recorded_at) VALUES (?, ?, ?, ?, ?)";
+
+    private BloomFilter recorded;
+    private Set<String> recent;
+
+    @PostConstruct
+    public void start() {
+        recorded = new BloomFilter(bloomExpectedEntries, bloomFalsePositiveRate);
+        recent = Collections.synchronizedSet(Collections.newSetFromMap(new LinkedHashMap<>(1024, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > recentCapacity;
+            }
+        }));
+        int loaded = 0;
+        Instant since = Instant.now().minus(Duration.ofHours(warmUpHours));
+        for (NotificationLedgerEntry entry : ledgerRepository.findRecordedSince(since)) {
+            recorded.put(keyOf(entry).asString());
+            loaded++;
+        }
+        logger.info("Notification ledger warmed with {} recent entries", loaded);
+    }
+
+    // Records the notification and returns true if it has not been recorded
+    // before. Inside a transaction the row commits or rolls back with the
+    // caller, so a claim whose transaction fails can be made again.
+    public boolean claim(LedgerKey key) {
+        String id = key.asString();
+        if (recent.contains(id)) {
+            return false;
+        }
+        boolean inserted = insert(key, id);
+        recorded.put(id);
+        // Only a committed claim may answer later checks from memory.
+        afterCommit(() -> recent.add(id));
+        return inserted;
+    }
+
+    // Forgets an event for every recipient, e.g. a move to a time the
+    // appointment has since left, so that moving back notifies again. Inside
+    // a transaction the delete commits or rolls back with the caller.
+    public void forget(Long appointmentId, String eventType) {
+        String prefix = appointmentId + "|";
+        String suffix = "|" + eventType + "|";
+        synchronized (recent) {
+            recent.removeIf(id -> id.startsWith(prefix) && id.contains(suffix));
+        }
+        ledgerRepository.deleteEvent(appointmentId, eventType);
+    }
+
+    @Scheduled(cron = "${notification.ledger.purge-cron:0 30 3 * * ?}")
+    public void purge() {
+        int deleted = ledgerRepository.deleteRecordedBefore(Instant.now().minus(Duration.ofDays(retentionDays)));
+        logger.info("Purged {} notification ledger entries older than {} days", deleted, retentionDays);
+    }
+
+    // Inserts the key unless it is known to be recorded; false for a duplicate.
+    private boolean insert(LedgerKey key, String id) {
+        if (recorded.mightContain(id) && ledgerRepository.existsByAppointmentIdAndChannelAndEventTypeAndRecipient(
+                key.appointmentId(), key.channel(), key.eventType(), key.recipient())) {
+            return false;
+        }
+        try {
+            jdbcTemplate.update(INSERT_SQL, ps -> {
+                ps.setLong(1, key.appointmentId());
+                ps.setString(2, key.channel());
+                ps.setString(3, key.eventType());
+                ps.setString(4, key.recipient());
+                ps.setTimestamp(5, Timestamp.from(Instant.now()));
+            });
+            return true;
+        } catch (DuplicateKeyException e) {
+            // Recorded by another instance, or before the warm-up window.
+            return false;
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private static LedgerKey keyOf(NotificationLedgerEntry entry) {
+        return new LedgerKey(entry.getAppointmentId(), entry.getChannel(), entry.getEventType(), entry.getRecipient());
+    }
+}
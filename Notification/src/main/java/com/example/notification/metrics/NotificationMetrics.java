@@ -0,0 +1,79 @@
+package com.example.notification.metrics;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+// Delivery metrics, published through the actuator /actuator/metrics and
+// /actuator/prometheus endpoints. Everything is tagged by channel (EMAIL or
+// SMS); failures are also tagged by the exception type that caused them.
+//
+//   notification.sent              messages accepted by the provider
+//   notification.failed            failed attempts, by cause
+//   notification.abandoned         outbox messages that used up their attempts
+//   notification.send.duration     time spent in the provider call
+//   notification.delivery.latency  appointment change (outbox row) to delivery
+//
+// Queue depth gauges are registered by the components that own the queues.
+@Component
+@PropertySource("classpath:notification-metrics.properties")
+public class NotificationMetrics {
+    private final MeterRegistry registry;
+
+    public NotificationMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    public void sent(String channel, long durationNanos) {
+        registry.counter("notification.sent", "channel", channel).increment();
+        histogram("notification.send.duration", "Time spent in the provider call", channel)
+                .record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void failed(String channel, Throwable error) {
+        registry.counter("notification.failed", "channel", channel, "cause", causeOf(error)).increment();
+    }
+
+    public void abandoned(String channel) {
+        registry.counter("notification.abandoned", "channel", channel).increment();
+    }
+
+    public void delivered(String channel, Instant createdAt) {
+        if (createdAt != null) {
+            histogram("notification.delivery.latency", "Appointment change to delivery", channel)
+                    .record(Duration.between(createdAt, Instant.now()));
+        }
+    }
+
+    public void gauge(String name, String description, Supplier<Number> value) {
+        Gauge.builder(name, value).description(description).register(registry);
+    }
+
+    public void gauge(String name, String description, String channel, Supplier<Number> value) {
+        Gauge.builder(name, value).description(description).tag("channel", channel).register(registry);
+    }
+
+    private Timer histogram(String name, String description, String channel) {
+        return Timer.builder(name)
+                .description(description)
+                .tag("channel", channel)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    private static String causeOf(Throwable error) {
+        while ((error instanceof CompletionException || error instanceof ExecutionException) && error.getCause() != null) {
+            error = error.getCause();
+        }
+        return error.getClass().getSimpleName();
+    }
+}
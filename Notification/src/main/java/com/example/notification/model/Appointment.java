@@ -9,6 +9,9 @@ import java.util.Date;
 @Setter
 @Getter
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_appointment_date", columnList = "date"),
+        @Index(name = "idx_appointment_status_date", columnList = "status, date") })
 public class Appointment {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
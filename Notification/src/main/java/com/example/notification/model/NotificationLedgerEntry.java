@@ -0,0 +1,28 @@
+package com.example.notification.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.Instant;
+
+// Record of one notification that has been handed to the outbox or sent, so
+// that a retried request or a restarted reminder run does not send it again.
+// The unique key is the notification's identity.
+@Setter
+@Getter
+@Entity
+@Table(name = "notification_ledger",
+        uniqueConstraints = @UniqueConstraint(name = "uk_ledger_key", columnNames = { "appointment_id", "channel", "event_type", "recipient" }),
+        indexes = @Index(name = "idx_ledger_recorded_at", columnList = "recorded_at"))
+public class NotificationLedgerEntry {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private Long appointmentId;
+    private String channel; // EMAIL or SMS
+    private String eventType; // e.g. APPOINTMENT_CREATED or REMINDER@<appointment time>
+    private String recipient;
+    private Instant recordedAt;
+}
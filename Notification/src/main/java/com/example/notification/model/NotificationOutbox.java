@@ -0,0 +1,38 @@
+package com.example.notification.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.Instant;
+
+// One email or SMS to deliver. Rows are written in the same transaction as the
+// appointment change and delivered afterwards by NotificationDispatcher.
+@Setter
+@Getter
+@Entity
+@Table(name = "notification_outbox", indexes = @Index(name = "idx_outbox_status_next_attempt", columnList = "status, next_attempt_at"))
+public class NotificationOutbox {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private Long appointmentId;
+    private String channel; // EMAIL or SMS
+    private String recipient;
+    private String subject;
+
+    @Column(length = 1000)
+    private String body;
+
+    private String status; // PENDING, SENDING, SENT, FAILED, UNKNOWN (timed out after hand-off)
+    private NotificationPriority priority;
+    private String timeZone; // recipient's zone for quiet hours; null for the default
+    private int attempts;
+    private Instant nextAttemptAt; // also the earliest delivery time, e.g. the end of quiet hours
+    private Instant createdAt;
+    private Instant sentAt;
+
+    @Column(length = 500)
+    private String lastError;
+}
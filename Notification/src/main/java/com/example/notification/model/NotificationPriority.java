@@ -0,0 +1,10 @@
+package com.example.notification.model;
+
+// Delivery order of outbox messages, most urgent first. Stored by ordinal, so
+// new classes must only be appended or inserted with a data migration.
+public enum NotificationPriority {
+    URGENT, // cancellations; also exempt from quiet hours
+    CHANGE, // bookings and moves
+    REMINDER,
+    DIGEST
+}
@@ -17,4 +17,6 @@ public class User {
     private String email;
     private String role; // DOCTOR or PATIENT
     private String phoneNumber; // Added phone number field
+    private String locale; // language tag such as "es" or "hi"; null for the default
+    private String timeZone; // IANA zone such as "Asia/Kolkata", for quiet hours; null for the default
 }
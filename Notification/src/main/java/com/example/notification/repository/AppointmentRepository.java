@@ -1,6 +1,7 @@
 package com.example.notification.repository;
 
 import com.example.notification.model.Appointment;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -8,7 +9,22 @@ import org.springframework.data.repository.query.Param;
 import java.util.Date;
 import java.util.List;
 
+// Date filters are half-open ranges [from, to) on the raw column so that
+// idx_appointment_date / idx_appointment_status_date can be used. Callers
+// normally go through AppointmentCalendar, which builds the day bounds.
 public interface AppointmentRepository extends JpaRepository<Appointment, Long> {
-	@Query("SELECT a FROM Appointment a WHERE FORMATDATETIME(a.date, 'yyyy-MM-dd') = FORMATDATETIME(:date, 'yyyy-MM-dd')")
-    List<Appointment> findByDate(@Param("date") Date date);
+    @Query("SELECT a FROM Appointment a JOIN FETCH a.doctor JOIN FETCH a.patient "
+            + "WHERE a.date >= :from AND a.date < :to ORDER BY a.date, a.id")
+    List<Appointment> findByDateRange(@Param("from") Date from, @Param("to") Date to);
+
+    @Query("SELECT a FROM Appointment a JOIN FETCH a.doctor JOIN FETCH a.patient "
+            + "WHERE a.status = :status AND a.date >= :from AND a.date < :to ORDER BY a.date, a.id")
+    List<Appointment> findByStatusAndDateRange(@Param("status") String status, @Param("from") Date from,
+            @Param("to") Date to);
+
+    // One page of the range's active appointments after afterId, with doctor and patient in the same select.
+    @Query("SELECT a FROM Appointment a JOIN FETCH a.doctor JOIN FETCH a.patient "
+            + "WHERE a.date >= :from AND a.date < :to AND a.status <> 'CANCELLED' AND a.id > :afterId ORDER BY a.id")
+    List<Appointment> findActivePageByDateRange(@Param("from") Date from, @Param("to") Date to,
+            @Param("afterId") Long afterId, Pageable pageable);
 }
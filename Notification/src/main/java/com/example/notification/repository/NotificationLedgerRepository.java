@@ -0,0 +1,29 @@
+package com.example.notification.repository;
+
+import com.example.notification.model.NotificationLedgerEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface NotificationLedgerRepository extends JpaRepository<NotificationLedgerEntry, Long> {
+    boolean existsByAppointmentIdAndChannelAndEventTypeAndRecipient(Long appointmentId, String channel, String eventType,
+            String recipient);
+
+    @Query("SELECT e FROM NotificationLedgerEntry e WHERE e.recordedAt >= :since")
+    List<NotificationLedgerEntry> findRecordedSince(@Param("since") Instant since);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM NotificationLedgerEntry e WHERE e.appointmentId = :appointmentId AND e.eventType = :eventType")
+    int deleteEvent(@Param("appointmentId") Long appointmentId, @Param("eventType") String eventType);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM NotificationLedgerEntry e WHERE e.recordedAt < :before")
+    int deleteRecordedBefore(@Param("before") Instant before);
+}
@@ -0,0 +1,47 @@
+package com.example.notification.repository;
+
+import com.example.notification.model.NotificationOutbox;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface NotificationOutboxRepository extends JpaRepository<NotificationOutbox, Long> {
+    // PENDING rows whose time has come, and SENDING rows whose worker lease expired, most urgent first.
+    @Query("SELECT o FROM NotificationOutbox o WHERE o.status IN ('PENDING', 'SENDING') AND o.nextAttemptAt <= :now "
+            + "ORDER BY o.priority, o.nextAttemptAt")
+    List<NotificationOutbox> findDue(@Param("now") Instant now, Pageable pageable);
+
+    long countByStatusIn(List<String> statuses);
+
+    // Takes a due row for one delivery attempt; returns 0 if another worker has it or it is done.
+    @Transactional
+    @Modifying
+    @Query("UPDATE NotificationOutbox o SET o.status = 'SENDING', o.attempts = o.attempts + 1, o.nextAttemptAt = :leaseUntil "
+            + "WHERE o.id = :id AND o.status IN ('PENDING', 'SENDING') AND o.nextAttemptAt <= :now")
+    int claim(@Param("id") Long id, @Param("now") Instant now, @Param("leaseUntil") Instant leaseUntil);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE NotificationOutbox o SET o.status = 'SENT', o.sentAt = :sentAt, o.lastError = NULL WHERE o.id = :id")
+    int markSent(@Param("id") Long id, @Param("sentAt") Instant sentAt);
+
+    // Puts a claimed row back without using up an attempt, e.g. until quiet hours end.
+    @Transactional
+    @Modifying
+    @Query("UPDATE NotificationOutbox o SET o.status = 'PENDING', o.attempts = o.attempts - 1, o.nextAttemptAt = :notBefore "
+            + "WHERE o.id = :id")
+    int defer(@Param("id") Long id, @Param("notBefore") Instant notBefore);
+
+    // Either back to PENDING with a later nextAttemptAt, or FAILED once the attempts are used up.
+    @Transactional
+    @Modifying
+    @Query("UPDATE NotificationOutbox o SET o.status = :status, o.nextAttemptAt = :nextAttemptAt, o.lastError = :error WHERE o.id = :id")
+    int markFailed(@Param("id") Long id, @Param("status") String status, @Param("nextAttemptAt") Instant nextAttemptAt,
+            @Param("error") String error);
+}
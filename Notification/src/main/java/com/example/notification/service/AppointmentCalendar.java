@@ -0,0 +1,59 @@
+package com.example.notification.service;
+
+import com.example.notification.model.Appointment;
+import com.example.notification.repository.AppointmentRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Day-based appointment lookups shared by the reminder job and digest-style
+// jobs. A day is the half-open range [00:00, next day 00:00) in the server
+// time zone, so every lookup is an index range scan on appointment.date.
+@Service
+public class AppointmentCalendar {
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    public List<Appointment> forDay(LocalDate day) {
+        return appointmentRepository.findByDateRange(startOf(day), startOf(day.plusDays(1)));
+    }
+
+    public List<Appointment> forDay(LocalDate day, String status) {
+        return appointmentRepository.findByStatusAndDateRange(status, startOf(day), startOf(day.plusDays(1)));
+    }
+
+    // Appointments from first to last (inclusive) in one query, bucketed by day.
+    // Every day of the range has an entry, empty if nothing is booked.
+    public Map<LocalDate, List<Appointment>> forDays(LocalDate first, LocalDate last) {
+        Map<LocalDate, List<Appointment>> buckets = new LinkedHashMap<>();
+        for (LocalDate day = first; !day.isAfter(last); day = day.plusDays(1)) {
+            buckets.put(day, new ArrayList<>());
+        }
+        for (Appointment app : appointmentRepository.findByDateRange(startOf(first), startOf(last.plusDays(1)))) {
+            buckets.get(dayOf(app.getDate())).add(app);
+        }
+        return buckets;
+    }
+
+    // Keyset page of the day's non-cancelled appointments with an id above afterId.
+    public List<Appointment> activePage(LocalDate day, Long afterId, int size) {
+        return appointmentRepository.findActivePageByDateRange(startOf(day), startOf(day.plusDays(1)), afterId,
+                PageRequest.of(0, size));
+    }
+
+    private static Date startOf(LocalDate day) {
+        return Date.from(day.atStartOfDay(ZoneId.systemDefault()).toInstant());
+    }
+
+    private static LocalDate dayOf(Date date) {
+        return date.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+    }
+}
@@ -1,13 +1,21 @@
 package com.example.notification.service;
 
 import com.example.notification.model.Appointment;
+import com.example.notification.model.NotificationPriority;
 import com.example.notification.model.User;
+import com.example.notification.ledger.LedgerKey;
+import com.example.notification.ledger.NotificationLedger;
 import com.example.notification.repository.AppointmentRepository;
 import com.example.notification.repository.UserRepository;
+import com.example.notification.template.MessageParams;
+import com.example.notification.template.MessageType;
+import com.example.notification.template.NotificationTemplates;
 import org.springframework.stereotype.Service;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Date;
+import java.util.List;
 
 @Service
 public class AppointmentService {
@@ -16,10 +24,15 @@ public class AppointmentService {
     @Autowired
     private UserRepository userRepository;
     @Autowired
-    private EmailService emailService;
+    private NotificationDispatcher notificationDispatcher;
     @Autowired
-    private TwilioSmsService smsService;
+    private NotificationTemplates notificationTemplates;
+    @Autowired
+    private NotificationLedger notificationLedger;
 
+    // Notifications are written to the outbox in the same transaction and
+    // delivered after commit, so these calls do not wait for mail or SMS.
+    @Transactional
     public Appointment createAppointment(Long doctorId, Long patientId, Date date) {
         try {
             User doctor = userRepository.findById(doctorId).orElseThrow(() -> new RuntimeException("Doctor not found"));
@@ -32,20 +45,25 @@ public class AppointmentService {
             appointment.setStatus("CREATED");
 
             Appointment saved = appointmentRepository.save(appointment);
-            notifyUsers(saved, "Appointment Created");
+            notifyUsers(saved, MessageType.APPOINTMENT_CREATED);
             return saved;
         } catch (Exception e) {
             throw new RuntimeException("Error creating appointment: " + e.getMessage());
         }
     }
 
+    @Transactional
     public Appointment modifyAppointment(Long id, Date updatedDate) {
         try {
             return appointmentRepository.findById(id).map(app -> {
+                if (app.getDate() != null && app.getDate().getTime() != updatedDate.getTime()) {
+                    // Moving away from a time forgets the move to it, so moving back notifies again.
+                    notificationLedger.forget(app.getId(), LedgerKey.event(MessageType.APPOINTMENT_MODIFIED, app.getDate()));
+                }
                 app.setDate(updatedDate);
                 app.setStatus("MODIFIED");
                 Appointment saved = appointmentRepository.save(app);
-                notifyUsers(saved, "Appointment Modified");
+                notifyUsers(saved, MessageType.APPOINTMENT_MODIFIED);
                 return saved;
             }).orElseThrow(() -> new RuntimeException("Appointment not found"));
         } catch (Exception e) {
@@ -53,29 +71,40 @@ public class AppointmentService {
         }
     }
 
+    @Transactional
     public void cancelAppointment(Long id) {
         try {
             appointmentRepository.findById(id).ifPresent(app -> {
                 app.setStatus("CANCELLED");
                 appointmentRepository.save(app);
-                notifyUsers(app, "Appointment Cancelled");
+                notifyUsers(app, MessageType.APPOINTMENT_CANCELLED);
             });
         } catch (Exception e) {
             throw new RuntimeException("Error canceling appointment: " + e.getMessage());
         }
     }
 
-    private void notifyUsers(Appointment app, String subject) {
-        try {
-            String message = "Your appointment on " + app.getDate() + " has been " + app.getStatus();
-
-            emailService.sendEmail(app.getDoctor().getEmail(), subject, message);
-            emailService.sendEmail(app.getPatient().getEmail(), subject, message);
-
-            smsService.sendSms(app.getDoctor().getPhoneNumber(), message);
-            smsService.sendSms(app.getPatient().getPhoneNumber(), message);
-        } catch (Exception e) {
-            System.err.println("Error sending notifications: " + e.getMessage());
+    // Each participant gets the message in their own locale. A retried call
+    // produces the same event, which the dispatcher's ledger check drops.
+    // Cancellations are delivered first and regardless of quiet hours.
+    private void notifyUsers(Appointment app, MessageType type) {
+        String event = type == MessageType.APPOINTMENT_MODIFIED
+                ? LedgerKey.event(type, app.getDate()) : LedgerKey.event(type);
+        NotificationPriority priority = type == MessageType.APPOINTMENT_CANCELLED
+                ? NotificationPriority.URGENT : NotificationPriority.CHANGE;
+        for (User user : new User[] { app.getDoctor(), app.getPatient() }) {
+            MessageParams params = new MessageParams(user.getName(), List.of(app.getDate()));
+            String subject = notificationTemplates.subject(type, user.getLocale());
+            if (user.getEmail() != null) {
+                String body = notificationTemplates.email(type, user.getLocale(), params);
+                notificationDispatcher.enqueue(event, new NotificationRequest(app.getId(), "EMAIL", user.getEmail(),
+                        subject, body, priority, user.getTimeZone()));
+            }
+            if (user.getPhoneNumber() != null) {
+                String body = notificationTemplates.sms(type, user.getLocale(), params);
+                notificationDispatcher.enqueue(event, new NotificationRequest(app.getId(), "SMS", user.getPhoneNumber(),
+                        subject, body, priority, user.getTimeZone()));
+            }
         }
     }
 }
@@ -0,0 +1,173 @@
+package com.example.notification.service;
+
+import com.example.notification.metrics.NotificationMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.MimeMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+// Sends email over a small pool of persistent SMTP connections. Each pool
+// thread owns one connection, takes whatever messages are queued and sends
+// them back to back on that connection, so a burst pays for one SMTP
+// handshake per connection instead of one per message. A message that finds
+// the queue otherwise empty goes out at once rather than waiting for company. Idle connections are
+// closed and reopened on the next message. Every message gets its own future,
+// completed with its Message-ID or with the error for that message alone.
+// A message whose attempt was cancelled while it was queued is skipped.
+@Component
+public class BatchingMailSender {
+    private static final Logger logger = LoggerFactory.getLogger(BatchingMailSender.class);
+
+    @Autowired
+    private JavaMailSenderImpl mailSender;
+    @Autowired
+    private NotificationMetrics metrics;
+
+    @Value("${notification.mail.connections:2}")
+    private int connections = 2;
+    @Value("${notification.mail.batch-size:50}")
+    private int batchSize = 50;
+    @Value("${notification.mail.idle-timeout-ms:30000}")
+    private long idleTimeoutMs = 30000;
+    @Value("${notification.mail.queue-capacity:10000}")
+    private int queueCapacity = 10000;
+
+    private BlockingQueue<Pending> queue;
+    private ExecutorService executor;
+    private volatile boolean running;
+
+    @PostConstruct
+    public void start() {
+        queue = new LinkedBlockingQueue<>(queueCapacity);
+        executor = Executors.newFixedThreadPool(connections, new CustomizableThreadFactory("smtp-"));
+        running = true;
+        metrics.gauge("notification.mail.queue", "Emails waiting for an SMTP connection", queue::size);
+        for (int i = 0; i < connections; i++) {
+            executor.execute(this::run);
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        executor.shutdownNow();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+        for (Pending pending; (pending = queue.poll()) != null; ) {
+            pending.result.completeExceptionally(new IllegalStateException("Mail sender stopped"));
+        }
+    }
+
+    public CompletableFuture<String> submit(String to, String subject, String body, SendAttempt attempt) {
+        CompletableFuture<String> result = new CompletableFuture<>();
+        try {
+            MimeMessage message = mailSender.createMimeMessage();
+            MimeMessageHelper helper = new MimeMessageHelper(message);
+            helper.setTo(to);
+            helper.setSubject(subject);
+            helper.setText(body);
+            message.setSentDate(new Date());
+            message.saveChanges(); // assigns the Message-ID
+            if (!running || !queue.offer(new Pending(message, result, attempt))) {
+                throw new RejectedExecutionException("Mail queue is full or stopped");
+            }
+        } catch (MessagingException | RuntimeException e) {
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    private void run() {
+        Transport transport = null;
+        List<Pending> batch = new ArrayList<>(batchSize);
+        try {
+            while (running) {
+                Pending first = queue.poll(idleTimeoutMs, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    transport = close(transport);
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                transport = send(transport, batch);
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            close(transport);
+            for (Pending pending : batch) {
+                pending.result.completeExceptionally(new IllegalStateException("Mail sender stopped"));
+            }
+        }
+    }
+
+    // Sends the batch on one connection. The connection is checked (an SMTP
+    // NOOP) once per batch and again after a failure, and reopened if the
+    // server has dropped it.
+    private Transport send(Transport transport, List<Pending> batch) {
+        boolean verified = false;
+        for (Pending pending : batch) {
+            try {
+                if (transport == null || (!verified && !transport.isConnected())) {
+                    close(transport);
+                    transport = connect();
+                }
+                verified = true;
+                if (!pending.attempt.start()) {
+                    pending.result.completeExceptionally(new CancellationException("Email cancelled before it was sent"));
+                    continue;
+                }
+                transport.sendMessage(pending.message, pending.message.getAllRecipients());
+                pending.result.complete(pending.message.getMessageID());
+            } catch (MessagingException | RuntimeException e) {
+                verified = false;
+                pending.result.completeExceptionally(e);
+            }
+        }
+        logger.debug("Sent batch of {} emails", batch.size());
+        return transport;
+    }
+
+    private Transport connect() throws MessagingException {
+        String protocol = mailSender.getProtocol() == null ? "smtp" : mailSender.getProtocol();
+        Transport transport = mailSender.getSession().getTransport(protocol);
+        transport.connect(mailSender.getHost(), mailSender.getPort(), mailSender.getUsername(),
+                mailSender.getPassword());
+        return transport;
+    }
+
+    private static Transport close(Transport transport) {
+        if (transport != null) {
+            try {
+                transport.close();
+            } catch (MessagingException e) {
+                logger.debug("Error closing SMTP connection: {}", e.getMessage());
+            }
+        }
+        return null;
+    }
+
+    private record Pending(MimeMessage message, CompletableFuture<String> result, SendAttempt attempt) {
+    }
+}
@@ -1,24 +1,22 @@
 package com.example.notification.service;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.mail.SimpleMailMessage;
-import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.stereotype.Service;
 
+import java.util.concurrent.CompletableFuture;
+
 @Service
-public class EmailService {
+public class EmailService implements NotificationSender {
     @Autowired
-    private JavaMailSender mailSender;
+    private BatchingMailSender mailSender;
+
+    @Override
+    public String channel() {
+        return "EMAIL";
+    }
 
-    public void sendEmail(String to, String subject, String body) {
-        try {
-            SimpleMailMessage message = new SimpleMailMessage();
-            message.setTo(to);
-            message.setSubject(subject);
-            message.setText(body);
-            mailSender.send(message);
-        } catch (Exception e) {
-            System.err.println("Error sending email: " + e.getMessage());
-        }
+    @Override
+    public CompletableFuture<String> send(String to, String subject, String body, SendAttempt attempt) {
+        return mailSender.submit(to, subject, body, attempt);
     }
 }
@@ -0,0 +1,359 @@
+package com.example.notification.service;
+
+import com.example.notification.ledger.LedgerKey;
+import com.example.notification.ledger.NotificationLedger;
+import com.example.notification.metrics.NotificationMetrics;
+import com.example.notification.model.NotificationOutbox;
+import com.example.notification.model.NotificationPriority;
+import com.example.notification.repository.NotificationOutboxRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Transactional outbox for notifications. enqueue writes a row in the caller's
+// transaction; after commit the row is handed to its channel's lane, so the
+// API call only pays for the database write. Failed deliveries are retried
+// with exponential backoff, and a poller picks up retries, deferred rows, rows
+// a lane had no room for and rows left behind by a crash.
+//
+// Each channel (EMAIL, SMS) has its own lane: a worker pool whose queue is
+// ordered by NotificationPriority, a token bucket that keeps the channel under
+// its provider's rate limit, and optional quiet hours in the recipient's time
+// zone. A saturated SMS provider therefore only holds up SMS, and within a
+// channel cancellations go before reminders. Workers only hand a message to
+// its sender; the row is marked sent or failed when the sender's future
+// completes, so a slow provider does not tie up a worker per message.
+//
+// A send that outlasts send-timeout-ms is cancelled if the sender has not
+// handed it to the provider yet (see SendAttempt) and retried as usual.
+// Otherwise the provider may still deliver it, so the row is marked UNKNOWN
+// instead of being retried: a duplicate message is worse than a missing one.
+@Service
+public class NotificationDispatcher {
+    private static final Logger logger = LoggerFactory.getLogger(NotificationDispatcher.class);
+
+    @Autowired
+    private NotificationOutboxRepository outboxRepository;
+    @Autowired
+    private List<NotificationSender> senders;
+    @Autowired
+    private NotificationMetrics metrics;
+    @Autowired
+    private NotificationLedger notificationLedger;
+    // Per-channel settings: notification.dispatch.<channel>.rate-per-second,
+    // .burst and .quiet-hours, with <channel> in lower case (email, sms). The
+    // rate is the channel's only rate limit; senders only cap concurrency.
+    @Autowired
+    private Environment environment;
+
+    // Workers per channel.
+    @Value("${notification.dispatch.workers:4}")
+    private int workers = 4;
+    // Rows a lane may hold, queued for a worker or waiting for the provider.
+    @Value("${notification.dispatch.queue-capacity:1000}")
+    private int queueCapacity = 1000;
+    // Upper bound on how long a sender may take; must stay below the lease.
+    @Value("${notification.dispatch.send-timeout-ms:30000}")
+    private long sendTimeoutMs = 30000;
+    @Value("${notification.dispatch.max-attempts:5}")
+    private int maxAttempts = 5;
+    @Value("${notification.dispatch.initial-backoff-ms:2000}")
+    private long initialBackoffMs = 2000;
+    @Value("${notification.dispatch.max-backoff-ms:600000}")
+    private long maxBackoffMs = 600000;
+    // How long a claimed row belongs to its worker before the poller may retry it.
+    @Value("${notification.dispatch.lease-ms:60000}")
+    private long leaseMs = 60000;
+    @Value("${notification.dispatch.poll-batch-size:200}")
+    private int pollBatchSize = 200;
+    // Zone for quiet hours when the recipient has none; empty for the server's.
+    @Value("${notification.dispatch.default-time-zone:}")
+    private String defaultTimeZone = "";
+
+    private Map<String, Lane> lanes;
+    private ZoneId defaultZone;
+    // Rows queued or running in this instance, so the poller does not submit them twice.
+    private final Set<Long> inFlight = ConcurrentHashMap.newKeySet();
+    private final AtomicLong submitted = new AtomicLong();
+
+    @PostConstruct
+    public void start() {
+        defaultZone = defaultTimeZone.isBlank() ? ZoneId.systemDefault() : ZoneId.of(defaultTimeZone);
+        lanes = new HashMap<>();
+        for (NotificationSender sender : senders) {
+            String channel = sender.channel();
+            String prefix = "notification.dispatch." + channel.toLowerCase() + ".";
+            // SMS is quiet overnight unless configured otherwise; email has no quiet hours.
+            String quietHours = environment.getProperty(prefix + "quiet-hours",
+                    channel.equals("SMS") ? "21:00-08:00" : "");
+            Lane lane = new Lane(sender,
+                    new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS, new PriorityBlockingQueue<>(),
+                            new CustomizableThreadFactory("notification-" + channel.toLowerCase() + "-")),
+                    new TokenBucket(environment.getProperty(prefix + "rate-per-second", Double.class, 0.0),
+                            environment.getProperty(prefix + "burst", Integer.class, 1)),
+                    QuietHours.parse(quietHours), new AtomicInteger());
+            lanes.put(channel, lane);
+            metrics.gauge("notification.dispatch.queue", "Outbox rows waiting for a worker", channel,
+                    () -> lane.executor.getQueue().size());
+            metrics.gauge("notification.dispatch.active", "Workers delivering a notification", channel,
+                    lane.executor::getActiveCount);
+            metrics.gauge("notification.dispatch.in_flight", "Notifications queued or waiting for the provider",
+                    channel, lane.pending::get);
+        }
+        metrics.gauge("notification.outbox.pending", "Outbox rows not yet delivered or abandoned",
+                () -> outboxRepository.countByStatusIn(List.of("PENDING", "SENDING")));
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        for (Lane lane : lanes.values()) {
+            lane.executor.shutdownNow();
+        }
+        // Unfinished rows stay PENDING or SENDING and are picked up after restart.
+        for (Lane lane : lanes.values()) {
+            lane.executor.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+
+    // Queues a message for an appointment event (see LedgerKey). A message for
+    // an event the recipient was already notified of on this channel is
+    // dropped. Returns whether the message was queued.
+    public boolean enqueue(String eventType, NotificationRequest request) {
+        if (!notificationLedger.claim(new LedgerKey(request.appointmentId(), request.channel(), eventType,
+                request.recipient()))) {
+            logger.debug("Skipping duplicate {} {} notification for appointment {}", eventType, request.channel(),
+                    request.appointmentId());
+            return false;
+        }
+        schedule(request);
+        return true;
+    }
+
+    // Queues a message without a ledger check, for callers that claim their own keys.
+    public void schedule(NotificationRequest request) {
+        Instant now = Instant.now();
+        NotificationOutbox message = new NotificationOutbox();
+        message.setAppointmentId(request.appointmentId());
+        message.setChannel(request.channel());
+        message.setRecipient(request.recipient());
+        message.setSubject(request.subject());
+        message.setBody(request.body());
+        message.setStatus("PENDING");
+        message.setPriority(request.priority());
+        message.setTimeZone(request.timeZone());
+        message.setNextAttemptAt(notBefore(message, now));
+        message.setCreatedAt(now);
+        NotificationOutbox saved = outboxRepository.save(message);
+        if (!message.getNextAttemptAt().isAfter(now)) {
+            afterCommit(() -> submit(saved));
+        } // otherwise the poller submits it once the quiet hours are over
+    }
+
+    @Scheduled(fixedDelayString = "${notification.dispatch.poll-interval-ms:5000}")
+    public void dispatchDue() {
+        List<NotificationOutbox> due = outboxRepository.findDue(Instant.now(), PageRequest.of(0, pollBatchSize));
+        if (!due.isEmpty()) {
+            logger.debug("Dispatching {} due notifications", due.size());
+        }
+        due.forEach(this::submit);
+    }
+
+    // One delivery attempt. Runs on the channel's lane after a rate-limit token
+    // has been taken and returns once the message is handed to the sender; the
+    // returned future completes when the row has been marked sent or failed.
+    // Public for tests.
+    public CompletableFuture<Void> deliver(Long id) {
+        Instant now = Instant.now();
+        if (outboxRepository.claim(id, now, now.plusMillis(leaseMs)) == 0) {
+            return CompletableFuture.completedFuture(null); // already delivered, or taken by another worker
+        }
+        NotificationOutbox message = outboxRepository.findById(id).orElse(null);
+        if (message == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        Instant notBefore = notBefore(message, now);
+        if (notBefore.isAfter(now)) {
+            // A retry that fell into quiet hours waits for them to end, without using an attempt.
+            outboxRepository.defer(id, notBefore);
+            return CompletableFuture.completedFuture(null);
+        }
+        long start = System.nanoTime();
+        SendAttempt attempt = new SendAttempt();
+        CompletableFuture<String> sending;
+        try {
+            Lane lane = lanes.get(message.getChannel());
+            if (lane == null) {
+                throw new IllegalStateException("No sender for channel " + message.getChannel());
+            }
+            sending = lane.sender.send(message.getRecipient(), message.getSubject(), message.getBody(), attempt)
+                    .orTimeout(sendTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (RuntimeException e) {
+            sending = CompletableFuture.failedFuture(e);
+        }
+        return sending.handle((providerId, error) -> {
+            if (error == null) {
+                metrics.sent(message.getChannel(), System.nanoTime() - start);
+                metrics.delivered(message.getChannel(), message.getCreatedAt());
+                outboxRepository.markSent(id, Instant.now());
+            } else {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null
+                        ? error.getCause() : error;
+                if (cause instanceof TimeoutException && !attempt.cancel()) {
+                    unconfirmed(message, cause);
+                } else {
+                    failed(message, cause);
+                }
+            }
+            return null;
+        });
+    }
+
+    // The send timed out after the provider got the message, which may still go out.
+    private void unconfirmed(NotificationOutbox message, Throwable e) {
+        metrics.failed(message.getChannel(), e);
+        logger.warn("{} notification {} timed out after it was handed to the provider; not retrying",
+                message.getChannel(), message.getId());
+        outboxRepository.markFailed(message.getId(), "UNKNOWN", Instant.now(),
+                "Timed out after " + sendTimeoutMs + " ms; the provider may have sent it");
+    }
+
+    private void failed(NotificationOutbox message, Throwable e) {
+        Long id = message.getId();
+        metrics.failed(message.getChannel(), e);
+        String error = e.getMessage() == null ? e.getClass().getName() : e.getMessage();
+        if (error.length() > 500) {
+            error = error.substring(0, 500);
+        }
+        if (message.getAttempts() >= maxAttempts) {
+            logger.error("Giving up on {} notification {} after {} attempts: {}", message.getChannel(), id,
+                    message.getAttempts(), error);
+            metrics.abandoned(message.getChannel());
+            outboxRepository.markFailed(id, "FAILED", Instant.now(), error);
+        } else {
+            Instant retryAt = Instant.now().plusMillis(backoffMillis(message.getAttempts()));
+            logger.warn("{} notification {} failed (attempt {}), retrying at {}: {}", message.getChannel(), id,
+                    message.getAttempts(), retryAt, error);
+            outboxRepository.markFailed(id, "PENDING", retryAt, error);
+        }
+    }
+
+    private void submit(NotificationOutbox message) {
+        Long id = message.getId();
+        Lane lane = lanes.get(message.getChannel());
+        if (lane == null) {
+            logger.error("No sender for channel {} of notification {}", message.getChannel(), id);
+            outboxRepository.markFailed(id, "FAILED", Instant.now(), "No sender for channel " + message.getChannel());
+            return;
+        }
+        if (lane.pending.get() >= queueCapacity || !inFlight.add(id)) {
+            return; // the lane is full; the row stays due and the poller submits it again
+        }
+        lane.pending.incrementAndGet();
+        Runnable done = () -> {
+            inFlight.remove(id);
+            lane.pending.decrementAndGet();
+        };
+        NotificationPriority priority = message.getPriority() == null
+                ? NotificationPriority.CHANGE : message.getPriority();
+        lane.executor.execute(new Delivery(priority, submitted.incrementAndGet(), () -> {
+            try {
+                lane.rateLimit.acquire();
+                deliver(id).whenComplete((ignored, e) -> done.run());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                done.run();
+            } catch (RuntimeException e) {
+                done.run();
+                throw e;
+            }
+        }));
+    }
+
+    // When a message may go out: now, unless its channel is in quiet hours for
+    // the recipient. Urgent messages ignore quiet hours.
+    private Instant notBefore(NotificationOutbox message, Instant now) {
+        Lane lane = lanes.get(message.getChannel());
+        if (lane == null || message.getPriority() == NotificationPriority.URGENT) {
+            return now;
+        }
+        return lane.quietHours.nextAllowed(now, zoneOf(message.getTimeZone()));
+    }
+
+    private ZoneId zoneOf(String timeZone) {
+        if (timeZone == null || timeZone.isBlank()) {
+            return defaultZone;
+        }
+        try {
+            return ZoneId.of(timeZone);
+        } catch (DateTimeException e) {
+            return defaultZone;
+        }
+    }
+
+    // Exponential backoff with up to 20% jitter so that retries after an outage spread out.
+    private long backoffMillis(int attempts) {
+        long backoff = initialBackoffMs << Math.min(attempts - 1, 20);
+        backoff = Math.min(backoff, maxBackoffMs);
+        return backoff + ThreadLocalRandom.current().nextLong(backoff / 5 + 1);
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private record Lane(NotificationSender sender, ThreadPoolExecutor executor, TokenBucket rateLimit,
+            QuietHours quietHours, AtomicInteger pending) {
+    }
+
+    // Queue entry of a lane: by priority, then in submission order.
+    private record Delivery(NotificationPriority priority, long sequence, Runnable task)
+            implements Runnable, Comparable<Delivery> {
+        @Override
+        public void run() {
+            task.run();
+        }
+
+        @Override
+        public int compareTo(Delivery other) {
+            int byPriority = priority.compareTo(other.priority);
+            return byPriority != 0 ? byPriority : Long.compare(sequence, other.sequence);
+        }
+    }
+}
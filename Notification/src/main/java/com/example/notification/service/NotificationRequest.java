@@ -0,0 +1,9 @@
+package com.example.notification.service;
+
+import com.example.notification.model.NotificationPriority;
+
+// One message to put in the outbox. timeZone is the recipient's IANA zone for
+// quiet hours, or null for the configured default.
+public record NotificationRequest(Long appointmentId, String channel, String recipient, String subject, String body,
+        NotificationPriority priority, String timeZone) {
+}
@@ -0,0 +1,17 @@
+package com.example.notification.service;
+
+import java.util.concurrent.CompletableFuture;
+
+// Delivers one message on a channel for NotificationDispatcher, which is the
+// only way notifications are sent. send reports failure through the returned
+// future so that the dispatcher can retry, and must not wait for the
+// provider: the dispatcher's workers only hand messages over and finish the
+// outbox row when the future completes. A sender calls attempt.start() right
+// before it gives the message to the provider and skips the message if that
+// returns false (see SendAttempt).
+public interface NotificationSender {
+    String channel(); // EMAIL or SMS
+
+    // Completes with the provider's message id, or exceptionally if the message was not sent.
+    CompletableFuture<String> send(String recipient, String subject, String body, SendAttempt attempt);
+}
@@ -0,0 +1,52 @@
+package com.example.notification.service;
+
+import java.time.Instant;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+
+// A daily window, in the recipient's local time, in which a channel does not
+// deliver, e.g. "21:00-08:00" for no SMS overnight. The window may wrap past
+// midnight; an empty spec means no quiet hours.
+public final class QuietHours {
+    public static final QuietHours NONE = new QuietHours(null, null);
+
+    private final LocalTime start;
+    private final LocalTime end;
+
+    private QuietHours(LocalTime start, LocalTime end) {
+        this.start = start;
+        this.end = end;
+    }
+
+    public static QuietHours parse(String spec) {
+        if (spec == null || spec.isBlank()) {
+            return NONE;
+        }
+        String[] bounds = spec.trim().split("-");
+        if (bounds.length != 2) {
+            throw new IllegalArgumentException("Quiet hours must look like 21:00-08:00, got " + spec);
+        }
+        return new QuietHours(LocalTime.parse(bounds[0].trim()), LocalTime.parse(bounds[1].trim()));
+    }
+
+    // The first instant at or after at that is outside the window.
+    public Instant nextAllowed(Instant at, ZoneId zone) {
+        if (start == null || start.equals(end)) {
+            return at;
+        }
+        ZonedDateTime local = at.atZone(zone);
+        LocalTime time = local.toLocalTime();
+        boolean quiet = start.isBefore(end)
+                ? !time.isBefore(start) && time.isBefore(end)
+                : !time.isBefore(start) || time.isBefore(end);
+        if (!quiet) {
+            return at;
+        }
+        ZonedDateTime allowed = local.with(end);
+        if (!allowed.isAfter(local)) {
+            allowed = allowed.plusDays(1);
+        }
+        return allowed.toInstant();
+    }
+}
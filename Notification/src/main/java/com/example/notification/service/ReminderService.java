@@ -1,47 +1,186 @@
 package com.example.notification.service;
 
+import com.example.notification.dto.ReminderReport;
+import com.example.notification.ledger.LedgerKey;
+import com.example.notification.ledger.NotificationLedger;
 import com.example.notification.model.Appointment;
-import com.example.notification.repository.AppointmentRepository;
+import com.example.notification.model.NotificationPriority;
+import com.example.notification.model.User;
+import com.example.notification.template.MessageParams;
+import com.example.notification.template.MessageType;
+import com.example.notification.template.NotificationTemplates;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.util.List;
+import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Date;
-import java.util.Calendar;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Service
 public class ReminderService {
+    private static final Logger logger = LoggerFactory.getLogger(ReminderService.class);
+
+    @Autowired
+    private AppointmentCalendar appointmentCalendar;
+    @Autowired
+    private NotificationTemplates notificationTemplates;
     @Autowired
-    private AppointmentRepository appointmentRepository;
+    private NotificationLedger notificationLedger;
     @Autowired
-    private EmailService emailService;
+    private NotificationDispatcher notificationDispatcher;
     @Autowired
-    private TwilioSmsService smsService;
+    private TransactionTemplate transactionTemplate;
+
+    // Appointments read per query while collecting tomorrow's recipients.
+    @Value("${notification.reminders.page-size:1000}")
+    private int pageSize = 1000;
+
+    // Recipients are split into this many partitions, each queued by its own virtual thread.
+    @Value("${notification.reminders.partitions:16}")
+    private int partitions = 16;
 
     // @Scheduled(cron = "0 0 8 * * ?") // Runs daily at 8 AM
     @Scheduled(cron = "0 36 11 * * ?") // Runs daily at 11:30 AM
 
     public void sendDailyReminders() {
-        List<Appointment> upcomingAppointments = getTomorrowAppointments();
+        sendReminders(LocalDate.now().plusDays(1));
+    }
+
+    // Reads the day's appointments page by page and groups them by recipient, so
+    // someone with several appointments gets one email and one SMS listing all
+    // of them. The reminders are then rendered in the recipient's locale and
+    // queued by partition in parallel. The dispatcher delivers them behind
+    // cancellations and changes, within the channel's rate limit and outside
+    // the recipient's quiet hours. Each (appointment, recipient, channel) is
+    // claimed in the notification ledger in the same transaction that writes the
+    // reminder's outbox row, so running the day again after a restart only
+    // queues what the interrupted run had not, and a reminder whose claims
+    // committed is always in the outbox.
+    public ReminderReport sendReminders(LocalDate day) {
+        long start = System.nanoTime();
+        Map<String, Reminder> byEmail = new LinkedHashMap<>();
+        Map<String, Reminder> byPhone = new LinkedHashMap<>();
+        int appointments = 0;
+        Long afterId = 0L;
+        while (true) {
+            List<Appointment> page = appointmentCalendar.activePage(day, afterId, pageSize);
+            for (Appointment app : page) {
+                for (User user : new User[] { app.getDoctor(), app.getPatient() }) {
+                    if (user.getEmail() != null) {
+                        byEmail.computeIfAbsent(user.getEmail(), k -> new Reminder("EMAIL", k, user, new ArrayList<>()))
+                                .appointments().add(app);
+                    }
+                    if (user.getPhoneNumber() != null) {
+                        byPhone.computeIfAbsent(user.getPhoneNumber(), k -> new Reminder("SMS", k, user, new ArrayList<>()))
+                                .appointments().add(app);
+                    }
+                }
+            }
+            appointments += page.size();
+            if (page.size() < pageSize) {
+                break;
+            }
+            afterId = page.get(page.size() - 1).getId();
+        }
 
-        for (Appointment app : upcomingAppointments) {
-            String message = "Reminder: You have an appointment scheduled on " + app.getDate();
+        List<List<Reminder>> parts = new ArrayList<>(partitions);
+        for (int i = 0; i < partitions; i++) {
+            parts.add(new ArrayList<>());
+        }
+        int next = 0;
+        for (Reminder reminder : byEmail.values()) {
+            parts.get(next++ % partitions).add(reminder);
+        }
+        for (Reminder reminder : byPhone.values()) {
+            parts.get(next++ % partitions).add(reminder);
+        }
 
-            // Send Email
-            emailService.sendEmail(app.getDoctor().getEmail(), "Appointment Reminder", message);
-            emailService.sendEmail(app.getPatient().getEmail(), "Appointment Reminder", message);
+        AtomicInteger emailsQueued = new AtomicInteger();
+        AtomicInteger smsQueued = new AtomicInteger();
+        AtomicInteger failures = new AtomicInteger();
+        AtomicInteger duplicates = new AtomicInteger();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (List<Reminder> part : parts) {
+                executor.submit(() -> {
+                    for (Reminder reminder : part) {
+                        String channel = reminder.channel();
+                        try {
+                            if (Boolean.TRUE.equals(transactionTemplate.execute(status -> queue(reminder)))) {
+                                (channel.equals("EMAIL") ? emailsQueued : smsQueued).incrementAndGet();
+                            } else {
+                                duplicates.incrementAndGet();
+                            }
+                        } catch (Exception e) {
+                            // The transaction rolled back, claims included, so a later run sends it.
+                            failures.incrementAndGet();
+                            logger.warn("Reminder {} to {} could not be queued: {}", channel, reminder.recipient(),
+                                    e.getMessage());
+                        }
+                    }
+                });
+            }
+        } // close() waits for every partition
+
+        ReminderReport report = new ReminderReport();
+        report.setDay(day);
+        report.setAppointments(appointments);
+        report.setRecipients(byEmail.size() + byPhone.size());
+        report.setEmailsQueued(emailsQueued.get());
+        report.setSmsQueued(smsQueued.get());
+        report.setFailures(failures.get());
+        report.setDuplicates(duplicates.get());
+        report.setDurationMillis((System.nanoTime() - start) / 1_000_000);
+        report.setMessagesPerSecond(report.getDurationMillis() == 0 ? 0
+                : (emailsQueued.get() + smsQueued.get()) * 1000.0 / report.getDurationMillis());
+        logger.info("Reminders for {}: {}", day, report);
+        return report;
+    }
 
-            // Send SMS
-            smsService.sendSms(app.getDoctor().getPhoneNumber(), message);
-            smsService.sendSms(app.getPatient().getPhoneNumber(), message);
+    // Claims the reminder's appointments and writes its outbox row; false if
+    // every appointment was already reminded.
+    private boolean queue(Reminder reminder) {
+        List<LedgerKey> claimed = new ArrayList<>();
+        List<Date> dates = new ArrayList<>();
+        for (Appointment app : reminder.appointments()) {
+            LedgerKey key = new LedgerKey(app.getId(), reminder.channel(),
+                    LedgerKey.event(MessageType.REMINDER, app.getDate()), reminder.recipient());
+            if (notificationLedger.claim(key)) {
+                claimed.add(key);
+                dates.add(app.getDate());
+            }
         }
+        if (claimed.isEmpty()) {
+            return false;
+        }
+        notificationDispatcher.schedule(new NotificationRequest(claimed.get(0).appointmentId(), reminder.channel(),
+                reminder.recipient(), subject(reminder), body(reminder, dates), NotificationPriority.REMINDER,
+                reminder.user().getTimeZone()));
+        return true;
+    }
+
+    private String subject(Reminder reminder) {
+        return notificationTemplates.subject(MessageType.REMINDER, reminder.user().getLocale());
+    }
+
+    private String body(Reminder reminder, List<Date> dates) {
+        MessageParams params = new MessageParams(reminder.user().getName(), dates);
+        return reminder.channel().equals("EMAIL")
+                ? notificationTemplates.email(MessageType.REMINDER, reminder.user().getLocale(), params)
+                : notificationTemplates.sms(MessageType.REMINDER, reminder.user().getLocale(), params);
     }
 
-    private List<Appointment> getTomorrowAppointments() {
-        Calendar cal = Calendar.getInstance();
-        cal.add(Calendar.DATE, 1); // Get tomorrow's date
-        Date tomorrow = cal.getTime();
-        return appointmentRepository.findByDate(tomorrow);
+    // One recipient's reminder; the first user seen with the address decides the locale.
+    private record Reminder(String channel, String recipient, User user, List<Appointment> appointments) {
     }
 }
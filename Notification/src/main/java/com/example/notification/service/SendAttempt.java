@@ -0,0 +1,31 @@
+package com.example.notification.service;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Hand-off point between NotificationDispatcher and a sender for one message.
+// A sender calls start() right before it gives the message to the provider and
+// drops the message if that returns false; the dispatcher's send timeout calls
+// cancel(), which only succeeds while the message has not been handed over.
+// Whichever comes first wins, so a timed-out message is either never sent or
+// known to have reached the provider.
+public final class SendAttempt {
+    private static final int WAITING = 0;
+    private static final int STARTED = 1;
+    private static final int CANCELLED = 2;
+
+    private final AtomicInteger state = new AtomicInteger(WAITING);
+
+    // True if the message may be sent now; false if it was cancelled.
+    public boolean start() {
+        return state.compareAndSet(WAITING, STARTED);
+    }
+
+    // True if the message had not been handed over and now never will be.
+    public boolean cancel() {
+        return state.compareAndSet(WAITING, CANCELLED);
+    }
+
+    public boolean isCancelled() {
+        return state.get() == CANCELLED;
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.notification.service;
+
+import java.util.concurrent.CompletableFuture;
+
+// Sends SMS to a provider. Implementations are shared by all callers and cap
+// their own concurrent provider calls; the send rate is limited by the SMS
+// lane of NotificationDispatcher (notification.dispatch.sms.rate-per-second).
+public interface SmsTransport {
+    // Completes with the provider's message id, or exceptionally if the provider rejected the message
+    // or the attempt was cancelled before the provider was called.
+    CompletableFuture<String> sendAsync(String to, String body, SendAttempt attempt);
+}
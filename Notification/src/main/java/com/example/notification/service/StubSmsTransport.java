@@ -0,0 +1,39 @@
+package com.example.notification.service;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Local transport for development and tests (notification.sms.transport=stub):
+// records every message instead of calling a provider.
+@Component
+@ConditionalOnProperty(name = "notification.sms.transport", havingValue = "stub")
+public class StubSmsTransport implements SmsTransport {
+    private final List<SentSms> sent = new CopyOnWriteArrayList<>();
+    private final AtomicLong ids = new AtomicLong();
+
+    @Override
+    public CompletableFuture<String> sendAsync(String to, String body, SendAttempt attempt) {
+        if (!attempt.start()) {
+            return CompletableFuture.failedFuture(new CancellationException("SMS cancelled before it was sent"));
+        }
+        sent.add(new SentSms(to, body));
+        return CompletableFuture.completedFuture("stub-" + ids.incrementAndGet());
+    }
+
+    public List<SentSms> getSent() {
+        return List.copyOf(sent);
+    }
+
+    public void clear() {
+        sent.clear();
+    }
+
+    public record SentSms(String to, String body) {
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.notification.service;
+
+import java.util.concurrent.TimeUnit;
+
+// Token bucket rate limit: up to burst sends at once, refilled at
+// ratePerSecond. Callers reserve a token and wait until it is due, so waiting
+// senders are served in arrival order. A rate of 0 or less disables the limit.
+public class TokenBucket {
+    private final double tokensPerNano;
+    private final double capacity;
+    private double tokens;
+    private long refilledAt = System.nanoTime();
+
+    public TokenBucket(double ratePerSecond, int burst) {
+        this.tokensPerNano = ratePerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.capacity = Math.max(1, burst);
+        this.tokens = capacity;
+    }
+
+    public void acquire() throws InterruptedException {
+        long wait = reserve();
+        if (wait > 0) {
+            TimeUnit.NANOSECONDS.sleep(wait);
+        }
+    }
+
+    // Takes a token and returns how long to wait before using it.
+    synchronized long reserve() {
+        if (tokensPerNano <= 0) {
+            return 0L;
+        }
+        long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - refilledAt) * tokensPerNano);
+        refilledAt = now;
+        tokens -= 1;
+        return tokens >= 0 ? 0L : (long) Math.ceil(-tokens / tokensPerNano);
+    }
+}
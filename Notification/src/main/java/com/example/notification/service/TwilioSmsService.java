@@ -1,34 +1,24 @@
 package com.example.notification.service;
 
-import com.twilio.Twilio;
-import com.twilio.rest.api.v2010.account.Message;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-@Service
-public class TwilioSmsService {
-    @Value("${twilio.account_sid}")
-    private String accountSid;
-
-    @Value("${twilio.auth_token}")
-    private String authToken;
-
-    @Value("${twilio.phone_number}")
-    private String twilioNumber;
+import java.util.concurrent.CompletableFuture;
 
-    public void sendSms(String to, String messageBody) {
-        try {
-            Twilio.init(accountSid, authToken);
+@Service
+public class TwilioSmsService implements NotificationSender {
+    // Twilio by default; StubSmsTransport with notification.sms.transport=stub.
+    @Autowired
+    private SmsTransport smsTransport;
 
-            Message message = Message.creator(
-                    new com.twilio.type.PhoneNumber(to),
-                    new com.twilio.type.PhoneNumber(twilioNumber),
-                    messageBody
-            ).create();
+    @Override
+    public String channel() {
+        return "SMS";
+    }
 
-            System.out.println("SMS sent successfully: " + message.getSid());
-        } catch (Exception e) {
-            System.err.println("Error sending SMS: " + e.getMessage());
-        }
+    // SMS has no subject; only the body is sent.
+    @Override
+    public CompletableFuture<String> send(String to, String subject, String messageBody, SendAttempt attempt) {
+        return smsTransport.sendAsync(to, messageBody, attempt);
     }
 }
@@ -0,0 +1,95 @@
+package com.example.notification.service;
+
+import com.example.notification.metrics.NotificationMetrics;
+import com.twilio.http.NetworkHttpClient;
+import com.twilio.http.TwilioRestClient;
+import com.twilio.rest.api.v2010.account.Message;
+import com.twilio.type.PhoneNumber;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+// Twilio transport with one long-lived client over a pooled HTTP connection
+// manager, so messages reuse TLS connections instead of initialising the SDK
+// per message. Each send runs on a virtual thread and holds one of
+// max-concurrent permits for the duration of the API call. Pacing is left to
+// the dispatcher's SMS rate limit. A message whose attempt was cancelled while
+// it waited for a permit is dropped without calling Twilio.
+@Component
+@ConditionalOnProperty(name = "notification.sms.transport", havingValue = "twilio", matchIfMissing = true)
+public class TwilioSmsTransport implements SmsTransport {
+    @Autowired
+    private NotificationMetrics metrics;
+
+    @Value("${twilio.account_sid}")
+    private String accountSid;
+
+    @Value("${twilio.auth_token}")
+    private String authToken;
+
+    @Value("${twilio.phone_number}")
+    private String twilioNumber;
+
+    // Twilio allows a limited number of concurrent API requests per account.
+    @Value("${notification.sms.max-concurrent:20}")
+    private int maxConcurrent = 20;
+
+    private PoolingHttpClientConnectionManager connectionManager;
+    private TwilioRestClient client;
+    private PhoneNumber from;
+    private Semaphore inFlight;
+    private ExecutorService executor;
+
+    @PostConstruct
+    public void start() {
+        connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(maxConcurrent);
+        connectionManager.setDefaultMaxPerRoute(maxConcurrent);
+        NetworkHttpClient httpClient = new NetworkHttpClient(
+                HttpClientBuilder.create().setConnectionManager(connectionManager));
+        client = new TwilioRestClient.Builder(accountSid, authToken).httpClient(httpClient).build();
+        from = new PhoneNumber(twilioNumber);
+        inFlight = new Semaphore(maxConcurrent, true);
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        metrics.gauge("notification.sms.in_flight", "Twilio API calls in progress",
+                () -> maxConcurrent - inFlight.availablePermits());
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.close();
+        connectionManager.close();
+    }
+
+    @Override
+    public CompletableFuture<String> sendAsync(String to, String body, SendAttempt attempt) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                inFlight.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CompletionException(e);
+            }
+            try {
+                if (!attempt.start()) {
+                    throw new CancellationException("SMS cancelled before it was sent");
+                }
+                return Message.creator(new PhoneNumber(to), from, body).create(client).getSid();
+            } finally {
+                inFlight.release();
+            }
+        }, executor);
+    }
+}
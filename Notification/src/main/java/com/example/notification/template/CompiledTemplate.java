@@ -0,0 +1,74 @@
+package com.example.notification.template;
+
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+// A message pattern parsed once into literal text and placeholders, so
+// rendering is a single pass appending to one StringBuilder.
+final class CompiledTemplate {
+    enum Placeholder { NAME, DATE, DATES, COUNT }
+
+    private final String[] literals; // literals[i] comes before placeholders[i]; one extra at the end
+    private final Placeholder[] placeholders;
+    private final int literalLength;
+
+    private CompiledTemplate(String[] literals, Placeholder[] placeholders) {
+        this.literals = literals;
+        this.placeholders = placeholders;
+        int length = 0;
+        for (String literal : literals) {
+            length += literal.length();
+        }
+        this.literalLength = length;
+    }
+
+    static CompiledTemplate compile(String pattern) {
+        List<String> literals = new ArrayList<>();
+        List<Placeholder> placeholders = new ArrayList<>();
+        int from = 0;
+        for (int open = pattern.indexOf('{'); open >= 0; open = pattern.indexOf('{', from)) {
+            int close = pattern.indexOf('}', open);
+            if (close < 0) {
+                throw new IllegalArgumentException("Unclosed placeholder in template: " + pattern);
+            }
+            literals.add(pattern.substring(from, open));
+            try {
+                placeholders.add(Placeholder.valueOf(pattern.substring(open + 1, close).toUpperCase()));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown placeholder " + pattern.substring(open, close + 1)
+                        + " in template: " + pattern);
+            }
+            from = close + 1;
+        }
+        literals.add(pattern.substring(from));
+        return new CompiledTemplate(literals.toArray(new String[0]), placeholders.toArray(new Placeholder[0]));
+    }
+
+    String render(MessageParams params, DateTimeFormatter dateFormat) {
+        List<Date> dates = params.dates();
+        StringBuilder out = new StringBuilder(literalLength + 24 * Math.max(1, dates.size()));
+        for (int i = 0; i < placeholders.length; i++) {
+            out.append(literals[i]);
+            switch (placeholders[i]) {
+                case NAME -> out.append(params.name() == null ? "" : params.name());
+                case DATE -> {
+                    if (!dates.isEmpty()) {
+                        dateFormat.formatTo(dates.get(0).toInstant(), out);
+                    }
+                }
+                case DATES -> {
+                    for (int d = 0; d < dates.size(); d++) {
+                        if (d > 0) {
+                            out.append("; ");
+                        }
+                        dateFormat.formatTo(dates.get(d).toInstant(), out);
+                    }
+                }
+                case COUNT -> out.append(dates.size());
+            }
+        }
+        return out.append(literals[placeholders.length]).toString();
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.notification.template;
+
+import java.util.Date;
+import java.util.List;
+
+// Values a template can refer to: {name} is the recipient's name, {date} the
+// first appointment, {dates} all of them and {count} how many there are.
+public record MessageParams(String name, List<Date> dates) {
+}
@@ -0,0 +1,20 @@
+package com.example.notification.template;
+
+// The kinds of notification we send. The key is the prefix of the message's
+// entries in the notifications resource bundle.
+public enum MessageType {
+    APPOINTMENT_CREATED("appointment.created"),
+    APPOINTMENT_MODIFIED("appointment.modified"),
+    APPOINTMENT_CANCELLED("appointment.cancelled"),
+    REMINDER("reminder");
+
+    private final String key;
+
+    MessageType(String key) {
+        this.key = key;
+    }
+
+    public String getKey() {
+        return key;
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.notification.template;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.FormatStyle;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.MissingResourceException;
+import java.util.ResourceBundle;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Renders notification subjects and bodies from the notifications resource
+// bundle (notifications.properties, notifications_es.properties, ...). Each
+// locale's templates are compiled the first time that locale is used and kept
+// for the life of the application; subjects have no placeholders and are
+// cached as plain strings.
+//
+// Every message type has <key>.subject, <key>.email and <key>.sms entries,
+// plus optional <key>.email.many and <key>.sms.many variants used when the
+// message covers more than one appointment. SMS bodies are cut to
+// notification.sms.max-segments segments.
+@Component
+public class NotificationTemplates {
+    static final String BUNDLE = "notifications";
+
+    // Used for recipients without a locale, and for entries a translation lacks.
+    @Value("${notification.default-locale:en}")
+    private String defaultLocale = "en";
+
+    @Value("${notification.sms.max-segments:1}")
+    private int smsMaxSegments = 1;
+
+    private final Map<String, LocaleTemplates> byLanguageTag = new ConcurrentHashMap<>();
+
+    // Compiles the default locale up front so that a broken template fails at startup.
+    @PostConstruct
+    public void init() {
+        templates(null);
+    }
+
+    public String subject(MessageType type, String languageTag) {
+        return templates(languageTag).forType.get(type).subject;
+    }
+
+    public String email(MessageType type, String languageTag, MessageParams params) {
+        LocaleTemplates templates = templates(languageTag);
+        Templates forType = templates.forType.get(type);
+        CompiledTemplate template = params.dates().size() > 1 ? forType.emailMany : forType.email;
+        return template.render(params, templates.dateFormat);
+    }
+
+    public String sms(MessageType type, String languageTag, MessageParams params) {
+        LocaleTemplates templates = templates(languageTag);
+        Templates forType = templates.forType.get(type);
+        CompiledTemplate template = params.dates().size() > 1 ? forType.smsMany : forType.sms;
+        return SmsText.fit(template.render(params, templates.dateFormat), smsMaxSegments);
+    }
+
+    private LocaleTemplates templates(String languageTag) {
+        String tag = languageTag == null || languageTag.isBlank() ? defaultLocale : languageTag;
+        return byLanguageTag.computeIfAbsent(tag, t -> new LocaleTemplates(Locale.forLanguageTag(t)));
+    }
+
+    private final class LocaleTemplates {
+        final DateTimeFormatter dateFormat;
+        final Map<MessageType, Templates> forType = new EnumMap<>(MessageType.class);
+
+        LocaleTemplates(Locale locale) {
+            // The bundle for the default locale is the base file, not the JVM locale's.
+            ResourceBundle bundle = ResourceBundle.getBundle(BUNDLE, locale,
+                    ResourceBundle.Control.getNoFallbackControl(ResourceBundle.Control.FORMAT_PROPERTIES));
+            dateFormat = DateTimeFormatter.ofLocalizedDateTime(FormatStyle.MEDIUM, FormatStyle.SHORT)
+                    .withLocale(locale)
+                    .withZone(ZoneId.systemDefault());
+            for (MessageType type : MessageType.values()) {
+                forType.put(type, new Templates(bundle, type.getKey()));
+            }
+        }
+    }
+
+    private static final class Templates {
+        final String subject;
+        final CompiledTemplate email;
+        final CompiledTemplate emailMany;
+        final CompiledTemplate sms;
+        final CompiledTemplate smsMany;
+
+        Templates(ResourceBundle bundle, String key) {
+            subject = bundle.getString(key + ".subject");
+            email = CompiledTemplate.compile(bundle.getString(key + ".email"));
+            emailMany = optional(bundle, key + ".email.many", email);
+            sms = CompiledTemplate.compile(bundle.getString(key + ".sms"));
+            smsMany = optional(bundle, key + ".sms.many", sms);
+        }
+
+        private static CompiledTemplate optional(ResourceBundle bundle, String key, CompiledTemplate fallback) {
+            try {
+                return CompiledTemplate.compile(bundle.getString(key));
+            } catch (MissingResourceException e) {
+                return fallback;
+            }
+        }
+    }
+}
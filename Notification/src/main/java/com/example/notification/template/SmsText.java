@@ -0,0 +1,61 @@
+package com.example.notification.template;
+
+// SMS length rules. A message in the GSM 7-bit alphabet fits 160 characters
+// in one segment (153 per segment when split, and extension characters such
+// as { or € take two); anything else is sent as UCS-2 with 70 characters in
+// one segment and 67 per split segment.
+public final class SmsText {
+    private static final String GSM_BASIC = "@£$¥èéùìòÇ\nØø\rÅåΔ_ΦΓΛΩΠΨΣΘΞÆæßÉ !\"#¤%&'()*+,-./0123456789:;<=>?"
+            + "¡ABCDEFGHIJKLMNOPQRSTUVWXYZÄÖÑÜ§¿abcdefghijklmnopqrstuvwxyzäöñüà";
+    private static final String GSM_EXTENDED = "^{}\\[~]|€\f";
+    private static final String ELLIPSIS = "...";
+
+    private SmsText() {
+    }
+
+    public static boolean isGsm(CharSequence text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (GSM_BASIC.indexOf(c) < 0 && GSM_EXTENDED.indexOf(c) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Longest text that fits in maxSegments segments, cut with "..." if needed.
+    public static String fit(String text, int maxSegments) {
+        boolean gsm = isGsm(text);
+        int segments = Math.max(1, maxSegments);
+        int limit = segments == 1 ? (gsm ? 160 : 70) : segments * (gsm ? 153 : 67);
+        if (units(text, gsm) <= limit) {
+            return text;
+        }
+        int budget = limit - ELLIPSIS.length();
+        int used = 0;
+        int cut = 0;
+        while (cut < text.length()) {
+            int cost = gsm && GSM_EXTENDED.indexOf(text.charAt(cut)) >= 0 ? 2 : 1;
+            if (used + cost > budget) {
+                break;
+            }
+            used += cost;
+            cut++;
+        }
+        if (cut > 0 && Character.isHighSurrogate(text.charAt(cut - 1))) {
+            cut--; // do not split a surrogate pair
+        }
+        return text.substring(0, cut) + ELLIPSIS;
+    }
+
+    private static int units(String text, boolean gsm) {
+        if (!gsm) {
+            return text.length(); // UCS-2 code units
+        }
+        int units = 0;
+        for (int i = 0; i < text.length(); i++) {
+            units += GSM_EXTENDED.indexOf(text.charAt(i)) >= 0 ? 2 : 1;
+        }
+        return units;
+    }
+}
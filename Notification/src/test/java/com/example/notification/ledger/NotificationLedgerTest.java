@@ -0,0 +1,96 @@
+package com.example.notification.ledger;
+
+import com.example.notification.model.NotificationLedgerEntry;
+import com.example.notification.repository.NotificationLedgerRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class NotificationLedgerTest {
+
+    private final NotificationLedgerRepository ledgerRepository = mock(NotificationLedgerRepository.class);
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final NotificationLedger ledger = new NotificationLedger();
+    private final LedgerKey key = new LedgerKey(7L, "SMS", "APPOINTMENT_CREATED", "+15550001");
+
+    @Test
+    void repeatedClaimIsAnsweredFromMemory() {
+        start(List.of());
+
+        assertTrue(ledger.claim(key));
+        assertFalse(ledger.claim(key));
+
+        verify(jdbcTemplate, times(1)).update(anyString(), any(PreparedStatementSetter.class));
+        verify(ledgerRepository, never()).existsByAppointmentIdAndChannelAndEventTypeAndRecipient(anyLong(), anyString(),
+                anyString(), anyString());
+    }
+
+    @Test
+    void keyRecordedBeforeRestartIsConfirmedWithTheDatabase() {
+        NotificationLedgerEntry entry = new NotificationLedgerEntry();
+        entry.setAppointmentId(7L);
+        entry.setChannel("SMS");
+        entry.setEventType("APPOINTMENT_CREATED");
+        entry.setRecipient("+15550001");
+        entry.setRecordedAt(Instant.now());
+        when(ledgerRepository.existsByAppointmentIdAndChannelAndEventTypeAndRecipient(7L, "SMS", "APPOINTMENT_CREATED",
+                "+15550001")).thenReturn(true);
+        start(List.of(entry));
+
+        assertFalse(ledger.claim(key));
+
+        verify(jdbcTemplate, never()).update(anyString(), any(PreparedStatementSetter.class));
+    }
+
+    @Test
+    void keyRecordedByAnotherInstanceIsRejectedByTheUniqueKey() {
+        when(jdbcTemplate.update(anyString(), any(PreparedStatementSetter.class)))
+                .thenThrow(new DuplicateKeyException("uk_ledger_key"));
+        start(List.of());
+
+        assertFalse(ledger.claim(key));
+        assertFalse(ledger.claim(key));
+
+        verify(jdbcTemplate, times(1)).update(anyString(), any(PreparedStatementSetter.class));
+    }
+
+    @Test
+    void bloomFilterHasNoFalseNegatives() {
+        BloomFilter filter = new BloomFilter(10000, 0.01);
+        for (int i = 0; i < 10000; i++) {
+            filter.put("key-" + i);
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < 10000; i++) {
+            assertTrue(filter.mightContain("key-" + i));
+            if (filter.mightContain("other-" + i)) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 300, "false positives: " + falsePositives);
+    }
+
+    private void start(List<NotificationLedgerEntry> recent) {
+        when(ledgerRepository.findRecordedSince(any())).thenReturn(recent);
+        ReflectionTestUtils.setField(ledger, "ledgerRepository", ledgerRepository);
+        ReflectionTestUtils.setField(ledger, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(ledger, "bloomExpectedEntries", 1000);
+        ledger.start();
+    }
+}
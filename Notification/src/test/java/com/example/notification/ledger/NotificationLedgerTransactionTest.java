@@ -0,0 +1,94 @@
+package com.example.notification.ledger;
+
+import com.example.notification.model.NotificationLedgerEntry;
+import com.example.notification.repository.NotificationLedgerRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Claims made from inside a caller's transaction, against a real database.
+@DataJpaTest
+@Import(NotificationLedger.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class NotificationLedgerTransactionTest {
+
+    @Autowired
+    private NotificationLedger ledger;
+    @Autowired
+    private NotificationLedgerRepository ledgerRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate caller;
+
+    @BeforeEach
+    void setUp() {
+        caller = new TransactionTemplate(transactionManager);
+    }
+
+    @AfterEach
+    void tearDown() {
+        ledgerRepository.deleteAll();
+    }
+
+    @Test
+    void duplicateOlderThanTheWarmUpDoesNotFailTheCallersTransaction() {
+        // Recorded days ago, so neither the Bloom filter nor the LRU set knows it; only the unique key does.
+        LedgerKey key = new LedgerKey(21L, "SMS", "APPOINTMENT_CANCELLED", "+15550021");
+        NotificationLedgerEntry entry = new NotificationLedgerEntry();
+        entry.setAppointmentId(key.appointmentId());
+        entry.setChannel(key.channel());
+        entry.setEventType(key.eventType());
+        entry.setRecipient(key.recipient());
+        entry.setRecordedAt(Instant.now().minus(Duration.ofDays(5)));
+        ledgerRepository.save(entry);
+
+        Boolean claimed = caller.execute(status -> ledger.claim(key));
+
+        assertFalse(claimed);
+        assertEquals(1, ledgerRepository.count());
+    }
+
+    @Test
+    void claimRollsBackWithTheCaller() {
+        LedgerKey key = new LedgerKey(22L, "EMAIL", "APPOINTMENT_CREATED", "user22@example.com");
+
+        caller.executeWithoutResult(status -> {
+            assertTrue(ledger.claim(key));
+            status.setRollbackOnly();
+        });
+
+        assertEquals(0, ledgerRepository.count());
+        assertTrue(caller.execute(status -> ledger.claim(key)));
+        assertFalse(caller.execute(status -> ledger.claim(key)));
+    }
+
+    @Test
+    void forgetRollsBackWithTheCaller() {
+        LedgerKey key = new LedgerKey(23L, "EMAIL", "APPOINTMENT_MODIFIED@2025-06-02T10:00", "user23@example.com");
+        assertTrue(ledger.claim(key));
+
+        caller.executeWithoutResult(status -> {
+            ledger.forget(key.appointmentId(), key.eventType());
+            status.setRollbackOnly();
+        });
+        assertEquals(1, ledgerRepository.count());
+
+        caller.executeWithoutResult(status -> ledger.forget(key.appointmentId(), key.eventType()));
+        assertEquals(0, ledgerRepository.count());
+    }
+}
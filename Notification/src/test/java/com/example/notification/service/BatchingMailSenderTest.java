@@ -0,0 +1,90 @@
+package com.example.notification.service;
+
+import com.example.notification.metrics.NotificationMetrics;
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BatchingMailSenderTest {
+
+    @RegisterExtension
+    static GreenMailExtension greenMail = new GreenMailExtension(ServerSetupTest.SMTP);
+
+    private final BatchingMailSender mailSender = new BatchingMailSender();
+
+    @BeforeEach
+    void setUp() {
+        JavaMailSenderImpl javaMailSender = new JavaMailSenderImpl();
+        javaMailSender.setHost("localhost");
+        javaMailSender.setPort(ServerSetupTest.SMTP.getPort());
+        ReflectionTestUtils.setField(mailSender, "mailSender", javaMailSender);
+        ReflectionTestUtils.setField(mailSender, "metrics", new NotificationMetrics(new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(mailSender, "connections", 1);
+        ReflectionTestUtils.setField(mailSender, "batchSize", 10);
+        mailSender.start();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        mailSender.stop();
+    }
+
+    @Test
+    void deliversEveryMessageOfABurst() throws Exception {
+        List<CompletableFuture<String>> results = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            results.add(mailSender.submit("patient" + i + "@example.com", "Reminder", "Appointment " + i, new SendAttempt()));
+        }
+
+        for (CompletableFuture<String> result : results) {
+            assertNotNull(result.get(10, TimeUnit.SECONDS));
+        }
+        MimeMessage[] received = greenMail.getReceivedMessages();
+        assertEquals(25, received.length);
+        assertEquals("Reminder", received[0].getSubject());
+    }
+
+    @Test
+    void reportsFailuresPerMessage() throws Exception {
+        assertNotNull(mailSender.submit("doctor@example.com", "Reminder", "First", new SendAttempt()).get(10, TimeUnit.SECONDS));
+        greenMail.stop();
+
+        CompletableFuture<String> result = mailSender.submit("patient@example.com", "Reminder", "Second", new SendAttempt());
+
+        assertThrows(ExecutionException.class, () -> result.get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void skipsMessagesCancelledWhileQueued() throws Exception {
+        SendAttempt cancelled = new SendAttempt();
+        cancelled.cancel();
+
+        CompletableFuture<String> dropped = mailSender.submit("patient@example.com", "Reminder", "Late",
+                cancelled);
+        assertNotNull(mailSender.submit("doctor@example.com", "Reminder", "On time", new SendAttempt())
+                .get(10, TimeUnit.SECONDS));
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> dropped.get(10, TimeUnit.SECONDS));
+        assertInstanceOf(CancellationException.class, e.getCause());
+        assertEquals(1, greenMail.getReceivedMessages().length);
+    }
+}
@@ -0,0 +1,226 @@
+package com.example.notification.service;
+
+import com.example.notification.ledger.NotificationLedger;
+import com.example.notification.metrics.NotificationMetrics;
+import com.example.notification.model.NotificationOutbox;
+import com.example.notification.model.NotificationPriority;
+import com.example.notification.repository.NotificationOutboxRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class NotificationDispatcherTest {
+
+    private final NotificationOutboxRepository outboxRepository = mock(NotificationOutboxRepository.class);
+    private final NotificationLedger notificationLedger = mock(NotificationLedger.class);
+    private final FakeSender email = new FakeSender("EMAIL");
+    private final FakeSender sms = new FakeSender("SMS");
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final NotificationDispatcher dispatcher = new NotificationDispatcher();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(dispatcher, "outboxRepository", outboxRepository);
+        ReflectionTestUtils.setField(dispatcher, "senders", List.of(email, sms));
+        ReflectionTestUtils.setField(dispatcher, "notificationLedger", notificationLedger);
+        // No quiet hours, so that the result does not depend on when the test runs.
+        ReflectionTestUtils.setField(dispatcher, "environment",
+                new MockEnvironment().withProperty("notification.dispatch.sms.quiet-hours", ""));
+        ReflectionTestUtils.setField(dispatcher, "metrics", new NotificationMetrics(registry));
+        ReflectionTestUtils.setField(dispatcher, "maxAttempts", 3);
+        dispatcher.start();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        dispatcher.stop();
+    }
+
+    @Test
+    void enqueueOutsideTransactionIsDeliveredByWorker() throws Exception {
+        NotificationOutbox row = row(1L, "SMS", 1);
+        when(notificationLedger.claim(any())).thenReturn(true);
+        when(outboxRepository.save(any())).thenReturn(row);
+        when(outboxRepository.claim(eq(1L), any(), any())).thenReturn(1);
+        when(outboxRepository.findById(1L)).thenReturn(Optional.of(row));
+
+        dispatcher.enqueue("APPOINTMENT_CREATED", request("SMS", "+15550001", NotificationPriority.CHANGE));
+
+        assertTrue(sms.delivered.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of("+15550001"), sms.recipients);
+        verify(outboxRepository, timeout(5000)).markSent(eq(1L), any());
+        assertEquals(1.0, registry.get("notification.sent").tag("channel", "SMS").counter().count());
+    }
+
+    @Test
+    void eventAlreadyInLedgerIsNotQueued() {
+        when(notificationLedger.claim(any())).thenReturn(false);
+
+        assertFalse(dispatcher.enqueue("APPOINTMENT_CREATED", request("SMS", "+15550001", NotificationPriority.CHANGE)));
+
+        verify(outboxRepository, never()).save(any());
+    }
+
+    @Test
+    void failedDeliveryIsRescheduledWithBackoff() {
+        NotificationOutbox row = row(2L, "EMAIL", 1);
+        email.failing = true;
+        when(outboxRepository.claim(eq(2L), any(), any())).thenReturn(1);
+        when(outboxRepository.findById(2L)).thenReturn(Optional.of(row));
+        Instant before = Instant.now();
+
+        dispatcher.deliver(2L);
+
+        verify(outboxRepository).markFailed(eq(2L), eq("PENDING"),
+                argThat(at -> at.isAfter(before.plusMillis(1900))), anyString());
+        verify(outboxRepository, never()).markSent(any(), any());
+    }
+
+    @Test
+    void deliveryGivesUpAfterMaxAttempts() {
+        NotificationOutbox row = row(3L, "EMAIL", 3);
+        email.failing = true;
+        when(outboxRepository.claim(eq(3L), any(), any())).thenReturn(1);
+        when(outboxRepository.findById(3L)).thenReturn(Optional.of(row));
+
+        dispatcher.deliver(3L);
+
+        verify(outboxRepository).markFailed(eq(3L), eq("FAILED"), any(), eq("mail server down"));
+        assertEquals(1.0, registry.get("notification.failed").tags("channel", "EMAIL", "cause", "IllegalStateException")
+                .counter().count());
+        assertEquals(1.0, registry.get("notification.abandoned").tag("channel", "EMAIL").counter().count());
+    }
+
+    @Test
+    void rowIsMarkedSentWhenTheProviderConfirms() {
+        NotificationOutbox row = row(5L, "EMAIL", 1);
+        CompletableFuture<String> providerResult = new CompletableFuture<>();
+        email.result = providerResult;
+        when(outboxRepository.claim(eq(5L), any(), any())).thenReturn(1);
+        when(outboxRepository.findById(5L)).thenReturn(Optional.of(row));
+
+        // The worker is free again as soon as the message is handed over.
+        CompletableFuture<Void> delivery = dispatcher.deliver(5L);
+
+        assertFalse(delivery.isDone());
+        verify(outboxRepository, never()).markSent(any(), any());
+        providerResult.complete("<message-5@example.com>");
+        assertTrue(delivery.isDone());
+        verify(outboxRepository).markSent(eq(5L), any());
+    }
+
+    @Test
+    void sendTimingOutBeforeHandOffIsCancelledAndRetried() {
+        NotificationOutbox row = row(6L, "SMS", 1);
+        sms.result = new CompletableFuture<>();
+        sms.handsOver = false; // still waiting for a provider permit
+        ReflectionTestUtils.setField(dispatcher, "sendTimeoutMs", 50L);
+        when(outboxRepository.claim(eq(6L), any(), any())).thenReturn(1);
+        when(outboxRepository.findById(6L)).thenReturn(Optional.of(row));
+
+        dispatcher.deliver(6L).join();
+
+        assertTrue(sms.attempt.isCancelled(), "The sender must not send it after the timeout.");
+        verify(outboxRepository).markFailed(eq(6L), eq("PENDING"), any(), anyString());
+    }
+
+    @Test
+    void sendTimingOutAfterHandOffIsNotRetried() {
+        NotificationOutbox row = row(7L, "SMS", 1);
+        sms.result = new CompletableFuture<>();
+        ReflectionTestUtils.setField(dispatcher, "sendTimeoutMs", 50L);
+        when(outboxRepository.claim(eq(7L), any(), any())).thenReturn(1);
+        when(outboxRepository.findById(7L)).thenReturn(Optional.of(row));
+
+        dispatcher.deliver(7L).join();
+
+        // The provider may still deliver it; a retry could send the SMS twice.
+        verify(outboxRepository).markFailed(eq(7L), eq("UNKNOWN"), any(), anyString());
+        verify(outboxRepository, never()).markFailed(eq(7L), eq("PENDING"), any(), anyString());
+    }
+
+    @Test
+    void rowClaimedElsewhereIsNotSent() {
+        when(outboxRepository.claim(eq(4L), any(), any())).thenReturn(0);
+
+        dispatcher.deliver(4L);
+
+        assertTrue(email.recipients.isEmpty());
+        verify(outboxRepository, never()).findById(any());
+    }
+
+    private static NotificationRequest request(String channel, String recipient, NotificationPriority priority) {
+        return new NotificationRequest(10L, channel, recipient, "Appointment Created", "Your appointment has been CREATED",
+                priority, null);
+    }
+
+    private static NotificationOutbox row(Long id, String channel, int attempts) {
+        NotificationOutbox row = new NotificationOutbox();
+        row.setId(id);
+        row.setChannel(channel);
+        row.setRecipient(channel.equals("SMS") ? "+15550001" : "user1@example.com");
+        row.setSubject("Appointment Created");
+        row.setBody("Your appointment has been CREATED");
+        row.setStatus("SENDING");
+        row.setAttempts(attempts);
+        return row;
+    }
+
+    // Stands in for the mail and Twilio senders.
+    private static class FakeSender implements NotificationSender {
+        private final String channel;
+        private final List<String> recipients = new CopyOnWriteArrayList<>();
+        private final CountDownLatch delivered = new CountDownLatch(1);
+        private volatile boolean failing;
+        private volatile boolean handsOver = true;
+        private volatile CompletableFuture<String> result;
+        private volatile SendAttempt attempt;
+
+        FakeSender(String channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public String channel() {
+            return channel;
+        }
+
+        @Override
+        public CompletableFuture<String> send(String recipient, String subject, String body, SendAttempt attempt) {
+            this.attempt = attempt;
+            if (handsOver) {
+                attempt.start();
+            }
+            if (failing) {
+                return CompletableFuture.failedFuture(new IllegalStateException("mail server down"));
+            }
+            recipients.add(recipient);
+            delivered.countDown();
+            return result != null ? result : CompletableFuture.completedFuture("id-" + recipients.size());
+        }
+    }
+}
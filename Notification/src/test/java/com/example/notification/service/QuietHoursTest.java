@@ -0,0 +1,39 @@
+package com.example.notification.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class QuietHoursTest {
+
+    private final QuietHours overnight = QuietHours.parse("21:00-08:00");
+    private final ZoneId kolkata = ZoneId.of("Asia/Kolkata");
+
+    @Test
+    void outsideTheWindowDeliversImmediately() {
+        Instant noon = at(2026, 3, 10, 12, 0);
+
+        assertEquals(noon, overnight.nextAllowed(noon, kolkata));
+    }
+
+    @Test
+    void eveningWaitsForTomorrowMorningInTheRecipientsZone() {
+        assertEquals(at(2026, 3, 11, 8, 0), overnight.nextAllowed(at(2026, 3, 10, 22, 30), kolkata));
+        assertEquals(at(2026, 3, 11, 8, 0), overnight.nextAllowed(at(2026, 3, 11, 6, 15), kolkata));
+    }
+
+    @Test
+    void emptySpecHasNoQuietHours() {
+        Instant night = at(2026, 3, 10, 23, 0);
+
+        assertEquals(night, QuietHours.parse("").nextAllowed(night, kolkata));
+    }
+
+    private Instant at(int year, int month, int day, int hour, int minute) {
+        return ZonedDateTime.of(year, month, day, hour, minute, 0, 0, kolkata).toInstant();
+    }
+}
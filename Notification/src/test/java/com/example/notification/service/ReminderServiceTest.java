@@ -0,0 +1,99 @@
+package com.example.notification.service;
+
+import com.example.notification.dto.ReminderReport;
+import com.example.notification.ledger.LedgerKey;
+import com.example.notification.ledger.NotificationLedger;
+import com.example.notification.model.Appointment;
+import com.example.notification.model.NotificationPriority;
+import com.example.notification.model.User;
+import com.example.notification.template.NotificationTemplates;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ReminderServiceTest {
+
+    private final AppointmentCalendar appointmentCalendar = mock(AppointmentCalendar.class);
+    private final NotificationDispatcher notificationDispatcher = mock(NotificationDispatcher.class);
+    private final NotificationLedger notificationLedger = mock(NotificationLedger.class);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private final ReminderService reminderService = new ReminderService();
+
+    private final LocalDate day = LocalDate.now().plusDays(1);
+    private final User doctor = user(1L, "doctor@example.com", "+15550001");
+
+    @Test
+    void pagesAppointmentsAndQueuesOneReminderPerRecipient() {
+        ReflectionTestUtils.setField(reminderService, "appointmentCalendar", appointmentCalendar);
+        ReflectionTestUtils.setField(reminderService, "notificationDispatcher", notificationDispatcher);
+        ReflectionTestUtils.setField(reminderService, "notificationTemplates", new NotificationTemplates());
+        ReflectionTestUtils.setField(reminderService, "notificationLedger", notificationLedger);
+        ReflectionTestUtils.setField(reminderService, "transactionTemplate", new TransactionTemplate(transactionManager));
+        ReflectionTestUtils.setField(reminderService, "pageSize", 2);
+        ReflectionTestUtils.setField(reminderService, "partitions", 3);
+        // The doctor has all three appointments; patient 3 has two of them.
+        when(appointmentCalendar.activePage(day, 0L, 2))
+                .thenReturn(List.of(appointment(10L, user(2L, "p2@example.com", "+15550002")),
+                        appointment(11L, user(3L, "p3@example.com", "+15550003"))));
+        when(appointmentCalendar.activePage(day, 11L, 2))
+                .thenReturn(List.of(appointment(12L, user(3L, "p3@example.com", "+15550003"))));
+        doThrow(new IllegalStateException("database down")).when(notificationDispatcher)
+                .schedule(argThat(request -> request.recipient().equals("+15550002")));
+        // An earlier, interrupted run already reminded p2 by email.
+        when(notificationLedger.claim(any()))
+                .thenAnswer(call -> !call.<LedgerKey>getArgument(0).recipient().equals("p2@example.com"));
+
+        ReminderReport report = reminderService.sendReminders(day);
+
+        assertEquals(3, report.getAppointments());
+        assertEquals(6, report.getRecipients());
+        assertEquals(2, report.getEmailsQueued());
+        assertEquals(2, report.getSmsQueued());
+        assertEquals(1, report.getFailures());
+        assertEquals(1, report.getDuplicates());
+        verify(notificationDispatcher, never()).schedule(argThat(request -> request.recipient().equals("p2@example.com")));
+        // Its claims roll back with the failed outbox write; every other reminder commits.
+        verify(transactionManager, times(1)).rollback(any());
+        verify(transactionManager, times(5)).commit(any());
+        verify(notificationDispatcher).schedule(argThat(request -> request.recipient().equals("doctor@example.com")
+                && request.body().startsWith("Reminder: You have 3 appointments")
+                && request.priority() == NotificationPriority.REMINDER));
+        verify(notificationDispatcher).schedule(argThat(request -> request.recipient().equals("p3@example.com")
+                && request.body().startsWith("Reminder: You have 2 appointments")));
+        verify(notificationDispatcher).schedule(argThat(request -> request.recipient().equals("+15550001")
+                && request.channel().equals("SMS")));
+    }
+
+    private Appointment appointment(Long id, User patient) {
+        Appointment appointment = new Appointment();
+        appointment.setId(id);
+        appointment.setDoctor(doctor);
+        appointment.setPatient(patient);
+        appointment.setDate(new Date());
+        appointment.setStatus("CREATED");
+        return appointment;
+    }
+
+    private static User user(Long id, String email, String phone) {
+        User user = new User();
+        user.setId(id);
+        user.setEmail(email);
+        user.setPhoneNumber(phone);
+        return user;
+    }
+}
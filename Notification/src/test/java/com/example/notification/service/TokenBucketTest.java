@@ -0,0 +1,43 @@
+package com.example.notification.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenBucketTest {
+
+    @Test
+    void spacesSendsToTheRate() throws Exception {
+        TokenBucket bucket = new TokenBucket(50, 1);
+        long start = System.nanoTime();
+
+        for (int i = 0; i < 11; i++) {
+            bucket.acquire();
+        }
+
+        // 11 sends at 50 per second need at least 10 intervals of 20 ms.
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 190);
+    }
+
+    @Test
+    void burstIsAvailableAtOnce() {
+        TokenBucket bucket = new TokenBucket(1, 5);
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals(0L, bucket.reserve());
+        }
+        assertTrue(bucket.reserve() > 0);
+    }
+
+    @Test
+    void zeroRateDisablesTheLimit() {
+        TokenBucket bucket = new TokenBucket(0, 1);
+
+        for (int i = 0; i < 100; i++) {
+            assertEquals(0L, bucket.reserve());
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.notification.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TwilioSmsServiceTest {
+
+    @Test
+    void sendsThroughTransport() {
+        StubSmsTransport transport = new StubSmsTransport();
+        TwilioSmsService smsService = new TwilioSmsService();
+        ReflectionTestUtils.setField(smsService, "smsTransport", transport);
+
+        String sid = smsService.send("+15550001", "Appointment Created", "Your appointment has been CREATED",
+                new SendAttempt()).join();
+
+        assertEquals("stub-1", sid);
+        assertEquals(List.of(new StubSmsTransport.SentSms("+15550001", "Your appointment has been CREATED")),
+                transport.getSent());
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.notification.template;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class NotificationTemplatesTest {
+
+    private final NotificationTemplates templates = new NotificationTemplates();
+    private final Date date = new Date();
+
+    @Test
+    void rendersInTheRecipientsLocaleWithDefaultFallback() {
+        MessageParams params = new MessageParams("Ana", List.of(date));
+
+        assertEquals("Recordatorio de cita", templates.subject(MessageType.REMINDER, "es"));
+        assertEquals("Appointment Reminder", templates.subject(MessageType.REMINDER, null));
+        assertEquals("Appointment Reminder", templates.subject(MessageType.REMINDER, "de"));
+        assertTrue(templates.email(MessageType.APPOINTMENT_CREATED, "es", params).startsWith("Estimado/a Ana, su cita"));
+    }
+
+    @Test
+    void usesTheManyVariantForSeveralAppointments() {
+        String body = templates.email(MessageType.REMINDER, null, new MessageParams("Sam", List.of(date, date, date)));
+
+        assertTrue(body.startsWith("Reminder: You have 3 appointments scheduled on "), body);
+    }
+
+    @Test
+    void cutsSmsToOneSegment() {
+        String hindi = templates.sms(MessageType.REMINDER, "hi", new MessageParams("Asha", List.of(date, date, date, date)));
+
+        assertTrue(hindi.length() <= 70, hindi);
+        assertTrue(hindi.endsWith("..."), hindi);
+        assertEquals(160, SmsText.fit("a".repeat(200), 1).length());
+        assertEquals(81, SmsText.fit("{".repeat(200), 1).length()); // 78 two-unit characters and "..."
+    }
+
+    @Test
+    void rejectsUnknownPlaceholders() {
+        assertThrows(IllegalArgumentException.class, () -> CompiledTemplate.compile("Hello {patient}"));
+    }
+}
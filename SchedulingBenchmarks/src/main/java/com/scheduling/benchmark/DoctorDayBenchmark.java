@@ -0,0 +1,159 @@
+package com.scheduling.benchmark;
+
+import java.lang.invoke.MethodHandle;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.appointment.entity.Appointment;
+import com.appointment.entity.AppointmentStatus;
+import com.appointment.entity.DoctorDayId;
+import com.appointment.entity.DoctorDaySlots;
+import com.appointment.repository.AppointmentRepository;
+import com.appointment.repository.AppointmentRepository.AppointmentSlot;
+import com.appointment.repository.DoctorDayChangeRepository;
+import com.appointment.repository.DoctorDaySlotsRepository;
+import com.appointment.service.AppointmentService;
+import com.appointment.service.DoctorDaySlotStore;
+import com.appointment.service.SlotOccupancyIndex;
+import com.appointment.template.SlotTemplate;
+import com.appointment.template.SlotTemplateRegistry;
+import com.doctor.availability.entity.Availability;
+import com.doctor.availability.repository.AvailabilityRepository;
+import com.doctor.availability.service.DoctorAvailabilityService;
+import com.example.demo.cache.ReferenceDataCache;
+import com.example.demo.entity.Doctor;
+import com.example.demo.repository.DoctorRepository;
+
+/**
+ * Per doctor-day scheduling paths at 1 to 200 appointments per day, against
+ * in-memory repositories:
+ * - the overlap check of bookOrWaitAppointment, for a slot that overlaps nothing
+ * (full scan);
+ * - getAvailableTimeSlots with the doctor-day already in the slot index, and
+ * with a reload from the repository on every call;
+ * - DoctorAvailabilityService.getAvailability from the materialized doctor-day
+ * row and its mask arithmetic.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DoctorDayBenchmark {
+
+	private static final Long DOCTOR_ID = 7L;
+	private static final LocalTime FREE_SLOT = LocalTime.of(17, 30);
+
+	@Param({ "1", "10", "50", "200" })
+	public int appointmentsPerDay;
+
+	private final LocalDate date = LocalDate.now().plusDays(1);
+	private List<Appointment> dayAppointments;
+	private AppointmentService appointmentService;
+	private SlotOccupancyIndex slotOccupancyIndex;
+	private DoctorAvailabilityService doctorAvailabilityService;
+	private SlotTemplate template;
+	private MethodHandle overlapsExisting;
+
+	@Setup
+	public void setUp() {
+		Doctor doctor = Fixtures.doctor(DOCTOR_ID);
+		dayAppointments = Fixtures.doctorDay(doctor, date, appointmentsPerDay);
+		List<Appointment> booked = dayAppointments.stream()
+				.filter(a -> a.getStatus() == AppointmentStatus.BOOKED).toList();
+		List<AppointmentSlot> bookedSlots = booked.stream()
+				.map(a -> Fixtures.repository(AppointmentSlot.class, Map.<String, Function<Object[], Object>>of(
+						"getAppointmentTime", args -> a.getAppointmentTime())))
+				.toList();
+
+		AppointmentRepository appointmentRepository = Fixtures.repository(AppointmentRepository.class,
+				Map.<String, Function<Object[], Object>>of(
+						"findByDoctorAndAppointmentDate", args -> dayAppointments,
+						"findSlotsByDoctorAndDateAndStatus", args -> bookedSlots));
+		DoctorRepository doctorRepository = Fixtures.repository(DoctorRepository.class,
+				Map.<String, Function<Object[], Object>>of("findById", args -> Optional.of(doctor)));
+		ReferenceDataCache referenceDataCache = new ReferenceDataCache();
+		Fixtures.inject(referenceDataCache, "doctorRepository", doctorRepository);
+		Availability blocked = new Availability();
+		blocked.setDoctor(doctor);
+		blocked.setDate(date);
+		blocked.setBusySlots(List.of(LocalTime.of(10, 0), LocalTime.of(15, 0), LocalTime.of(17, 0)));
+		AvailabilityRepository availabilityRepository = Fixtures.repository(AvailabilityRepository.class,
+				Map.<String, Function<Object[], Object>>of("findByDoctorAndDate", args -> blocked));
+
+		SlotTemplateRegistry slotTemplateRegistry = Fixtures.slotTemplates();
+		template = slotTemplateRegistry.forDoctorDay(DOCTOR_ID, date);
+
+		DoctorDaySlots day = new DoctorDaySlots();
+		day.setId(new DoctorDayId(DOCTOR_ID, date));
+		day.setBookedMask(booked.stream().mapToLong(a -> template.coveredSlots(a.getAppointmentTime()))
+				.reduce(0L, (a, b) -> a | b));
+		day.setBlockedMask(template.maskOf(blocked.getBusySlots()));
+		DoctorDaySlotStore doctorDaySlotStore = new DoctorDaySlotStore();
+		Fixtures.inject(doctorDaySlotStore, "doctorDaySlotsRepository", Fixtures.repository(
+				DoctorDaySlotsRepository.class,
+				Map.<String, Function<Object[], Object>>of("findById", args -> Optional.of(day))));
+
+		slotOccupancyIndex = new SlotOccupancyIndex();
+		Fixtures.inject(slotOccupancyIndex, "appointmentRepository", appointmentRepository);
+		Fixtures.inject(slotOccupancyIndex, "slotTemplateRegistry", slotTemplateRegistry);
+		// The change row written by evict is not stored; only the in-memory eviction is measured.
+		Fixtures.inject(slotOccupancyIndex, "changeRepository", Fixtures.repository(DoctorDayChangeRepository.class,
+				Map.<String, Function<Object[], Object>>of("save", args -> args[0])));
+
+		appointmentService = new AppointmentService();
+		Fixtures.inject(appointmentService, "appointmentRepository", appointmentRepository);
+		Fixtures.inject(appointmentService, "referenceDataCache", referenceDataCache);
+		Fixtures.inject(appointmentService, "slotOccupancyIndex", slotOccupancyIndex);
+		Fixtures.inject(appointmentService, "slotTemplateRegistry", slotTemplateRegistry);
+		overlapsExisting = Fixtures.privateMethod(AppointmentService.class, "overlapsExisting", boolean.class,
+				SlotTemplate.class, List.class, LocalTime.class);
+
+		doctorAvailabilityService = new DoctorAvailabilityService();
+		Fixtures.inject(doctorAvailabilityService, "appointmentRepository", appointmentRepository);
+		Fixtures.inject(doctorAvailabilityService, "referenceDataCache", referenceDataCache);
+		Fixtures.inject(doctorAvailabilityService, "availabilityRepository", availabilityRepository);
+		Fixtures.inject(doctorAvailabilityService, "slotTemplateRegistry", slotTemplateRegistry);
+		Fixtures.inject(doctorAvailabilityService, "doctorDaySlotStore", doctorDaySlotStore);
+	}
+
+	@Benchmark
+	public boolean overlapCheck() throws Throwable {
+		return (boolean) overlapsExisting.invokeExact(appointmentService, template, dayAppointments, FREE_SLOT);
+	}
+
+	@Benchmark
+	public List<LocalTime> availableTimeSlotsWarm() {
+		return appointmentService.getAvailableTimeSlots(DOCTOR_ID, date);
+	}
+
+	@Benchmark
+	public List<LocalTime> availableTimeSlotsCold() {
+		// No transaction is active, so the eviction applies immediately.
+		slotOccupancyIndex.evict(DOCTOR_ID, date);
+		return appointmentService.getAvailableTimeSlots(DOCTOR_ID, date);
+	}
+
+	@Benchmark
+	public Availability doctorAvailability() {
+		return doctorAvailabilityService.getAvailability(DOCTOR_ID, date);
+	}
+}
@@ -0,0 +1,114 @@
+package com.scheduling.benchmark;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import com.appointment.entity.Appointment;
+import com.appointment.entity.AppointmentStatus;
+import com.appointment.template.SlotTemplateProperties;
+import com.appointment.template.SlotTemplateRegistry;
+import com.example.demo.entity.Doctor;
+import com.example.demo.entity.Patient;
+import com.example.demo.entity.User;
+
+/**
+ * In-memory stand-ins for the Spring wiring: repositories are dynamic proxies
+ * that answer only the methods a benchmark needs, and services get them
+ * injected into their private @Autowired fields.
+ */
+final class Fixtures {
+
+	// Regular slot starts other than 17:30, so a request for 17:30 has to scan the whole doctor-day.
+	private static final List<LocalTime> DAY_SLOTS = List.of(LocalTime.of(9, 30), LocalTime.of(10, 0),
+			LocalTime.of(10, 30), LocalTime.of(11, 0), LocalTime.of(11, 30), LocalTime.of(12, 0),
+			LocalTime.of(12, 30), LocalTime.of(14, 30), LocalTime.of(15, 0), LocalTime.of(15, 30),
+			LocalTime.of(16, 0), LocalTime.of(16, 30), LocalTime.of(17, 0));
+
+	private Fixtures() {
+	}
+
+	/**
+	 * A repository whose methods are answered by name from answers; any other
+	 * call fails, so a benchmark cannot silently measure an unexpected path.
+	 */
+	static <T> T repository(Class<T> type, Map<String, Function<Object[], Object>> answers) {
+		return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type },
+				(proxy, method, args) -> {
+					if (method.getDeclaringClass() == Object.class) {
+						return switch (method.getName()) {
+						case "hashCode" -> System.identityHashCode(proxy);
+						case "equals" -> proxy == args[0];
+						default -> "Fake" + type.getSimpleName();
+						};
+					}
+					Function<Object[], Object> answer = answers.get(method.getName());
+					if (answer == null) {
+						throw new UnsupportedOperationException(type.getSimpleName() + "." + method.getName());
+					}
+					return answer.apply(args);
+				}));
+	}
+
+	static void inject(Object target, String fieldName, Object value) {
+		try {
+			Field field = target.getClass().getDeclaredField(fieldName);
+			field.setAccessible(true);
+			field.set(target, value);
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalStateException("Cannot inject " + fieldName + " into " + target.getClass(), e);
+		}
+	}
+
+	static MethodHandle privateMethod(Class<?> type, String name, Class<?> returnType, Class<?>... parameterTypes) {
+		try {
+			return MethodHandles.privateLookupIn(type, MethodHandles.lookup()).findVirtual(type, name,
+					MethodType.methodType(returnType, parameterTypes));
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalStateException("Cannot access " + type.getSimpleName() + "." + name, e);
+		}
+	}
+
+	// The default hospital template, as the services get it without configuration.
+	static SlotTemplateRegistry slotTemplates() {
+		return new SlotTemplateRegistry(new SlotTemplateProperties());
+	}
+
+	static Doctor doctor(Long doctorId) {
+		User user = new User();
+		user.setName("Doctor " + doctorId);
+		Doctor doctor = new Doctor();
+		doctor.setDoctorId(doctorId);
+		doctor.setUser(user);
+		return doctor;
+	}
+
+	/**
+	 * count appointments for one doctor-day. The first pass over the grid is
+	 * BOOKED; further rows model cancelled-and-rebooked history in the same slots.
+	 */
+	static List<Appointment> doctorDay(Doctor doctor, LocalDate date, int count) {
+		List<Appointment> appointments = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			Patient patient = new Patient();
+			patient.setPatientId((long) i + 1);
+			Appointment appointment = new Appointment();
+			appointment.setAppointmentId((long) i + 1);
+			appointment.setDoctor(doctor);
+			appointment.setPatient(patient);
+			appointment.setAppointmentDate(date);
+			appointment.setAppointmentTime(DAY_SLOTS.get(i % DAY_SLOTS.size()));
+			appointment.setStatus(i < DAY_SLOTS.size() ? AppointmentStatus.BOOKED : AppointmentStatus.CANCELLED);
+			appointments.add(appointment);
+		}
+		return appointments;
+	}
+}
@@ -0,0 +1,68 @@
+package com.scheduling.benchmark;
+
+import java.lang.invoke.MethodHandle;
+import java.time.LocalTime;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.appointment.service.AppointmentService;
+import com.appointment.template.SlotTemplate;
+
+/**
+ * AppointmentService.validateHospitalHours and validateRegularAppointment on
+ * valid regular slot starts. They are private, so they are called through
+ * method handles.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SlotValidationBenchmark {
+
+	private static final LocalTime[] REQUEST_TIMES = { LocalTime.of(9, 30), LocalTime.of(11, 0),
+			LocalTime.of(12, 30), LocalTime.of(14, 30), LocalTime.of(15, 30) };
+
+	private AppointmentService appointmentService;
+	private SlotTemplate template;
+	private MethodHandle validateHospitalHours;
+	private MethodHandle validateRegularAppointment;
+	private int next;
+
+	@Setup
+	public void setUp() {
+		appointmentService = new AppointmentService();
+		template = Fixtures.slotTemplates().getDefaultTemplate();
+		validateHospitalHours = Fixtures.privateMethod(AppointmentService.class, "validateHospitalHours", void.class,
+				SlotTemplate.class, LocalTime.class);
+		validateRegularAppointment = Fixtures.privateMethod(AppointmentService.class, "validateRegularAppointment",
+				void.class, SlotTemplate.class, LocalTime.class);
+	}
+
+	@Benchmark
+	public void validateHospitalHours() throws Throwable {
+		validateHospitalHours.invokeExact(appointmentService, template, nextTime());
+	}
+
+	@Benchmark
+	public void validateRegularAppointment() throws Throwable {
+		validateRegularAppointment.invokeExact(appointmentService, template, nextTime());
+	}
+
+	// Rotates the input so that the JIT cannot fold the checks into a constant.
+	private LocalTime nextTime() {
+		next = next + 1 == REQUEST_TIMES.length ? 0 : next + 1;
+		return REQUEST_TIMES[next];
+	}
+}
@@ -0,0 +1,316 @@
+package com.example.demo.cache;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.example.demo.entity.Doctor;
+import com.example.demo.entity.Patient;
+import com.example.demo.entity.ReferenceDataChange;
+import com.example.demo.entity.User;
+import com.example.demo.repository.DoctorRepository;
+import com.example.demo.repository.PatientRepository;
+import com.example.demo.repository.ReferenceDataChangeRepository;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Read-through cache of Doctor and Patient rows by id, for the services that
+ * look one up on every request. Each kind is a bounded LRU map whose entries
+ * expire after a TTL. Ids that are not found are not cached.
+ *
+ * Every process that loads this class (UserManagement, AppointmentScheduling,
+ * DoctorAvailability) has its own cache. When UserService updates or deletes
+ * a user, invalidateUser records a ReferenceDataChange in the same
+ * transaction and drops the local entries once it commits. Each cache polls
+ * reference_data_changes every poll-interval-ms and drops the entries of
+ * the users changed elsewhere, so a change reaches every process within
+ * about one poll interval. The TTL only bounds staleness if polling fails.
+ *
+ * Cached entities are detached and shared between threads: use them as
+ * references (e.g. Appointment.setDoctor) and do not modify them.
+ *
+ * Hits, misses and sizes are published as reference-data.cache.* meters when
+ * a MeterRegistry is present, and are also available from stats().
+ */
+@Component
+public class ReferenceDataCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReferenceDataCache.class);
+
+    @Autowired
+    private DoctorRepository doctorRepository;
+
+    @Autowired
+    private PatientRepository patientRepository;
+
+    @Autowired
+    private ReferenceDataChangeRepository changeRepository;
+
+    @Autowired
+    private ObjectProvider<MeterRegistry> meterRegistry;
+
+    @Value("${reference-data.cache.ttl-seconds:300}")
+    private long ttlSeconds = 300;
+
+    @Value("${reference-data.cache.max-entries:10000}")
+    private int maxEntries = 10000;
+
+    // 0 or less turns polling off; the TTL is then the only way to see other processes' changes.
+    @Value("${reference-data.cache.poll-interval-ms:5000}")
+    private long pollIntervalMs = 5000;
+
+    // Each poll reads this far back again, for changes that committed late.
+    @Value("${reference-data.cache.poll-overlap-ms:60000}")
+    private long pollOverlapMs = 60000;
+
+    @Value("${reference-data.cache.change-retention-hours:24}")
+    private long changeRetentionHours = 24;
+
+    private final Region<Doctor> doctors = new Region<>("doctor", id -> doctorRepository.findById(id), Doctor::getUser);
+
+    private final Region<Patient> patients = new Region<>("patient", id -> patientRepository.findById(id),
+            Patient::getUser);
+
+    // Poller state, only touched by the poller thread (or a test calling applyChanges).
+    private final Map<Long, Instant> appliedChanges = new HashMap<>();
+    private Instant polledAt = Instant.now();
+    private Instant purgedAt = Instant.now();
+    private ScheduledExecutorService poller;
+
+    @PostConstruct
+    void start() {
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        if (registry != null) {
+            doctors.bind(registry);
+            patients.bind(registry);
+        }
+        if (pollIntervalMs > 0) {
+            poller = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("reference-data-"));
+            poller.scheduleWithFixedDelay(this::applyChanges, pollIntervalMs, pollIntervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    void stop() {
+        if (poller != null) {
+            poller.shutdownNow();
+        }
+    }
+
+    public Optional<Doctor> findDoctor(Long doctorId) {
+        return doctors.get(doctorId);
+    }
+
+    public Optional<Patient> findPatient(Long patientId) {
+        return patients.get(patientId);
+    }
+
+    /**
+     * Records that a user's doctor or patient data changed, so that every
+     * process drops its entries, and drops this process's entries once the
+     * current transaction commits, or immediately without one.
+     */
+    public void invalidateUser(Long userId) {
+        ReferenceDataChange change = new ReferenceDataChange();
+        change.setUserId(userId);
+        change.setChangedAt(Instant.now());
+        changeRepository.save(change);
+        afterCommit(() -> {
+            int removed = doctors.removeUser(userId) + patients.removeUser(userId);
+            logger.debug("Invalidated {} reference data entries of user {}", removed, userId);
+        });
+    }
+
+    // Local only; use invalidateUser to reach the other processes.
+    public void invalidateDoctor(Long doctorId) {
+        afterCommit(() -> doctors.remove(doctorId));
+    }
+
+    public void invalidatePatient(Long patientId) {
+        afterCommit(() -> patients.remove(patientId));
+    }
+
+    public void clear() {
+        doctors.clear();
+        patients.clear();
+    }
+
+    public Map<String, Stats> stats() {
+        return Map.of(doctors.name, doctors.stats(), patients.name, patients.stats());
+    }
+
+    /**
+     * Drops the entries of every user changed since the previous poll. Runs on
+     * the poller thread; package-private for tests.
+     */
+    void applyChanges() {
+        Instant now = Instant.now();
+        try {
+            Instant since = polledAt.minusMillis(pollOverlapMs);
+            Set<Long> userIds = new HashSet<>();
+            for (ReferenceDataChange change : changeRepository.findByChangedAtAfter(since)) {
+                if (appliedChanges.putIfAbsent(change.getId(), change.getChangedAt()) == null) {
+                    userIds.add(change.getUserId());
+                }
+            }
+            appliedChanges.values().removeIf(changedAt -> changedAt.isBefore(since));
+            for (Long userId : userIds) {
+                doctors.removeUser(userId);
+                patients.removeUser(userId);
+            }
+            if (!userIds.isEmpty()) {
+                logger.debug("Invalidated reference data of {} users changed elsewhere", userIds.size());
+            }
+            polledAt = now;
+            if (purgedAt.isBefore(now.minus(Duration.ofHours(1)))) {
+                changeRepository.deleteChangedBefore(now.minus(Duration.ofHours(changeRetentionHours)));
+                purgedAt = now;
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Could not read reference data changes: {}", e.getMessage());
+        }
+    }
+
+    private long ttlNanos() {
+        return ttlSeconds * 1_000_000_000L;
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    public record Stats(long hits, long misses, int size) {
+    }
+
+    private record Entry<T>(T value, long loadedAt) {
+
+        boolean isExpired(long ttlNanos) {
+            return System.nanoTime() - loadedAt > ttlNanos;
+        }
+    }
+
+    // One kind of reference data. Loads run outside the lock; a load that
+    // overlaps an invalidation is returned but not stored, so it cannot put
+    // back the row the invalidation was meant to drop.
+    private final class Region<T> {
+
+        private final String name;
+        private final Function<Long, Optional<T>> loader;
+        private final Function<T, User> userOf;
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+        private final Map<Long, Entry<T>> entries = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entry<T>> eldest) {
+                return size() > maxEntries;
+            }
+        };
+        private long generation;
+
+        Region(String name, Function<Long, Optional<T>> loader, Function<T, User> userOf) {
+            this.name = name;
+            this.loader = loader;
+            this.userOf = userOf;
+        }
+
+        Optional<T> get(Long id) {
+            if (id == null) {
+                return Optional.empty();
+            }
+            long loadGeneration;
+            synchronized (this) {
+                Entry<T> entry = entries.get(id);
+                if (entry != null && !entry.isExpired(ttlNanos())) {
+                    hits.increment();
+                    return Optional.of(entry.value());
+                }
+                loadGeneration = generation;
+            }
+            misses.increment();
+            Optional<T> loaded = loader.apply(id);
+            loaded.ifPresent(value -> {
+                synchronized (this) {
+                    if (generation == loadGeneration) {
+                        entries.put(id, new Entry<>(value, System.nanoTime()));
+                    }
+                }
+            });
+            return loaded;
+        }
+
+        synchronized void remove(Long id) {
+            generation++;
+            entries.remove(id);
+        }
+
+        synchronized int removeUser(Long userId) {
+            generation++;
+            int before = entries.size();
+            entries.values().removeIf(entry -> {
+                User user = userOf.apply(entry.value());
+                return user != null && Objects.equals(user.getUserId(), userId);
+            });
+            return before - entries.size();
+        }
+
+        synchronized void clear() {
+            generation++;
+            entries.clear();
+        }
+
+        synchronized int size() {
+            return entries.size();
+        }
+
+        Stats stats() {
+            return new Stats(hits.sum(), misses.sum(), size());
+        }
+
+        void bind(MeterRegistry registry) {
+            FunctionCounter.builder("reference-data.cache.requests", hits, LongAdder::sum)
+                    .description("Reference data lookups answered from the cache")
+                    .tags("cache", name, "result", "hit").register(registry);
+            FunctionCounter.builder("reference-data.cache.requests", misses, LongAdder::sum)
+                    .description("Reference data lookups loaded from the database")
+                    .tags("cache", name, "result", "miss").register(registry);
+            Gauge.builder("reference-data.cache.size", this, Region::size)
+                    .description("Cached reference data entries")
+                    .tags("cache", name).register(registry);
+        }
+    }
+}
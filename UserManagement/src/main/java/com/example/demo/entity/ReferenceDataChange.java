@@ -0,0 +1,29 @@
+package com.example.demo.entity;
+
+import java.time.Instant;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+/**
+ * A change to a user's doctor or patient data, written in the same
+ * transaction as the change. Every process that caches reference data polls
+ * this table to drop its copies (see ReferenceDataCache). There is no foreign
+ * key: deleted users are recorded too.
+ */
+@Data
+@Entity
+@Table(name = "reference_data_changes",
+        indexes = @Index(name = "idx_reference_data_changes_changed_at", columnList = "changed_at"))
+public class ReferenceDataChange {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "changed_at", nullable = false)
+    private Instant changedAt;
+}
@@ -0,0 +1,23 @@
+package com.example.demo.repository;
+
+import java.time.Instant;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.demo.entity.ReferenceDataChange;
+
+@Repository
+public interface ReferenceDataChangeRepository extends JpaRepository<ReferenceDataChange, Long> {
+    List<ReferenceDataChange> findByChangedAtAfter(Instant since);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM ReferenceDataChange c WHERE c.changedAt < :before")
+    int deleteChangedBefore(@Param("before") Instant before);
+}
@@ -5,6 +5,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.example.demo.cache.ReferenceDataCache;
 import com.example.demo.dto.UserRequest;
 import com.example.demo.dto.UserUpdateDto;
 import com.example.demo.entity.*;
@@ -18,11 +19,15 @@ public class UserService {
     @Autowired
     private UserRepository userRepository;
     
+    @Autowired
+    private ReferenceDataCache referenceDataCache;
+    
     @Transactional
     public boolean deleteUser(Long userId) {
         Optional<User> userOpt = userRepository.findById(userId);
         if(userOpt.isPresent()){
             userRepository.delete(userOpt.get());
+            referenceDataCache.invalidateUser(userId);
             return true;
         }
         return false;
@@ -126,6 +131,8 @@ public class UserService {
                 patientRepository.save(patient);
             }
         }
+        // Cached doctor and patient rows embed the user, so drop them for any change.
+        referenceDataCache.invalidateUser(userId);
         
         return savedUser;
     }
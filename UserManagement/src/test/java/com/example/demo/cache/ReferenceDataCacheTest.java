@@ -0,0 +1,108 @@
+package com.example.demo.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.example.demo.entity.Doctor;
+import com.example.demo.entity.ReferenceDataChange;
+import com.example.demo.entity.User;
+import com.example.demo.repository.DoctorRepository;
+import com.example.demo.repository.PatientRepository;
+import com.example.demo.repository.ReferenceDataChangeRepository;
+
+@ExtendWith(MockitoExtension.class)
+class ReferenceDataCacheTest {
+
+    @InjectMocks
+    private ReferenceDataCache referenceDataCache;
+
+    @Mock
+    private DoctorRepository doctorRepository;
+
+    @Mock
+    private PatientRepository patientRepository;
+
+    @Mock
+    private ReferenceDataChangeRepository changeRepository;
+
+    @Test
+    void repeatedLookupsAreServedFromTheCache() {
+        Doctor doctor = doctor(7L, 70L);
+        when(doctorRepository.findById(7L)).thenReturn(Optional.of(doctor));
+
+        assertSame(doctor, referenceDataCache.findDoctor(7L).orElseThrow());
+        assertSame(doctor, referenceDataCache.findDoctor(7L).orElseThrow());
+
+        verify(doctorRepository, times(1)).findById(7L);
+        ReferenceDataCache.Stats stats = referenceDataCache.stats().get("doctor");
+        assertEquals(1, stats.hits());
+        assertEquals(1, stats.misses());
+    }
+
+    @Test
+    void invalidatingTheUserReloadsItsDoctor() {
+        when(doctorRepository.findById(7L)).thenReturn(Optional.of(doctor(7L, 70L)));
+        referenceDataCache.findDoctor(7L);
+
+        // No transaction is active, so the entry is dropped immediately.
+        referenceDataCache.invalidateUser(70L);
+        referenceDataCache.findDoctor(7L);
+
+        verify(doctorRepository, times(2)).findById(7L);
+        verify(changeRepository).save(argThat(change -> change.getUserId().equals(70L)));
+    }
+
+    @Test
+    void changesRecordedByAnotherProcessAreApplied() {
+        when(doctorRepository.findById(7L)).thenReturn(Optional.of(doctor(7L, 70L)));
+        referenceDataCache.findDoctor(7L);
+        ReferenceDataChange change = new ReferenceDataChange();
+        change.setId(1L);
+        change.setUserId(70L);
+        change.setChangedAt(Instant.now());
+        when(changeRepository.findByChangedAtAfter(any())).thenReturn(List.of(change));
+
+        referenceDataCache.applyChanges();
+        referenceDataCache.findDoctor(7L);
+        // A change already applied is not applied again by the next, overlapping poll.
+        referenceDataCache.applyChanges();
+        referenceDataCache.findDoctor(7L);
+
+        verify(doctorRepository, times(2)).findById(7L);
+    }
+
+    @Test
+    void unknownIdsAreNotCached() {
+        when(doctorRepository.findById(8L)).thenReturn(Optional.empty());
+
+        assertTrue(referenceDataCache.findDoctor(8L).isEmpty());
+        assertTrue(referenceDataCache.findDoctor(8L).isEmpty());
+
+        verify(doctorRepository, times(2)).findById(8L);
+    }
+
+    private Doctor doctor(Long doctorId, Long userId) {
+        User user = new User();
+        user.setUserId(userId);
+        Doctor doctor = new Doctor();
+        doctor.setDoctorId(doctorId);
+        doctor.setUser(user);
+        return doctor;
+    }
+}